@@ -26,6 +26,10 @@ dependencies {
     runtimeOnly("org.lwjgl:lwjgl-glfw::$lwjglNatives")
     runtimeOnly("org.lwjgl:lwjgl-opengl::$lwjglNatives")
     runtimeOnly("org.lwjgl:lwjgl-stb::$lwjglNatives")
+
+    testImplementation(platform("org.junit:junit-bom:5.10.2"))
+    testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
 }
 
 application {
@@ -37,3 +41,21 @@ java {
         languageVersion.set(JavaLanguageVersion.of(17))
     }
 }
+
+tasks.test {
+    useJUnitPlatform()
+}
+
+tasks.register<JavaExec>("generateLevels") {
+    group = "application"
+    description = "Generates and validates a batch of levels headlessly (pass flags with --args)."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass = "dev.minimal.lwjgl.topdown.LevelBatchMain"
+}
+
+tasks.register<JavaExec>("simulateBattles") {
+    group = "application"
+    description = "Plays a batch of seeded battles headlessly and reports win rates (pass flags with --args)."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass = "dev.minimal.lwjgl.topdown.BattleSimMain"
+}
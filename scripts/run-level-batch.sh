@@ -0,0 +1,9 @@
+#!/usr/bin/env bash
+set -euo pipefail
+
+ROOT_DIR="$(cd "$(dirname "$0")/.." && pwd)"
+
+echo "Batch-generating levels headlessly (no display required)..."
+echo "Example: ./scripts/run-level-batch.sh --count=500 --width=201 --height=151 --seed=1 --out=build/levels"
+
+"$ROOT_DIR/scripts/gradle.sh" generateLevels --args="$*"
@@ -0,0 +1,209 @@
+package dev.minimal.lwjgl.topdown;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Append-only binary record of everything that happens to the units of one {@link UnitTable}: units joining,
+ * placements and moves, hits, weapon changes and moved flags, plus a marker at the end of every turn. The table
+ * writes the events itself once {@link UnitTable#recordTo recording}, so no game code has to remember to log.
+ *
+ * <p>Each event is an opcode byte followed by unsigned LEB128 varints: unit indices as they are, tiles packed as
+ * {@code row * columns + col + 1} so that "off the board" is {@code 0}. A move costs three bytes on boards up to 16k
+ * tiles. Weapons are written by id the first time they appear and by a log-local number afterwards.
+ *
+ * <p>Every {@code keyframeInterval} turns the turn marker carries a keyframe: the full state of every unit and its
+ * {@link UnitTable#stateKey(int)}. {@link BattleReplay} restores the nearest keyframe instead of replaying from the
+ * start, and compares keys to detect a replay that drifted from the recording.
+ */
+final class BattleLog {
+    static final int DEFAULT_KEYFRAME_INTERVAL = 16;
+    static final int MAGIC = 0x53525047;
+    static final int VERSION = 1;
+
+    static final byte ADD = 1;
+    static final byte PLACE = 2;
+    static final byte HIT = 3;
+    static final byte EQUIP = 4;
+    static final byte ACTED = 5;
+    static final byte READY = 6;
+    static final byte TURN = 7;
+    static final byte WEAPON = 8;
+
+    private final int columns;
+    private final int keyframeInterval;
+    private final Map<Weapon, Integer> weaponIds = new IdentityHashMap<>();
+    private byte[] bytes = new byte[256];
+    private int length;
+    private int turn;
+    private UnitTable table;
+
+    BattleLog(int columns) {
+        this(columns, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    BattleLog(int columns, int keyframeInterval) {
+        if (columns <= 0 || keyframeInterval <= 0) {
+            throw new IllegalArgumentException("Columns and keyframe interval must be positive");
+        }
+        this.columns = columns;
+        this.keyframeInterval = keyframeInterval;
+        writeInt(MAGIC);
+        writeVarint(VERSION);
+        writeVarint(columns);
+        writeVarint(keyframeInterval);
+    }
+
+    int columns() {
+        return columns;
+    }
+
+    /** Turns ended so far; events go to turn {@link #turn()}. */
+    int turn() {
+        return turn;
+    }
+
+    /** Encoded size in bytes. */
+    int size() {
+        return length;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(bytes, length);
+    }
+
+    /** Marks the end of the current turn, writing a keyframe when the next turn is a multiple of the interval. */
+    void endTurn() {
+        if (table == null) {
+            throw new IllegalStateException("Battle log is not attached to a unit table");
+        }
+        turn++;
+        boolean keyframe = turn % keyframeInterval == 0;
+        if (keyframe) {
+            // Weapon definitions must not land inside the keyframe.
+            for (int i = 0; i < table.size(); i++) {
+                weaponId(table.weapon(i));
+            }
+        }
+        writeByte(TURN);
+        writeVarint(turn);
+        writeByte(keyframe ? 1 : 0);
+        if (!keyframe) {
+            return;
+        }
+        writeLong(table.stateKey(columns));
+        writeVarint(table.size());
+        for (int i = 0; i < table.size(); i++) {
+            writeVarint(tileOf(table.col(i), table.row(i)));
+            writeVarint(table.hp(i));
+            writeByte(table.hasMoved(i) ? 1 : 0);
+            writeVarint(weaponId(table.weapon(i)));
+        }
+    }
+
+    void attach(UnitTable table) {
+        if (this.table != null) {
+            throw new IllegalStateException("Battle log already records a unit table");
+        }
+        this.table = table;
+    }
+
+    /** The next unit of the table joined; its weapon follows as an {@link #equipped} event. */
+    void unitAdded(String id, UnitFaction faction, int maxHp, int maxSp) {
+        byte[] encoded = id.getBytes(StandardCharsets.UTF_8);
+        writeByte(ADD);
+        writeVarint(faction.ordinal());
+        writeVarint(maxHp);
+        writeVarint(maxSp);
+        writeVarint(encoded.length);
+        writeBytes(encoded);
+    }
+
+    /** Unit {@code unit} now stands on the tile, or left the board when both are {@link UnitTable#NO_TILE}. */
+    void placed(int unit, int col, int row) {
+        writeByte(PLACE);
+        writeVarint(unit);
+        writeVarint(tileOf(col, row));
+    }
+
+    /** {@code attacker} is {@code -1} for damage without a known source. */
+    void hit(int attacker, int target, int amount) {
+        writeByte(HIT);
+        writeVarint(attacker + 1);
+        writeVarint(target);
+        writeVarint(amount);
+    }
+
+    void equipped(int unit, Weapon weapon) {
+        int id = weaponId(weapon);
+        writeByte(EQUIP);
+        writeVarint(unit);
+        writeVarint(id);
+    }
+
+    void movedFlag(int unit, boolean moved) {
+        writeByte(moved ? ACTED : READY);
+        writeVarint(unit);
+    }
+
+    private int tileOf(int col, int row) {
+        return col == UnitTable.NO_TILE ? 0 : row * columns + col + 1;
+    }
+
+    /** Log-local number of {@code weapon}, {@code 0} for none; defines it first if this is its first appearance. */
+    private int weaponId(Weapon weapon) {
+        if (weapon == null) {
+            return 0;
+        }
+        Integer id = weaponIds.get(weapon);
+        if (id == null) {
+            id = weaponIds.size() + 1;
+            weaponIds.put(weapon, id);
+            byte[] encoded = weapon.id().getBytes(StandardCharsets.UTF_8);
+            writeByte(WEAPON);
+            writeVarint(encoded.length);
+            writeBytes(encoded);
+        }
+        return id;
+    }
+
+    private void writeByte(int value) {
+        ensure(1);
+        bytes[length++] = (byte) value;
+    }
+
+    private void writeBytes(byte[] values) {
+        ensure(values.length);
+        System.arraycopy(values, 0, bytes, length, values.length);
+        length += values.length;
+    }
+
+    private void writeVarint(int value) {
+        ensure(5);
+        while ((value & ~0x7F) != 0) {
+            bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[length++] = (byte) value;
+    }
+
+    private void writeInt(int value) {
+        ensure(4);
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            bytes[length++] = (byte) (value >>> shift);
+        }
+    }
+
+    private void writeLong(long value) {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+
+    private void ensure(int extra) {
+        if (length + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+        }
+    }
+}
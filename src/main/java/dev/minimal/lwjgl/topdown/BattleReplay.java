@@ -0,0 +1,322 @@
+package dev.minimal.lwjgl.topdown;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rebuilds unit state from a {@link BattleLog} recording. Construction scans the log once to index where every turn
+ * ends, where the keyframes are and which weapons it names; {@link #seek} then restores the nearest keyframe at or
+ * before the wanted turn and replays only the events after it, so any turn of a long battle comes back after at most
+ * one keyframe interval of events.
+ *
+ * <p>Replays run into a fresh {@link UnitTable} with no board or log attached, so nothing but the table's own arrays
+ * is touched and whole logs replay at memory speed.
+ */
+final class BattleReplay {
+    private static final UnitFaction[] FACTIONS = UnitFaction.values();
+    private static final int NO_KEYFRAME = -1;
+
+    private final byte[] bytes;
+    private final int columns;
+    private final int eventsStart;
+    /** Weapons by log-local number minus one. */
+    private final List<Weapon> weapons = new ArrayList<>();
+    /** Per turn {@code t}: offset just past the marker ending turn {@code t - 1}; entry 0 is the first event. */
+    private int[] turnStarts = new int[16];
+    /** Per turn: offset of the keyframe body in the marker that starts it, or {@link #NO_KEYFRAME}. */
+    private int[] keyframes = new int[16];
+    private int[] addOffsets = new int[16];
+    private int addCount;
+    private int turns;
+    private long eventCount;
+
+    BattleReplay(byte[] bytes) {
+        this.bytes = bytes.clone();
+        Cursor cursor = new Cursor(this.bytes, 0);
+        if (bytes.length < 4 || cursor.readInt() != BattleLog.MAGIC) {
+            throw new IllegalArgumentException("Not a battle log");
+        }
+        int version = cursor.readVarint();
+        if (version != BattleLog.VERSION) {
+            throw new IllegalArgumentException("Unsupported battle log version " + version);
+        }
+        this.columns = cursor.readVarint();
+        cursor.readVarint();
+        this.eventsStart = cursor.position;
+        turnStarts[0] = eventsStart;
+        keyframes[0] = NO_KEYFRAME;
+        index(cursor);
+    }
+
+    int columns() {
+        return columns;
+    }
+
+    /** Turns ended in the log; {@link #seek} accepts {@code 0} up to this. */
+    int turns() {
+        return turns;
+    }
+
+    long eventCount() {
+        return eventCount;
+    }
+
+    /** Units as they stood at the start of {@code turn}. */
+    UnitTable seek(int turn) {
+        if (turn < 0 || turn > turns) {
+            throw new IllegalArgumentException("Turn " + turn + " is outside 0.." + turns);
+        }
+        int keyframeTurn = turn;
+        while (keyframeTurn > 0 && keyframes[keyframeTurn] == NO_KEYFRAME) {
+            keyframeTurn--;
+        }
+        UnitTable table = new UnitTable();
+        if (keyframeTurn == 0) {
+            replay(table, eventsStart, turnStarts[turn], false);
+            return table;
+        }
+        int keyframe = keyframes[keyframeTurn];
+        for (int i = 0; i < addCount && addOffsets[i] < keyframe; i++) {
+            replay(table, addOffsets[i], addOffsets[i] + 1, false);
+        }
+        restore(table, new Cursor(bytes, keyframe));
+        replay(table, turnStarts[keyframeTurn], turnStarts[turn], false);
+        return table;
+    }
+
+    /** Units as they stood when the log was taken. */
+    UnitTable replayAll() {
+        UnitTable table = new UnitTable();
+        replay(table, eventsStart, bytes.length, false);
+        return table;
+    }
+
+    /**
+     * Replays the whole log from the start and checks the state against every keyframe's key. Returns the first turn
+     * whose keyframe disagrees, or {@code -1} when the replay matches the recording throughout.
+     */
+    int verify() {
+        return replay(new UnitTable(), eventsStart, bytes.length, true);
+    }
+
+    /**
+     * Applies the events that start in {@code [from, to)} to {@code table}; an event starting before {@code to} is
+     * applied whole. With {@code verify}, returns the first turn whose keyframe key disagrees with the table, else
+     * {@code -1}.
+     */
+    private int replay(UnitTable table, int from, int to, boolean verify) {
+        Cursor cursor = new Cursor(bytes, from);
+        int mismatch = -1;
+        while (cursor.position < to) {
+            int at = cursor.position;
+            byte opcode = cursor.readByte();
+            switch (opcode) {
+                case BattleLog.ADD -> {
+                    int faction = cursor.readVarint();
+                    if (faction >= FACTIONS.length) {
+                        throw corrupt(at);
+                    }
+                    int maxHp = cursor.readVarint();
+                    int maxSp = cursor.readVarint();
+                    table.add(cursor.readString(), FACTIONS[faction], maxHp, maxSp);
+                }
+                case BattleLog.PLACE -> {
+                    int unit = unit(table, cursor.readVarint(), at);
+                    int tile = cursor.readVarint();
+                    if (tile == 0) {
+                        table.clearPlacement(unit);
+                    } else {
+                        table.place(unit, (tile - 1) % columns, (tile - 1) / columns);
+                    }
+                }
+                case BattleLog.HIT -> {
+                    int attacker = cursor.readVarint() - 1;
+                    table.applyHit(attacker, unit(table, cursor.readVarint(), at), cursor.readVarint());
+                }
+                case BattleLog.EQUIP -> {
+                    int unit = unit(table, cursor.readVarint(), at);
+                    int weapon = cursor.readVarint();
+                    if (weapon != 0) {
+                        table.equip(unit, weapon(weapon, at));
+                    }
+                }
+                case BattleLog.ACTED -> table.setMoved(unit(table, cursor.readVarint(), at), true);
+                case BattleLog.READY -> table.setMoved(unit(table, cursor.readVarint(), at), false);
+                case BattleLog.WEAPON -> cursor.readString();
+                case BattleLog.TURN -> {
+                    int turn = cursor.readVarint();
+                    if (turn > turns) {
+                        throw corrupt(at);
+                    }
+                    if (cursor.readByte() != 0) {
+                        if (verify && mismatch < 0 && cursor.readLong() != table.stateKey(columns)) {
+                            mismatch = turn;
+                        }
+                        cursor.position = turnStarts[turn];
+                    }
+                }
+                default -> throw corrupt(at);
+            }
+        }
+        return mismatch;
+    }
+
+    private void restore(UnitTable table, Cursor cursor) {
+        cursor.readLong();
+        int count = cursor.readVarint();
+        if (count != table.size()) {
+            throw corrupt(cursor.position);
+        }
+        for (int i = 0; i < count; i++) {
+            int tile = cursor.readVarint();
+            int hp = cursor.readVarint();
+            boolean moved = cursor.readByte() != 0;
+            int weapon = cursor.readVarint();
+            if (weapon != 0) {
+                table.equip(i, weapon(weapon, cursor.position));
+            }
+            table.restore(i, tile == 0 ? UnitTable.NO_TILE : (tile - 1) % columns,
+                tile == 0 ? UnitTable.NO_TILE : (tile - 1) / columns, hp, table.sp(i), moved);
+        }
+    }
+
+    private void index(Cursor cursor) {
+        while (cursor.position < bytes.length) {
+            int at = cursor.position;
+            byte opcode = cursor.readByte();
+            eventCount++;
+            switch (opcode) {
+                case BattleLog.ADD -> {
+                    if (addCount == addOffsets.length) {
+                        addOffsets = Arrays.copyOf(addOffsets, addCount * 2);
+                    }
+                    addOffsets[addCount++] = at;
+                    cursor.readVarint();
+                    cursor.readVarint();
+                    cursor.readVarint();
+                    cursor.readString();
+                }
+                case BattleLog.PLACE, BattleLog.EQUIP -> {
+                    cursor.readVarint();
+                    cursor.readVarint();
+                }
+                case BattleLog.HIT -> {
+                    cursor.readVarint();
+                    cursor.readVarint();
+                    cursor.readVarint();
+                }
+                case BattleLog.ACTED, BattleLog.READY -> cursor.readVarint();
+                case BattleLog.WEAPON -> {
+                    String id = cursor.readString();
+                    Weapon weapon = WeaponRegistry.standard().byId(id);
+                    if (weapon == null) {
+                        throw new IllegalArgumentException("Battle log names unknown weapon " + id);
+                    }
+                    weapons.add(weapon);
+                }
+                case BattleLog.TURN -> indexTurn(cursor, at);
+                default -> throw corrupt(at);
+            }
+        }
+    }
+
+    private void indexTurn(Cursor cursor, int at) {
+        int turn = cursor.readVarint();
+        if (turn != turns + 1) {
+            throw corrupt(at);
+        }
+        int keyframe = NO_KEYFRAME;
+        if (cursor.readByte() != 0) {
+            keyframe = cursor.position;
+            cursor.readLong();
+            int count = cursor.readVarint();
+            for (int i = 0; i < count; i++) {
+                cursor.readVarint();
+                cursor.readVarint();
+                cursor.readByte();
+                cursor.readVarint();
+            }
+        }
+        turns = turn;
+        if (turn == turnStarts.length) {
+            turnStarts = Arrays.copyOf(turnStarts, turn * 2);
+            keyframes = Arrays.copyOf(keyframes, turn * 2);
+        }
+        turnStarts[turn] = cursor.position;
+        keyframes[turn] = keyframe;
+    }
+
+    private static int unit(UnitTable table, int unit, int at) {
+        if (unit >= table.size()) {
+            throw corrupt(at);
+        }
+        return unit;
+    }
+
+    private Weapon weapon(int id, int at) {
+        if (id > weapons.size()) {
+            throw corrupt(at);
+        }
+        return weapons.get(id - 1);
+    }
+
+    private static IllegalArgumentException corrupt(int offset) {
+        return new IllegalArgumentException("Corrupt battle log at byte " + offset);
+    }
+
+    private static final class Cursor {
+        private final byte[] bytes;
+        private int position;
+
+        Cursor(byte[] bytes, int position) {
+            this.bytes = bytes;
+            this.position = position;
+        }
+
+        byte readByte() {
+            if (position >= bytes.length) {
+                throw corrupt(position);
+            }
+            return bytes[position++];
+        }
+
+        int readVarint() {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte next = readByte();
+                value |= (next & 0x7F) << shift;
+                if (next >= 0) {
+                    if (value < 0) {
+                        throw corrupt(position);
+                    }
+                    return value;
+                }
+            }
+            throw corrupt(position);
+        }
+
+        int readInt() {
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                value = (value << 8) | (readByte() & 0xFF);
+            }
+            return value;
+        }
+
+        long readLong() {
+            return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+        }
+
+        String readString() {
+            int length = readVarint();
+            if (length < 0 || length > bytes.length - position) {
+                throw corrupt(position);
+            }
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package dev.minimal.lwjgl.topdown;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Mid-battle save files: a full save of the level settings, battle phase and every unit of the {@link UnitTable},
+ * plus delta autosaves beside it holding only the units changed since that full save. Layout (little endian):
+ * <pre>
+ * int   magic 'SRSV', int version, byte kind (0 full, 1 delta)
+ * full:  int width, height, tileSize, float hazard, long seed, byte seedLocked, string levelFile ("" if generated)
+ *        byte phase, int unitCount, weapon dictionary
+ *        per unit: string id, byte faction, int maxHp, maxSp, then a unit state
+ * delta: int CRC-32 of the full save it extends, byte phase, int unitCount, weapon dictionary
+ *        int changedCount, per changed unit: int index, then a unit state
+ * unit state: int hp, sp, col, row ({@code -1} off the board), byte moved, short weapon (dictionary index or -1)
+ * weapon dictionary: short count, then one string per weapon id; strings are a short length plus UTF-8 bytes
+ * </pre>
+ * Units are written in table order, so squads come back in the same order and with the same board handles.
+ *
+ * <p>A delta is cumulative: each autosave rewrites it with every unit dirty since the full save, and loading applies
+ * only the newest one. Autosaves fall back to a full save when no full save exists yet, the roster changed, or more
+ * than half of the units are dirty.
+ */
+final class BattleSave {
+    private static final int MAGIC = 0x56535253;
+    private static final int VERSION = 1;
+    private static final byte FULL = 0;
+    private static final byte DELTA = 1;
+    private static final int UNIT_STATE_BYTES = 4 * Integer.BYTES + 1 + Short.BYTES;
+    private static final UnitFaction[] FACTIONS = UnitFaction.values();
+
+    /** Everything besides the units: how to rebuild the level, and the game's battle phase ordinal. */
+    record State(LevelSettings settings, Path levelFile, int phase) {
+    }
+
+    record Loaded(State state, UnitTable units) {
+    }
+
+    private final Path path;
+    private final Path deltaPath;
+    private boolean hasBase;
+    private int baseChecksum;
+    private int baseUnitCount;
+
+    BattleSave(Path path) {
+        this.path = path;
+        this.deltaPath = path.resolveSibling(path.getFileName() + ".delta");
+    }
+
+    Path path() {
+        return path;
+    }
+
+    boolean exists() {
+        return Files.isRegularFile(path);
+    }
+
+    /** Writes a full save, drops any older delta and starts tracking changes from here. */
+    void saveFull(State state, UnitTable units) throws IOException {
+        ByteBuffer buffer = encodeFull(state, units);
+        int checksum = checksum(buffer);
+        write(path, buffer);
+        Files.deleteIfExists(deltaPath);
+        units.clearDirty();
+        hasBase = true;
+        baseChecksum = checksum;
+        baseUnitCount = units.size();
+    }
+
+    /**
+     * Writes a full save without touching change tracking or this slot's base, for a manual save slot kept beside
+     * an autosave slot that tracks the same table.
+     */
+    void saveCopy(State state, UnitTable units) throws IOException {
+        write(path, encodeFull(state, units));
+        Files.deleteIfExists(deltaPath);
+    }
+
+    /** Makes the next {@link #autosave} a full save, as when the battle's units were replaced. */
+    void forgetBase() {
+        hasBase = false;
+    }
+
+    /** Saves the units changed since the last full save, or everything when a delta would not pay. */
+    void autosave(State state, UnitTable units) throws IOException {
+        if (!hasBase || units.size() != baseUnitCount || units.dirtyCount() * 2 > units.size()) {
+            saveFull(state, units);
+            return;
+        }
+        write(deltaPath, encodeDelta(state, units));
+    }
+
+    /**
+     * Reads the full save and the delta that extends it, if there is one, and continues saving from there. Unit tiles
+     * are only checked for shape here; see {@link #checkPlacements} for checking them against the level.
+     */
+    Loaded load() throws IOException {
+        ByteBuffer full = read(path);
+        int checksum = checksum(full);
+        try {
+            expectHeader(full, FULL);
+            LevelSettings settings = new LevelSettings(full.getInt(), full.getInt(), full.getInt(), full.getFloat(),
+                full.getLong(), full.get() != 0);
+            String levelFile = getString(full);
+            int phase = full.get();
+            int count = full.getInt();
+            List<Weapon> weapons = getWeapons(full);
+            if (count < 0 || (long) count * (UNIT_STATE_BYTES + 11) > full.remaining()) {
+                throw new IOException("Corrupt save header: " + path);
+            }
+            UnitTable units = new UnitTable(count);
+            for (int i = 0; i < count; i++) {
+                String id = getString(full);
+                int faction = full.get();
+                if (faction < 0 || faction >= FACTIONS.length) {
+                    throw new IOException("Corrupt unit " + i + " in " + path);
+                }
+                units.add(id, FACTIONS[faction], full.getInt(), full.getInt());
+                getUnitState(full, units, i, weapons);
+            }
+            units.clearDirty();
+            hasBase = true;
+            baseChecksum = checksum;
+            baseUnitCount = count;
+            if (Files.isRegularFile(deltaPath)) {
+                phase = applyDelta(read(deltaPath), units, phase);
+            }
+            return new Loaded(new State(settings, levelFile.isEmpty() ? null : Path.of(levelFile), phase), units);
+        } catch (BufferUnderflowException | IllegalArgumentException ex) {
+            throw new IOException("Corrupt save file " + path + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Checks that every placed unit of a loaded table stands on its own walkable tile of {@code level}, the level the
+     * save's {@link State} describes, so that a damaged or mismatched save is rejected before anything is placed.
+     */
+    static void checkPlacements(UnitTable units, Level level) throws IOException {
+        long[] taken = new long[Level.wordsFor(level.columns() * level.rows())];
+        for (int i = 0; i < units.size(); i++) {
+            if (!units.isPlaced(i)) {
+                continue;
+            }
+            int col = units.col(i);
+            int row = units.row(i);
+            if (!level.isWalkable(col, row)) {
+                throw new IOException("Unit " + units.id(i) + " stands outside the walkable level at ("
+                    + col + "," + row + ")");
+            }
+            int tile = row * level.columns() + col;
+            if ((taken[tile >>> 6] & (1L << tile)) != 0) {
+                throw new IOException("Units share the tile (" + col + "," + row + ")");
+            }
+            taken[tile >>> 6] |= 1L << tile;
+        }
+    }
+
+    /** Applies a delta written against this full save and returns its phase; a stale delta is ignored. */
+    private int applyDelta(ByteBuffer delta, UnitTable units, int phase) throws IOException {
+        expectHeader(delta, DELTA);
+        if (delta.getInt() != baseChecksum) {
+            return phase;
+        }
+        int deltaPhase = delta.get();
+        if (delta.getInt() != units.size()) {
+            throw new IOException("Delta save does not match its full save: " + deltaPath);
+        }
+        List<Weapon> weapons = getWeapons(delta);
+        int changed = delta.getInt();
+        if (changed < 0 || (long) changed * (Integer.BYTES + UNIT_STATE_BYTES) != delta.remaining()) {
+            throw new IOException("Corrupt delta save: " + deltaPath);
+        }
+        for (int i = 0; i < changed; i++) {
+            int index = delta.getInt();
+            if (index < 0 || index >= units.size()) {
+                throw new IOException("Corrupt delta save: " + deltaPath);
+            }
+            getUnitState(delta, units, index, weapons);
+        }
+        return deltaPhase;
+    }
+
+    private static ByteBuffer encodeFull(State state, UnitTable units) {
+        LevelSettings settings = state.settings();
+        byte[] levelFile = utf8(state.levelFile() == null ? "" : state.levelFile().toString());
+        Map<Weapon, Integer> dictionary = dictionary(units, false);
+        byte[][] ids = new byte[units.size()][];
+        int unitBytes = 0;
+        for (int i = 0; i < units.size(); i++) {
+            ids[i] = utf8(units.id(i));
+            unitBytes += Short.BYTES + ids[i].length + 1 + 2 * Integer.BYTES + UNIT_STATE_BYTES;
+        }
+        int size = 2 * Integer.BYTES + 1 + 3 * Integer.BYTES + Float.BYTES + Long.BYTES + 1
+            + Short.BYTES + levelFile.length + 1 + Integer.BYTES + dictionaryBytes(dictionary) + unitBytes;
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).put(FULL);
+        buffer.putInt(settings.width()).putInt(settings.height()).putInt(settings.tileSize());
+        buffer.putFloat(settings.hazardDensity()).putLong(settings.seed()).put((byte) (settings.lockSeed() ? 1 : 0));
+        putBytes(buffer, levelFile);
+        buffer.put((byte) state.phase()).putInt(units.size());
+        putDictionary(buffer, dictionary);
+        for (int i = 0; i < units.size(); i++) {
+            putBytes(buffer, ids[i]);
+            buffer.put((byte) units.faction(i).ordinal()).putInt(units.maxHp(i)).putInt(units.maxSp(i));
+            putUnitState(buffer, units, i, dictionary);
+        }
+        return buffer.flip();
+    }
+
+    private ByteBuffer encodeDelta(State state, UnitTable units) {
+        Map<Weapon, Integer> dictionary = dictionary(units, true);
+        int size = 2 * Integer.BYTES + 1 + Integer.BYTES + 1 + Integer.BYTES + dictionaryBytes(dictionary)
+            + Integer.BYTES + units.dirtyCount() * (Integer.BYTES + UNIT_STATE_BYTES);
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).put(DELTA);
+        buffer.putInt(baseChecksum).put((byte) state.phase()).putInt(units.size());
+        putDictionary(buffer, dictionary);
+        buffer.putInt(units.dirtyCount());
+        for (int i = 0; i < units.size(); i++) {
+            if (units.isDirty(i)) {
+                buffer.putInt(i);
+                putUnitState(buffer, units, i, dictionary);
+            }
+        }
+        return buffer.flip();
+    }
+
+    /** Numbers the weapons carried by all units, or by the dirty ones only, in first-seen order. */
+    private static Map<Weapon, Integer> dictionary(UnitTable units, boolean dirtyOnly) {
+        Map<Weapon, Integer> dictionary = new IdentityHashMap<>();
+        for (int i = 0; i < units.size(); i++) {
+            Weapon weapon = units.weapon(i);
+            if (weapon != null && (!dirtyOnly || units.isDirty(i))) {
+                dictionary.putIfAbsent(weapon, dictionary.size());
+            }
+        }
+        return dictionary;
+    }
+
+    private static int dictionaryBytes(Map<Weapon, Integer> dictionary) {
+        int bytes = Short.BYTES;
+        for (Weapon weapon : dictionary.keySet()) {
+            bytes += Short.BYTES + utf8(weapon.id()).length;
+        }
+        return bytes;
+    }
+
+    private static void putDictionary(ByteBuffer buffer, Map<Weapon, Integer> dictionary) {
+        Weapon[] ordered = new Weapon[dictionary.size()];
+        for (Map.Entry<Weapon, Integer> entry : dictionary.entrySet()) {
+            ordered[entry.getValue()] = entry.getKey();
+        }
+        buffer.putShort((short) ordered.length);
+        for (Weapon weapon : ordered) {
+            putBytes(buffer, utf8(weapon.id()));
+        }
+    }
+
+    private List<Weapon> getWeapons(ByteBuffer buffer) throws IOException {
+        int count = buffer.getShort();
+        List<Weapon> weapons = new ArrayList<>(Math.max(0, count));
+        for (int i = 0; i < count; i++) {
+            String id = getString(buffer);
+            Weapon weapon = WeaponRegistry.standard().byId(id);
+            if (weapon == null) {
+                throw new IOException("Save file names unknown weapon " + id + ": " + path);
+            }
+            weapons.add(weapon);
+        }
+        return weapons;
+    }
+
+    private static void putUnitState(ByteBuffer buffer, UnitTable units, int i, Map<Weapon, Integer> dictionary) {
+        Weapon weapon = units.weapon(i);
+        buffer.putInt(units.hp(i)).putInt(units.sp(i)).putInt(units.col(i)).putInt(units.row(i));
+        buffer.put((byte) (units.hasMoved(i) ? 1 : 0));
+        buffer.putShort((short) (weapon == null ? -1 : dictionary.get(weapon)));
+    }
+
+    private void getUnitState(ByteBuffer buffer, UnitTable units, int i, List<Weapon> weapons) throws IOException {
+        int hp = buffer.getInt();
+        int sp = buffer.getInt();
+        int col = buffer.getInt();
+        int row = buffer.getInt();
+        boolean moved = buffer.get() != 0;
+        int weapon = buffer.getShort();
+        if (weapon >= weapons.size() || (col < 0) != (row < 0)) {
+            throw new IOException("Corrupt unit " + i + " in " + path);
+        }
+        if (weapon >= 0) {
+            units.equip(i, weapons.get(weapon));
+        }
+        units.restore(i, col < 0 ? UnitTable.NO_TILE : col, row < 0 ? UnitTable.NO_TILE : row, hp, sp, moved);
+    }
+
+    private void expectHeader(ByteBuffer buffer, byte kind) throws IOException {
+        if (buffer.remaining() < 2 * Integer.BYTES + 1 || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a save file: " + path);
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported save file version " + version + ": " + path);
+        }
+        if (buffer.get() != kind) {
+            throw new IOException("Unexpected save file kind: " + path);
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("String too long to save: " + value.length() + " chars");
+        }
+        return bytes;
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Bad string length " + length);
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+            StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static int checksum(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate());
+        return (int) crc.getValue();
+    }
+
+    private static ByteBuffer read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Save file too large: " + file);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the buffer is full or the file ends.
+            }
+            return buffer.flip();
+        }
+    }
+
+    /** Writes beside the target and moves it into place, so a crash mid-save never leaves a torn file. */
+    private static void write(Path file, ByteBuffer buffer) throws IOException {
+        Path staging = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(staging, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        Files.move(staging, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
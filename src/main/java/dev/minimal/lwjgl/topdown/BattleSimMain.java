@@ -0,0 +1,143 @@
+package dev.minimal.lwjgl.topdown;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Headless battle runs for AI and weapon tuning: plays {@code count} battles over consecutive seeds with
+ * {@link BattleSimulator} and prints throughput, outcome rates and turn statistics. Never touches GLFW.
+ *
+ * <p>Accepts the game's board flags ({@code --width}, {@code --height}, {@code --tilesize}, {@code --hazard},
+ * {@code --seed}) plus {@code --count}, {@code --threads}, {@code --players}, {@code --enemies}, {@code --range},
+ * {@code --turns} (turn limit), {@code --enemy=search|flow}, {@code --depth} (search plies per enemy action),
+ * {@code --verbose=true} for one CSV line per battle and {@code --replay=true} to replay every battle's
+ * {@link BattleLog} afterwards, checking it against its keyframes and timing the replay.
+ */
+public final class BattleSimMain {
+    private static final int DEFAULT_COUNT = 1000;
+    private static final int DEFAULT_SQUAD_SIZE = 4;
+    private static final int DEFAULT_RANGE = 4;
+    private static final int DEFAULT_TURN_LIMIT = 60;
+    private static final int DEFAULT_DEPTH = 2;
+
+    private BattleSimMain() {
+    }
+
+    public static void main(String[] args) {
+        GameConfig config = GameConfig.fromArgs(args);
+        Map<String, String> options = GameConfig.parseOptions(args);
+        int count = GameConfig.parsePositiveInt(options.getOrDefault("count", ""), DEFAULT_COUNT);
+        int threads = GameConfig.parsePositiveInt(options.getOrDefault("threads", ""),
+            Runtime.getRuntime().availableProcessors());
+        BattleSimulator.EnemyPolicy policy = "flow".equalsIgnoreCase(options.get("enemy"))
+            ? BattleSimulator.EnemyPolicy.FLOW
+            : BattleSimulator.EnemyPolicy.SEARCH;
+        boolean verbose = Boolean.parseBoolean(options.get("verbose"));
+        LevelSettings settings = config.toLevelSettings();
+        BattleSimulator.Config simulation = new BattleSimulator.Config(settings,
+            GameConfig.parsePositiveInt(options.getOrDefault("players", ""), DEFAULT_SQUAD_SIZE),
+            GameConfig.parsePositiveInt(options.getOrDefault("enemies", ""), DEFAULT_SQUAD_SIZE),
+            GameConfig.parsePositiveInt(options.getOrDefault("range", ""), DEFAULT_RANGE),
+            GameConfig.parsePositiveInt(options.getOrDefault("turns", ""), DEFAULT_TURN_LIMIT),
+            policy,
+            GameConfig.parsePositiveInt(options.getOrDefault("depth", ""), DEFAULT_DEPTH));
+
+        System.out.printf(Locale.ROOT, "Simulating %d battles (%dx%d, %d vs %d, %s enemy%s) from seed %d on %d threads%n",
+            count, settings.width(), settings.height(), simulation.playerCount(), simulation.enemyCount(),
+            policy.name().toLowerCase(Locale.ROOT),
+            policy == BattleSimulator.EnemyPolicy.SEARCH ? " depth " + simulation.searchDepth() : "",
+            settings.seed(), threads);
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        List<BattleSimulator.Battle> battles;
+        long batchStart = System.nanoTime();
+        try {
+            battles = new BattleSimulator(simulation).runAll(settings.seed(), count, pool);
+        } finally {
+            pool.shutdownNow();
+        }
+        long batchNanos = System.nanoTime() - batchStart;
+
+        if (verbose) {
+            System.out.println("seed,outcome,turns,battle_ms");
+            for (BattleSimulator.Battle battle : battles) {
+                System.out.printf(Locale.ROOT, "%d,%s,%d,%.3f%n", battle.seed(), battle.outcome(), battle.turns(),
+                    battle.nanos() / 1e6);
+            }
+        }
+        printSummary(battles, batchNanos);
+        if (Boolean.parseBoolean(options.get("replay"))) {
+            printReplay(battles);
+        }
+    }
+
+    private static void printReplay(List<BattleSimulator.Battle> battles) {
+        long bytes = 0;
+        long events = 0;
+        int desyncs = 0;
+        long start = System.nanoTime();
+        for (BattleSimulator.Battle battle : battles) {
+            BattleReplay replay = new BattleReplay(battle.log());
+            bytes += battle.log().length;
+            events += replay.eventCount();
+            if (replay.verify() >= 0) {
+                desyncs++;
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf(Locale.ROOT, "Replay: %d logs, %.1f KB, %d events in %.3f s (%.1fM events/sec), %d desyncs%n",
+            battles.size(), bytes / 1024.0, events, seconds, events / seconds / 1e6, desyncs);
+    }
+
+    private static void printSummary(List<BattleSimulator.Battle> battles, long batchNanos) {
+        if (battles.isEmpty()) {
+            return;
+        }
+        int total = battles.size();
+        Map<BattleSimulator.Outcome, Integer> outcomes = new EnumMap<>(BattleSimulator.Outcome.class);
+        long[] turns = new long[total];
+        int roundCount = 0;
+        int playerWins = 0;
+        for (int i = 0; i < total; i++) {
+            BattleSimulator.Battle battle = battles.get(i);
+            outcomes.merge(battle.outcome(), 1, Integer::sum);
+            turns[i] = battle.turns();
+            roundCount += battle.roundNanos().length;
+            if (battle.outcome().playerWon()) {
+                playerWins++;
+            }
+        }
+        long[] rounds = new long[roundCount];
+        int next = 0;
+        for (BattleSimulator.Battle battle : battles) {
+            System.arraycopy(battle.roundNanos(), 0, rounds, next, battle.roundNanos().length);
+            next += battle.roundNanos().length;
+        }
+        Arrays.sort(turns);
+        Arrays.sort(rounds);
+
+        double seconds = batchNanos / 1e9;
+        System.out.printf(Locale.ROOT, "Battles: %d in %.2f s, %.1f battles/sec%n", total, seconds, total / seconds);
+        System.out.printf(Locale.ROOT, "Player win rate %.1f%%, enemy win rate %.1f%%%n",
+            100.0 * playerWins / total, 100.0 * outcomes.getOrDefault(BattleSimulator.Outcome.PLAYERS_DEFEATED, 0) / total);
+        for (BattleSimulator.Outcome outcome : BattleSimulator.Outcome.values()) {
+            int seen = outcomes.getOrDefault(outcome, 0);
+            System.out.printf(Locale.ROOT, "  %-17s %6d (%.1f%%)%n", outcome, seen, 100.0 * seen / total);
+        }
+        System.out.printf(Locale.ROOT, "Turns per battle: p10 %d, p50 %d, p90 %d, max %d%n",
+            percentile(turns, 0.10), percentile(turns, 0.50), percentile(turns, 0.90), turns[total - 1]);
+        if (roundCount > 0) {
+            System.out.printf(Locale.ROOT, "Round time: p50 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                percentile(rounds, 0.50) / 1e6, percentile(rounds, 0.99) / 1e6, rounds[roundCount - 1] / 1e6);
+        }
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
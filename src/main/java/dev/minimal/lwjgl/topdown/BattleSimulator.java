@@ -0,0 +1,246 @@
+package dev.minimal.lwjgl.topdown;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Plays whole battles without a window: generates the level for a seed, deploys both squads on their spawn zones and
+ * alternates player and enemy turns until a player unit reaches the exit, one side is wiped out, or the turn limit
+ * runs out. Everything is deterministic per seed, so a tuning change can be measured on the same battles.
+ *
+ * <p>The player side follows a fixed scripted policy: strike the weakest enemy in reach, from the reachable tile
+ * closest to the exit, otherwise walk toward the exit. The enemy side uses the game's {@link TacticalSearch} at a
+ * fixed depth, or the {@link EnemyTurnPlanner} flow field followed by every enemy casting its best skill through the
+ * {@link CombatEngine}, so it is the policy under test. The flow policy is the game's large-squad turn: it runs
+ * {@link EnemyTurnPlanner#execute}, which makes the same moves as the {@link EnemyTurnPlanner#executeParallel} the
+ * game calls, on the battle's own thread.
+ *
+ * <p>{@link #runAll} spreads battles over a pool, one battle per task; each battle runs on a single thread.
+ */
+final class BattleSimulator {
+    enum EnemyPolicy {
+        SEARCH,
+        FLOW
+    }
+
+    enum Outcome {
+        EXIT_REACHED,
+        ENEMIES_DEFEATED,
+        PLAYERS_DEFEATED,
+        TURN_LIMIT;
+
+        boolean playerWon() {
+            return this == EXIT_REACHED || this == ENEMIES_DEFEATED;
+        }
+    }
+
+    /**
+     * @param searchDepth plies per enemy action under {@link EnemyPolicy#SEARCH}
+     * @param maxTurns    rounds (a player turn and an enemy turn) before the battle counts as undecided
+     */
+    record Config(LevelSettings level, int playerCount, int enemyCount, int movementRange, int maxTurns,
+                  EnemyPolicy enemyPolicy, int searchDepth) {
+        Config {
+            Objects.requireNonNull(level, "level");
+            Objects.requireNonNull(enemyPolicy, "enemyPolicy");
+            if (playerCount <= 0 || enemyCount <= 0 || movementRange <= 0 || maxTurns <= 0 || searchDepth <= 0) {
+                throw new IllegalArgumentException("Squad sizes, range, turn limit and search depth must be positive");
+            }
+        }
+    }
+
+    /**
+     * One finished battle. {@code roundNanos} holds the wall-clock time of each played round, {@code log} the
+     * battle's {@link BattleLog} with one turn per round.
+     */
+    record Battle(long seed, Outcome outcome, int turns, long nanos, long[] roundNanos, byte[] log) {
+    }
+
+    private final Config config;
+    private final ThreadLocal<TranspositionTable> tables =
+        ThreadLocal.withInitial(() -> new TranspositionTable(TacticalSearch.TABLE_LOG2_ENTRIES));
+    private final ThreadLocal<MovementPreview> previews = ThreadLocal.withInitial(MovementPreview::new);
+
+    BattleSimulator(Config config) {
+        this.config = Objects.requireNonNull(config, "config");
+    }
+
+    /** Plays {@code count} battles over consecutive seeds from {@code firstSeed}; results are in seed order. */
+    List<Battle> runAll(long firstSeed, int count, ForkJoinPool pool) {
+        Battle[] battles = new Battle[count];
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            tasks.add(pool.submit(() -> {
+                battles[index] = run(firstSeed + index);
+            }));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+        return List.of(battles);
+    }
+
+    Battle run(long seed) {
+        long start = System.nanoTime();
+        LevelSettings settings = config.level();
+        Level level = new LevelGenerator(settings.width(), settings.height(), settings.tileSize(),
+            settings.hazardDensity(), seed).generate();
+        UnitTable unitTable = new UnitTable(config.playerCount() + config.enemyCount());
+        BattleLog log = new BattleLog(level.columns());
+        unitTable.recordTo(log);
+        Squad playerSquad = Squad.create(unitTable, UnitFaction.PLAYER, config.playerCount());
+        Squad enemySquad = Squad.create(unitTable, UnitFaction.ENEMY, config.enemyCount());
+        BoardOccupancy board = new BoardOccupancy(level.columns(), level.rows());
+        for (Unit unit : playerSquad.units()) {
+            unit.attachTo(board);
+        }
+        for (Unit unit : enemySquad.units()) {
+            unit.attachTo(board);
+        }
+        List<GridPosition> playerTiles = level.playerSpawnTiles();
+        playerSquad.deploy(level, playerTiles.isEmpty() ? List.of(level.startPosition()) : playerTiles, board);
+        List<GridPosition> enemyTiles = level.enemySpawnTiles();
+        enemySquad.deploy(level, enemyTiles.isEmpty() ? List.of(level.exitPosition()) : enemyTiles, board);
+
+        List<Unit> players = playerSquad.units();
+        List<Unit> enemies = enemySquad.units();
+        int[] exitDistances = LevelAnalysis.floodFrom(level, level.exitPosition());
+        TacticalSearch search = null;
+        if (config.enemyPolicy() == EnemyPolicy.SEARCH) {
+            TranspositionTable table = tables.get();
+            table.clear();
+            search = new TacticalSearch(level, config.movementRange(), null, table);
+        }
+        EnemyTurnPlanner planner = null;
+        CombatEngine combat = null;
+        CombatEngine.Hits hits = new CombatEngine.Hits();
+        if (config.enemyPolicy() == EnemyPolicy.FLOW) {
+            planner = new EnemyTurnPlanner();
+            combat = new CombatEngine(level, board, unitTable, WeaponRegistry.standard().stencils());
+        }
+
+        long[] roundNanos = new long[config.maxTurns()];
+        Outcome outcome = Outcome.TURN_LIMIT;
+        int turn = 0;
+        while (turn < config.maxTurns()) {
+            long roundStart = System.nanoTime();
+            playPlayerTurn(level, board, players, enemies, exitDistances);
+            roundNanos[turn++] = System.nanoTime() - roundStart;
+            if (anyOn(players, level.exitPosition())) {
+                outcome = Outcome.EXIT_REACHED;
+                break;
+            }
+            if (!anyPlaced(enemies)) {
+                outcome = Outcome.ENEMIES_DEFEATED;
+                break;
+            }
+            if (search != null) {
+                search.playTurn(players, enemies, UnitFaction.ENEMY, Long.MAX_VALUE, config.searchDepth());
+            } else {
+                // Same moves as the game's executeParallel; battles already fill the pool, so plan on this thread.
+                planner.execute(level, board, enemies, players, config.movementRange());
+                hits.clear();
+                combat.volley(enemies, hits);
+            }
+            roundNanos[turn - 1] = System.nanoTime() - roundStart;
+            if (!anyPlaced(players)) {
+                outcome = Outcome.PLAYERS_DEFEATED;
+                break;
+            }
+            resetMovedFlags(players);
+            resetMovedFlags(enemies);
+            log.endTurn();
+        }
+        long[] played = new long[turn];
+        System.arraycopy(roundNanos, 0, played, 0, turn);
+        return new Battle(seed, outcome, turn, System.nanoTime() - start, played, log.toByteArray());
+    }
+
+    /** Scripted player side: every unit strikes the weakest enemy it can reach, or else heads for the exit. */
+    private void playPlayerTurn(Level level, BoardOccupancy board, List<Unit> players, List<Unit> enemies,
+                                int[] exitDistances) {
+        MovementPreview preview = previews.get();
+        int columns = level.columns();
+        while (true) {
+            BattleState state = BattleState.capture(level, players, enemies, UnitFaction.PLAYER);
+            int unit = state.nextActor();
+            if (unit < 0 || state.isOver()) {
+                return;
+            }
+            Unit actor = players.get(unit);
+            if (!preview.calculate(level, board, actor, config.movementRange())) {
+                actor.setMovedThisTurn(true);
+                continue;
+            }
+            int bestTile = -1;
+            int bestTarget = BattleState.NO_TARGET;
+            for (int i = 0; i < preview.reachableCount(); i++) {
+                int tile = preview.reachableRow(i) * columns + preview.reachableCol(i);
+                int target = weakestInReach(state, unit, tile);
+                if (isBetter(state, exitDistances, tile, target, bestTile, bestTarget)) {
+                    bestTile = tile;
+                    bestTarget = target;
+                }
+            }
+            state.applyTo(BattleState.action(unit, bestTile, bestTarget), players, enemies);
+        }
+    }
+
+    private static int weakestInReach(BattleState state, int unit, int tile) {
+        int weakest = BattleState.NO_TARGET;
+        for (int target = state.playerCount(); target < state.unitCount(); target++) {
+            if (state.inReach(unit, tile, target) && (weakest == BattleState.NO_TARGET
+                || state.hp(target) < state.hp(weakest))) {
+                weakest = target;
+            }
+        }
+        return weakest;
+    }
+
+    /** Striking beats not striking, a weaker target beats a stronger one, then the tile closer to the exit wins. */
+    private static boolean isBetter(BattleState state, int[] exitDistances, int tile, int target, int bestTile,
+                                    int bestTarget) {
+        if (bestTile < 0) {
+            return true;
+        }
+        if ((target == BattleState.NO_TARGET) != (bestTarget == BattleState.NO_TARGET)) {
+            return target != BattleState.NO_TARGET;
+        }
+        if (target != BattleState.NO_TARGET && state.hp(target) != state.hp(bestTarget)) {
+            return state.hp(target) < state.hp(bestTarget);
+        }
+        return exitRank(exitDistances, tile) < exitRank(exitDistances, bestTile);
+    }
+
+    private static int exitRank(int[] exitDistances, int tile) {
+        return exitDistances[tile] < 0 ? Integer.MAX_VALUE : exitDistances[tile];
+    }
+
+    private static boolean anyOn(List<Unit> units, GridPosition tile) {
+        for (Unit unit : units) {
+            if (unit.col() == tile.col() && unit.row() == tile.row()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean anyPlaced(List<Unit> units) {
+        for (Unit unit : units) {
+            if (unit.isPlaced()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void resetMovedFlags(List<Unit> units) {
+        for (Unit unit : units) {
+            unit.setMovedThisTurn(false);
+        }
+    }
+}
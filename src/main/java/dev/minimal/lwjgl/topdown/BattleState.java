@@ -0,0 +1,422 @@
+package dev.minimal.lwjgl.topdown;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable snapshot of a battle packed into primitive arrays, for search. Units are numbered players first, then
+ * enemies, in squad order; per unit it holds the tile ({@code row * columns + col}, or {@link #NO_TILE} once placed off
+ * the board or defeated), hit points, skill points and a moved bit. Weapon damage, defense, tag and reach never change
+ * during a battle, so those arrays are shared by every state derived from the same capture.
+ *
+ * <p>An action moves the next unit of the side to move, in squad order, and optionally strikes one opponent within
+ * the unit's reach for the {@link CombatEngine} damage of the two weapons. Reach is the engine's: an opponent is in
+ * reach when some skill of the weapon covers its tile in some facing and no wall blocks the line of sight. When every
+ * living unit of the side has acted, the other side moves and all moved bits clear. Actions are encoded as
+ * {@code long}s by {@link #action(int, int, int)}.
+ */
+final class BattleState {
+    static final int NO_TILE = -1;
+    static final int NO_TARGET = -1;
+
+    private final Level level;
+    private final int columns;
+    private final int playerCount;
+    private final int[] tiles;
+    private final int[] hp;
+    private final int[] sp;
+    private final long[] moved;
+    private final int[] damage;
+    private final int[] defense;
+    private final WeaponTag[] tags;
+    /** Largest Manhattan distance of any offset in {@link #coverage}, a cheap bound before the stencil lookup. */
+    private final int[] reach;
+    /** Per unit: {@link WeaponRegistry#coverage(Weapon)} of its weapon, or {@code null} without one. */
+    private final SkillStencils.Stencil[] coverage;
+    /**
+     * Which unit stands where: a linear-probing table of {@code (tile, unit)} pairs, {@link #NO_TILE} marking empty
+     * slots, sized to the unit count rather than the board so {@link #apply} can copy it as cheaply as {@link #tiles}.
+     */
+    private final int[] occupancy;
+    private final UnitFaction sideToMove;
+    private final long key;
+
+    private BattleState(Level level, int playerCount, int[] tiles, int[] hp, int[] sp, long[] moved, int[] damage,
+                        int[] defense, WeaponTag[] tags, int[] reach, SkillStencils.Stencil[] coverage,
+                        int[] occupancy, UnitFaction sideToMove, long key) {
+        this.level = level;
+        this.columns = level.columns();
+        this.playerCount = playerCount;
+        this.tiles = tiles;
+        this.hp = hp;
+        this.sp = sp;
+        this.moved = moved;
+        this.damage = damage;
+        this.defense = defense;
+        this.tags = tags;
+        this.reach = reach;
+        this.coverage = coverage;
+        this.occupancy = occupancy;
+        this.sideToMove = sideToMove;
+        this.key = key;
+    }
+
+    /** Packs both squads. Moved flags are taken from the units, so a half-finished turn carries over. */
+    static BattleState capture(Level level, List<Unit> players, List<Unit> enemies, UnitFaction sideToMove) {
+        int count = players.size() + enemies.size();
+        int[] tiles = new int[count];
+        int[] hp = new int[count];
+        int[] sp = new int[count];
+        long[] moved = new long[Level.wordsFor(count)];
+        int[] damage = new int[count];
+        int[] defense = new int[count];
+        WeaponTag[] tags = new WeaponTag[count];
+        int[] reach = new int[count];
+        SkillStencils.Stencil[] coverage = new SkillStencils.Stencil[count];
+        WeaponRegistry registry = WeaponRegistry.standard();
+        long key = Zobrist.sideToMove(sideToMove);
+        for (int i = 0; i < count; i++) {
+            Unit unit = i < players.size() ? players.get(i) : enemies.get(i - players.size());
+            tiles[i] = unit.isPlaced() && !unit.isDefeated()
+                ? unit.row() * level.columns() + unit.col()
+                : NO_TILE;
+            hp[i] = unit.hp();
+            sp[i] = unit.sp();
+            if (unit.hasMovedThisTurn()) {
+                moved[i >>> 6] |= 1L << i;
+                key ^= Zobrist.unitMoved(i);
+            }
+            key ^= Zobrist.unitTile(i, tiles[i]) ^ Zobrist.unitHp(i, hp[i]);
+            Weapon weapon = unit.weapon();
+            damage[i] = weapon == null ? 0 : weapon.damage();
+            defense[i] = weapon == null ? 0 : weapon.defense();
+            tags[i] = weapon == null ? null : weapon.tag();
+            if (weapon != null) {
+                reach[i] = registry.reach(weapon);
+                coverage[i] = registry.coverage(weapon);
+            }
+        }
+        int[] occupancy = new int[2 * Math.max(4, Integer.highestOneBit(Math.max(1, count)) * 4)];
+        Arrays.fill(occupancy, NO_TILE);
+        for (int i = 0; i < count; i++) {
+            if (tiles[i] != NO_TILE) {
+                occupy(occupancy, tiles[i], i);
+            }
+        }
+        return new BattleState(level, players.size(), tiles, hp, sp, moved, damage, defense, tags, reach, coverage,
+            occupancy, sideToMove, key);
+    }
+
+    static long action(int unit, int tile, int target) {
+        return ((long) unit << 48) | ((long) (target + 1) << 32) | (tile & 0xFFFFFFFFL);
+    }
+
+    static int actionUnit(long action) {
+        return (int) (action >>> 48);
+    }
+
+    static int actionTile(long action) {
+        return (int) action;
+    }
+
+    static int actionTarget(long action) {
+        return (int) ((action >>> 32) & 0xFFFF) - 1;
+    }
+
+    int columns() {
+        return columns;
+    }
+
+    int unitCount() {
+        return tiles.length;
+    }
+
+    int playerCount() {
+        return playerCount;
+    }
+
+    UnitFaction sideToMove() {
+        return sideToMove;
+    }
+
+    /**
+     * {@link Zobrist} key of the position: tiles, hit points, moved bits and side to move. Equal states have equal
+     * keys, so differing keys prove two states differ without comparing the arrays.
+     */
+    long key() {
+        return key;
+    }
+
+    UnitFaction factionOf(int unit) {
+        return unit < playerCount ? UnitFaction.PLAYER : UnitFaction.ENEMY;
+    }
+
+    int tileOf(int unit) {
+        return tiles[unit];
+    }
+
+    int hp(int unit) {
+        return hp[unit];
+    }
+
+    int sp(int unit) {
+        return sp[unit];
+    }
+
+    int reach(int unit) {
+        return reach[unit];
+    }
+
+    boolean isAlive(int unit) {
+        return tiles[unit] != NO_TILE;
+    }
+
+    boolean hasMoved(int unit) {
+        return (moved[unit >>> 6] & (1L << unit)) != 0;
+    }
+
+    /** The battle is decided once either side has no unit left on the board. */
+    boolean isOver() {
+        return aliveCount(UnitFaction.PLAYER) == 0 || aliveCount(UnitFaction.ENEMY) == 0;
+    }
+
+    int aliveCount(UnitFaction faction) {
+        int alive = 0;
+        for (int i = firstOf(faction); i < endOf(faction); i++) {
+            if (tiles[i] != NO_TILE) {
+                alive++;
+            }
+        }
+        return alive;
+    }
+
+    /** Next unit of the side to move that has not acted, or {@code -1} when none is left. */
+    int nextActor() {
+        for (int i = firstOf(sideToMove); i < endOf(sideToMove); i++) {
+            if (tiles[i] != NO_TILE && !hasMoved(i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Unit standing on {@code tile}, or {@code -1}. */
+    int unitOn(int tile) {
+        int mask = occupancy.length / 2 - 1;
+        for (int slot = home(tile, mask); occupancy[2 * slot] != NO_TILE; slot = (slot + 1) & mask) {
+            if (occupancy[2 * slot] == tile) {
+                return occupancy[2 * slot + 1];
+            }
+        }
+        return -1;
+    }
+
+    int strikeDamage(int attacker, int target) {
+        return CombatEngine.damage(damage[attacker], tags[attacker], defense[target], tags[target]);
+    }
+
+    /** Whether {@code attacker} standing on {@code fromTile} can hit {@code target}, by the rules of the class doc. */
+    boolean inReach(int attacker, int fromTile, int target) {
+        int targetTile = tiles[target];
+        if (targetTile == NO_TILE || factionOf(attacker) == factionOf(target)) {
+            return false;
+        }
+        int fromCol = fromTile % columns;
+        int fromRow = fromTile / columns;
+        int dx = targetTile % columns - fromCol;
+        int dy = targetTile / columns - fromRow;
+        if (Math.abs(dx) + Math.abs(dy) > reach[attacker]) {
+            return false;
+        }
+        SkillStencils.Stencil stencil = coverage[attacker];
+        int i = stencil.indexOf(dx, dy);
+        return i >= 0 && stencil.hits(level, fromCol, fromRow, i);
+    }
+
+    /** State after {@code action}. The action is trusted to come from a move generator for this state. */
+    BattleState apply(long action) {
+        int unit = actionUnit(action);
+        int target = actionTarget(action);
+        int[] nextTiles = tiles.clone();
+        int[] nextHp = hp;
+        int[] nextOccupancy = occupancy;
+        long nextKey = key ^ Zobrist.unitTile(unit, tiles[unit]) ^ Zobrist.unitTile(unit, actionTile(action));
+        if (actionTile(action) != tiles[unit]) {
+            nextOccupancy = occupancy.clone();
+            vacate(nextOccupancy, tiles[unit]);
+            occupy(nextOccupancy, actionTile(action), unit);
+        }
+        nextTiles[unit] = actionTile(action);
+        if (target != NO_TARGET) {
+            nextHp = hp.clone();
+            nextHp[target] = Math.max(0, nextHp[target] - strikeDamage(unit, target));
+            nextKey ^= Zobrist.unitHp(target, hp[target]) ^ Zobrist.unitHp(target, nextHp[target]);
+            if (nextHp[target] == 0) {
+                nextKey ^= Zobrist.unitTile(target, nextTiles[target]);
+                if (nextOccupancy == occupancy) {
+                    nextOccupancy = occupancy.clone();
+                }
+                vacate(nextOccupancy, nextTiles[target]);
+                nextTiles[target] = NO_TILE;
+            }
+        }
+        long[] nextMoved = moved.clone();
+        nextMoved[unit >>> 6] |= 1L << unit;
+        nextKey ^= Zobrist.unitMoved(unit);
+
+        UnitFaction nextSide = sideToMove;
+        if (!hasUnmoved(nextTiles, nextMoved, sideToMove)) {
+            nextSide = opponentOf(sideToMove);
+            nextKey ^= clearedKey(nextMoved) ^ Zobrist.ENEMY_TO_MOVE;
+            Arrays.fill(nextMoved, 0L);
+        }
+        return new BattleState(level, playerCount, nextTiles, nextHp, sp, nextMoved, damage, defense, tags, reach,
+            coverage, nextOccupancy, nextSide, nextKey);
+    }
+
+    /**
+     * Plays {@code action} on the live units this state was captured from: moves the actor, applies the strike,
+     * takes a defeated target off the board and marks the actor as moved. Side switching is left to the caller.
+     */
+    void applyTo(long action, List<Unit> players, List<Unit> enemies) {
+        int unit = actionUnit(action);
+        int tile = actionTile(action);
+        int target = actionTarget(action);
+        Unit actor = unitAt(unit, players, enemies);
+        if (tile != tiles[unit]) {
+            actor.placeAt(tile % columns, tile / columns);
+        }
+        if (target != NO_TARGET) {
+            Unit victim = unitAt(target, players, enemies);
+            victim.applyHit(actor, strikeDamage(unit, target));
+            if (victim.isDefeated()) {
+                victim.clearPlacement();
+            }
+        }
+        actor.setMovedThisTurn(true);
+    }
+
+    private Unit unitAt(int unit, List<Unit> players, List<Unit> enemies) {
+        return unit < playerCount ? players.get(unit) : enemies.get(unit - playerCount);
+    }
+
+    /** Hands the move to the other side, clearing moved bits; used when the side to move has nobody left to act. */
+    BattleState passTurn() {
+        return new BattleState(level, playerCount, tiles, hp, sp, new long[moved.length], damage, defense, tags,
+            reach, coverage, occupancy, opponentOf(sideToMove), key ^ clearedKey(moved) ^ Zobrist.ENEMY_TO_MOVE);
+    }
+
+    private static int home(int tile, int mask) {
+        int hash = tile * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static void occupy(int[] table, int tile, int unit) {
+        int mask = table.length / 2 - 1;
+        int slot = home(tile, mask);
+        while (table[2 * slot] != NO_TILE && table[2 * slot] != tile) {
+            slot = (slot + 1) & mask;
+        }
+        table[2 * slot] = tile;
+        table[2 * slot + 1] = unit;
+    }
+
+    /** Removes {@code tile}, shifting later entries of its probe run back so lookups never stop at the hole. */
+    private static void vacate(int[] table, int tile) {
+        int mask = table.length / 2 - 1;
+        int slot = home(tile, mask);
+        while (table[2 * slot] != tile) {
+            if (table[2 * slot] == NO_TILE) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            int moving = table[2 * next];
+            if (moving == NO_TILE) {
+                break;
+            }
+            if (((next - home(moving, mask)) & mask) >= ((next - slot) & mask)) {
+                table[2 * slot] = moving;
+                table[2 * slot + 1] = table[2 * next + 1];
+                slot = next;
+            }
+        }
+        table[2 * slot] = NO_TILE;
+    }
+
+    /** XOR of the moved keys of every bit set in {@code movedBits}, i.e. what clearing them removes from the key. */
+    private static long clearedKey(long[] movedBits) {
+        long cleared = 0L;
+        for (int word = 0; word < movedBits.length; word++) {
+            for (long bits = movedBits[word]; bits != 0; bits &= bits - 1) {
+                cleared ^= Zobrist.unitMoved((word << 6) + Long.numberOfTrailingZeros(bits));
+            }
+        }
+        return cleared;
+    }
+
+    private static UnitFaction opponentOf(UnitFaction faction) {
+        return faction == UnitFaction.PLAYER ? UnitFaction.ENEMY : UnitFaction.PLAYER;
+    }
+
+    /**
+     * Static score from the enemy side's point of view: hit points and survivors dominate, and the enemy, as the
+     * aggressor, also gains for closing in on the nearest player.
+     */
+    int enemyScore() {
+        int score = 0;
+        for (int i = 0; i < tiles.length; i++) {
+            int sign = i < playerCount ? -1 : 1;
+            if (tiles[i] != NO_TILE) {
+                score += sign * (64 + 4 * hp[i]);
+            }
+        }
+        for (int i = playerCount; i < tiles.length; i++) {
+            if (tiles[i] != NO_TILE) {
+                score -= nearestOpponentDistance(i, tiles[i]);
+            }
+        }
+        return score;
+    }
+
+    /** Static score for the side to move, as negamax expects. */
+    int evaluate() {
+        return sideToMove == UnitFaction.ENEMY ? enemyScore() : -enemyScore();
+    }
+
+    /** Manhattan distance from {@code tile} to the closest living opponent of {@code unit}, or 0 when none is left. */
+    int nearestOpponentDistance(int unit, int tile) {
+        UnitFaction opponents = opponentOf(factionOf(unit));
+        int col = tile % columns;
+        int row = tile / columns;
+        int best = 0;
+        for (int i = firstOf(opponents); i < endOf(opponents); i++) {
+            if (tiles[i] == NO_TILE) {
+                continue;
+            }
+            int distance = Math.abs(col - tiles[i] % columns) + Math.abs(row - tiles[i] / columns);
+            best = best == 0 ? distance : Math.min(best, distance);
+        }
+        return best;
+    }
+
+    private boolean hasUnmoved(int[] unitTiles, long[] movedBits, UnitFaction faction) {
+        for (int i = firstOf(faction); i < endOf(faction); i++) {
+            if (unitTiles[i] != NO_TILE && (movedBits[i >>> 6] & (1L << i)) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int firstOf(UnitFaction faction) {
+        return faction == UnitFaction.PLAYER ? 0 : playerCount;
+    }
+
+    private int endOf(UnitFaction faction) {
+        return faction == UnitFaction.PLAYER ? playerCount : tiles.length;
+    }
+}
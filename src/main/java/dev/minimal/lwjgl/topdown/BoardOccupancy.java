@@ -0,0 +1,211 @@
+package dev.minimal.lwjgl.topdown;
+
+import java.util.Arrays;
+
+/**
+ * Which unit stands on which tile of one board. Units registered through {@link Unit#attachTo(BoardOccupancy)} get a
+ * dense handle and report every placement change, which keeps a per-tile handle index and a matching occupancy
+ * bitset current, so "who stands here" and "is this tile blocked" are single array reads.
+ *
+ * <p>Each change also bumps a version counter and lands in a short log of touched tiles, so anything derived from
+ * unit positions can tell whether it is stale by replaying the tiles changed since the version it was built at.
+ * A tile holds at most one unit; placing a unit on another unit's tile is rejected.
+ *
+ * <p>Units also report hit point and moved-flag changes, which together with placements keep a {@link Zobrist} key
+ * of the board's units current; see {@link #positionKey()}.
+ */
+final class BoardOccupancy implements MovementPreview.Obstacles {
+    /** Versions kept in the change log; older consumers simply rebuild. Must be a power of two. */
+    private static final int LOG_CAPACITY = 1024;
+    private static final int EMPTY = -1;
+
+    private final int columns;
+    private final int rows;
+    /** Handle of the unit on each tile, indexed {@code row * columns + col}, or {@link #EMPTY}. */
+    private final int[] handles;
+    private final long[] occupied;
+    private final int[] changedTiles = new int[LOG_CAPACITY];
+    private Unit[] units = new Unit[16];
+    private int unitCount;
+    private long version;
+    private long positionKey;
+
+    BoardOccupancy(int columns, int rows) {
+        if (columns <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("Board dimensions must be positive");
+        }
+        this.columns = columns;
+        this.rows = rows;
+        this.handles = new int[columns * rows];
+        this.occupied = new long[Level.wordsFor(columns * rows)];
+        Arrays.fill(handles, EMPTY);
+    }
+
+    int columns() {
+        return columns;
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    /**
+     * Adds a unit and returns its handle. A unit that is already placed occupies its tile immediately, which must be
+     * free.
+     */
+    int register(Unit unit) {
+        if (unit.isPlaced()) {
+            requireFree(indexOf(unit.col(), unit.row()), EMPTY);
+        }
+        if (unitCount == units.length) {
+            units = Arrays.copyOf(units, unitCount * 2);
+        }
+        int handle = unitCount++;
+        units[handle] = unit;
+        positionKey ^= Zobrist.unitHp(handle, unit.hp());
+        if (unit.hasMovedThisTurn()) {
+            positionKey ^= Zobrist.unitMoved(handle);
+        }
+        if (unit.isPlaced()) {
+            unitMoved(handle, UnitTable.NO_TILE, UnitTable.NO_TILE, unit.col(), unit.row());
+        }
+        return handle;
+    }
+
+    int unitCount() {
+        return unitCount;
+    }
+
+    /** Unit registered under {@code handle}, in registration order. */
+    Unit unit(int handle) {
+        if (handle < 0 || handle >= unitCount) {
+            throw new IllegalArgumentException("Unknown unit handle " + handle);
+        }
+        return units[handle];
+    }
+
+    Unit unitAt(int col, int row) {
+        if (!isOnBoard(col, row)) {
+            return null;
+        }
+        int handle = handles[row * columns + col];
+        return handle == EMPTY ? null : units[handle];
+    }
+
+    Unit unitAt(GridPosition position) {
+        return position == null ? null : unitAt(position.col(), position.row());
+    }
+
+    boolean isOccupied(int col, int row) {
+        return isOnBoard(col, row) && handles[row * columns + col] != EMPTY;
+    }
+
+    boolean isOccupied(GridPosition position) {
+        return position != null && isOccupied(position.col(), position.row());
+    }
+
+    @Override
+    public boolean isBlocked(int col, int row) {
+        return isOccupied(col, row);
+    }
+
+    /**
+     * Live occupancy bitset indexed {@code row * columns + col}, in the form {@link Level#findPath} takes. Callers must
+     * not modify it.
+     */
+    long[] occupiedBits() {
+        return occupied;
+    }
+
+    long version() {
+        return version;
+    }
+
+    /**
+     * {@link Zobrist} key over every registered unit's tile, hit points and moved flag. With units registered in
+     * {@link BattleState} order, XOR-ing in {@link Zobrist#sideToMove} gives the key of the captured state.
+     */
+    long positionKey() {
+        return positionKey;
+    }
+
+    void hpChanged(int handle, int from, int to) {
+        positionKey ^= Zobrist.unitHp(handle, from) ^ Zobrist.unitHp(handle, to);
+    }
+
+    /** Unit {@code handle}'s moved-this-turn flag flipped. */
+    void movedFlagChanged(int handle) {
+        positionKey ^= Zobrist.unitMoved(handle);
+    }
+
+    /** Moves unit {@code handle} from {@code from} to {@code to}; either may be {@code null}. */
+    void unitMoved(int handle, GridPosition from, GridPosition to) {
+        unitMoved(handle,
+            from == null ? UnitTable.NO_TILE : from.col(), from == null ? UnitTable.NO_TILE : from.row(),
+            to == null ? UnitTable.NO_TILE : to.col(), to == null ? UnitTable.NO_TILE : to.row());
+    }
+
+    /**
+     * Moves unit {@code handle} between tiles; {@link UnitTable#NO_TILE} in both coordinates means off the board.
+     * Throws {@link IllegalStateException}, changing nothing, when another unit stands on the destination.
+     */
+    void unitMoved(int handle, int fromCol, int fromRow, int toCol, int toRow) {
+        if (fromCol == toCol && fromRow == toRow) {
+            return;
+        }
+        int to = toCol == UnitTable.NO_TILE ? EMPTY : indexOf(toCol, toRow);
+        if (to != EMPTY) {
+            requireFree(to, handle);
+        }
+        if (fromCol != UnitTable.NO_TILE) {
+            int index = indexOf(fromCol, fromRow);
+            positionKey ^= Zobrist.unitTile(handle, index);
+            handles[index] = EMPTY;
+            occupied[index >>> 6] &= ~(1L << index);
+            record(index);
+        }
+        if (to != EMPTY) {
+            positionKey ^= Zobrist.unitTile(handle, to);
+            handles[to] = handle;
+            occupied[to >>> 6] |= 1L << to;
+            record(to);
+        }
+    }
+
+    /** Whether every change after {@code since} is still in the log. */
+    boolean canReplay(long since) {
+        return since <= version && version - since <= LOG_CAPACITY;
+    }
+
+    /**
+     * Tile touched by version {@code changeVersion}, as {@code row * columns + col}. Valid for versions after a
+     * {@code since} for which {@link #canReplay} holds.
+     */
+    int changedTile(long changeVersion) {
+        return changedTiles[(int) (changeVersion - 1) & (LOG_CAPACITY - 1)];
+    }
+
+    private boolean isOnBoard(int col, int row) {
+        return Integer.compareUnsigned(col, columns) < 0 & Integer.compareUnsigned(row, rows) < 0;
+    }
+
+    private int indexOf(int col, int row) {
+        if (!isOnBoard(col, row)) {
+            throw new IllegalArgumentException("Tile " + new GridPosition(col, row) + " is outside the board");
+        }
+        return row * columns + col;
+    }
+
+    private void requireFree(int index, int handle) {
+        int holder = handles[index];
+        if (holder != EMPTY && holder != handle) {
+            throw new IllegalStateException("Tile " + new GridPosition(index % columns, index / columns)
+                + " is already occupied by " + units[holder].id());
+        }
+    }
+
+    private void record(int index) {
+        changedTiles[(int) version & (LOG_CAPACITY - 1)] = index;
+        version++;
+    }
+}
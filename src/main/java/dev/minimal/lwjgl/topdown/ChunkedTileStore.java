@@ -0,0 +1,106 @@
+package dev.minimal.lwjgl.topdown;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Tile storage for very large boards. The board is split into square chunks that are generated on first access
+ * and evicted in least-recently-used order once more than {@code residentChunks} are loaded. Chunk contents must
+ * be a pure function of the chunk coordinate so an evicted chunk can be regenerated identically later.
+ */
+final class ChunkedTileStore {
+    private final int columns;
+    private final int rows;
+    private final int chunkShift;
+    private final int chunkMask;
+    private final ChunkFiller filler;
+    private final Map<Long, Chunk> resident;
+    private volatile Chunk lastChunk;
+
+    ChunkedTileStore(int columns, int rows, int chunkSize, int residentChunks, ChunkFiller filler) {
+        if (columns <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("Chunked store requires positive dimensions");
+        }
+        if (chunkSize < 2 || Integer.bitCount(chunkSize) != 1) {
+            throw new IllegalArgumentException("Chunk size must be a power of two");
+        }
+        if (residentChunks < 1) {
+            throw new IllegalArgumentException("At least one chunk must stay resident");
+        }
+        this.columns = columns;
+        this.rows = rows;
+        this.chunkShift = Integer.numberOfTrailingZeros(chunkSize);
+        this.chunkMask = chunkSize - 1;
+        this.filler = Objects.requireNonNull(filler, "filler");
+        this.resident = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Chunk> eldest) {
+                return size() > residentChunks;
+            }
+        };
+    }
+
+    int columns() {
+        return columns;
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    int chunkSize() {
+        return chunkMask + 1;
+    }
+
+    /** Expects an inside coordinate; {@link Level} performs the bounds check before delegating. */
+    TileType tileAt(int col, int row) {
+        return TileType.fromOrdinal(ordinalAt(col, row));
+    }
+
+    boolean isWalkable(int col, int row) {
+        return !tileAt(col, row).blocksMovement;
+    }
+
+    synchronized int residentChunkCount() {
+        return resident.size();
+    }
+
+    private byte ordinalAt(int col, int row) {
+        long key = chunkKey(col >> chunkShift, row >> chunkShift);
+        Chunk chunk = lastChunk;
+        if (chunk == null || chunk.key() != key) {
+            chunk = load(key, col >> chunkShift, row >> chunkShift);
+            lastChunk = chunk;
+        }
+        return chunk.tiles()[((row & chunkMask) << chunkShift) | (col & chunkMask)];
+    }
+
+    private synchronized Chunk load(long key, int chunkCol, int chunkRow) {
+        Chunk chunk = resident.get(key);
+        if (chunk == null) {
+            int chunkSize = chunkMask + 1;
+            byte[] tiles = new byte[chunkSize * chunkSize];
+            filler.fill(chunkCol << chunkShift, chunkRow << chunkShift, chunkSize, tiles);
+            chunk = new Chunk(key, tiles);
+            resident.put(key, chunk);
+        }
+        return chunk;
+    }
+
+    private static long chunkKey(int chunkCol, int chunkRow) {
+        return ((long) chunkRow << 32) | (chunkCol & 0xffffffffL);
+    }
+
+    /**
+     * Produces the tile ordinals of one chunk in row-major order. Cells that fall outside the board are never read
+     * and may hold anything.
+     */
+    @FunctionalInterface
+    interface ChunkFiller {
+        void fill(int originCol, int originRow, int chunkSize, byte[] tiles);
+    }
+
+    private record Chunk(long key, byte[] tiles) {
+    }
+}
@@ -0,0 +1,272 @@
+package dev.minimal.lwjgl.topdown;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Resolves weapon skills against the units of one {@link UnitTable}. A hit deals
+ * {@code max(1, damage * multiplier / 100 - defense)}, where the multiplier comes from a table over
+ * {@link WeaponTag} pairs: {@value #ADVANTAGE_PERCENT}% when the attacker's tag {@link WeaponTag#beats beats} the
+ * defender's, {@value #DISADVANTAGE_PERCENT}% the other way round, 100% otherwise. On top of that the engine keeps the
+ * resulting damage for every pair of weapons in the table, so resolving a hit is one array read.
+ *
+ * <p>A cast walks the skill's {@link SkillStencils} stencil from the caster's tile: {@link SkillPattern#SINGLE_TARGET}
+ * hits the nearest opponent in range, area shapes hit every opponent under the stencil. All targets are collected
+ * first and damaged afterwards in one pass, defeated ones leaving the board, and every hit is appended to a reusable
+ * {@link Hits} buffer in stencil order, so the same board always yields the same events and a cast allocates nothing.
+ * Same-faction units are never hit.
+ */
+final class CombatEngine {
+    static final int ADVANTAGE_PERCENT = 150;
+    static final int DISADVANTAGE_PERCENT = 75;
+    private static final int NEUTRAL_PERCENT = 100;
+    private static final WeaponTag[] TAGS = WeaponTag.values();
+    /** Multiplier in percent, indexed {@code attackerTag * TAGS.length + defenderTag}. */
+    private static final int[] TAG_PERCENT = buildTagTable();
+
+    private final Level level;
+    private final BoardOccupancy board;
+    private final UnitTable units;
+    private final SkillStencils stencils;
+    /**
+     * Damage per weapon pair, indexed {@code (attackerSlot + 1) * stride + defenderSlot + 1}; slot {@code -1} is
+     * {@link UnitTable#NO_WEAPON}. Rebuilt whenever the table has seen a new weapon.
+     */
+    private int[] pairDamage = new int[0];
+    private int stride;
+    /** Per weapon slot, the stencil of every skill and facing, indexed {@code skill * DIRECTIONS.length + facing}. */
+    private SkillStencils.Stencil[][] skillStencils = new SkillStencils.Stencil[0][];
+
+    CombatEngine(Level level, BoardOccupancy board, UnitTable units, SkillStencils stencils) {
+        this.level = level;
+        this.board = board;
+        this.units = units;
+        this.stencils = stencils;
+    }
+
+    /** Damage of one hit by a weapon with {@code damage} and {@code attackerTag} on one with the given defense. */
+    static int damage(int damage, WeaponTag attackerTag, int defense, WeaponTag defenderTag) {
+        int percent = attackerTag == null || defenderTag == null
+            ? NEUTRAL_PERCENT
+            : TAG_PERCENT[attackerTag.ordinal() * TAGS.length + defenderTag.ordinal()];
+        return Math.max(1, damage * percent / 100 - defense);
+    }
+
+    /** {@link #damage(int, WeaponTag, int, WeaponTag)} between two weapons; a missing weapon has no stats or tag. */
+    static int damage(Weapon attacker, Weapon defender) {
+        return damage(attacker == null ? 0 : attacker.damage(), attacker == null ? null : attacker.tag(),
+            defender == null ? 0 : defender.defense(), defender == null ? null : defender.tag());
+    }
+
+    /**
+     * Casts {@code skill} from unit {@code caster}'s tile toward {@code facing}, damages every opponent it hits and
+     * appends those hits to {@code hits}. Returns the number of hits; a caster off the board or defeated hits nothing.
+     */
+    int resolve(int caster, WeaponSkill skill, Direction facing, Hits hits) {
+        if (!units.isPlaced(caster) || units.hp(caster) == 0) {
+            return 0;
+        }
+        int first = hits.size();
+        collect(caster, stencils.stencil(skill, facing), skill.pattern() == SkillPattern.SINGLE_TARGET, hits);
+        applyFrom(first, hits);
+        return hits.size() - first;
+    }
+
+    /**
+     * Casts whichever skill of the caster's weapon, in whichever facing, hits the most opponents; ties go to the
+     * earlier skill, then the earlier {@link Direction}. Returns the number of hits, zero when nothing is in reach.
+     */
+    int resolveBest(int caster, Hits hits) {
+        int slot = units.weaponIndex(caster);
+        if (slot == UnitTable.NO_WEAPON || !units.isPlaced(caster) || units.hp(caster) == 0) {
+            return 0;
+        }
+        refreshWeapons();
+        List<WeaponSkill> skills = units.weapons().get(slot).skills();
+        SkillStencils.Stencil[] byShape = skillStencils[slot];
+        int facings = Direction.DIRECTIONS.length;
+        int best = -1;
+        int bestCount = 0;
+        for (int shape = 0; shape < byShape.length; shape++) {
+            // Facing-independent shapes share one stencil across facings; count it once.
+            if (shape % facings != 0 && byShape[shape] == byShape[shape - shape % facings]) {
+                continue;
+            }
+            boolean single = skills.get(shape / facings).pattern() == SkillPattern.SINGLE_TARGET;
+            int count = countTargets(caster, byShape[shape], single);
+            if (count > bestCount) {
+                best = shape;
+                bestCount = count;
+            }
+        }
+        if (best < 0) {
+            return 0;
+        }
+        int first = hits.size();
+        collect(caster, byShape[best], skills.get(best / facings).pattern() == SkillPattern.SINGLE_TARGET, hits);
+        applyFrom(first, hits);
+        return hits.size() - first;
+    }
+
+    /** Lets every unit of {@code casters}, in order, cast its best skill. Returns the total number of hits. */
+    int volley(List<Unit> casters, Hits hits) {
+        int total = 0;
+        for (Unit caster : casters) {
+            total += resolveBest(caster.index(), hits);
+        }
+        return total;
+    }
+
+    private void collect(int caster, SkillStencils.Stencil stencil, boolean single, Hits hits) {
+        refreshWeapons();
+        int col = units.col(caster);
+        int row = units.row(caster);
+        UnitFaction faction = units.faction(caster);
+        int attackerRow = (units.weaponIndex(caster) + 1) * stride + 1;
+        for (int i = 0; i < stencil.size(); i++) {
+            int target = opponentAt(col + stencil.dx(i), row + stencil.dy(i), faction);
+            if (target < 0 || !stencil.hits(level, col, row, i)) {
+                continue;
+            }
+            hits.add(caster, target, pairDamage[attackerRow + units.weaponIndex(target)]);
+            if (single) {
+                return;
+            }
+        }
+    }
+
+    private int countTargets(int caster, SkillStencils.Stencil stencil, boolean single) {
+        int col = units.col(caster);
+        int row = units.row(caster);
+        UnitFaction faction = units.faction(caster);
+        int count = 0;
+        for (int i = 0; i < stencil.size(); i++) {
+            int target = opponentAt(col + stencil.dx(i), row + stencil.dy(i), faction);
+            if (target < 0 || !stencil.hits(level, col, row, i)) {
+                continue;
+            }
+            if (single) {
+                return 1;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /** Table index of the living opponent of {@code faction} standing on the tile, or {@code -1}. */
+    private int opponentAt(int col, int row, UnitFaction faction) {
+        Unit unit = board.unitAt(col, row);
+        if (unit == null || unit.table() != units) {
+            return -1;
+        }
+        int index = unit.index();
+        return units.faction(index) == faction || units.hp(index) == 0 ? -1 : index;
+    }
+
+    /** Second pass: applies the damage of hits {@code first} onward and records what is left of each target. */
+    private void applyFrom(int first, Hits hits) {
+        for (int i = first; i < hits.size(); i++) {
+            int target = hits.target(i);
+            units.applyHit(hits.caster(i), target, hits.damage(i));
+            hits.hpAfter[i] = units.hp(target);
+            if (units.hp(target) == 0) {
+                units.clearPlacement(target);
+            }
+        }
+    }
+
+    private void refreshWeapons() {
+        List<Weapon> weapons = units.weapons();
+        if (stride == weapons.size() + 1) {
+            return;
+        }
+        stride = weapons.size() + 1;
+        skillStencils = new SkillStencils.Stencil[weapons.size()][];
+        for (int slot = 0; slot < weapons.size(); slot++) {
+            List<WeaponSkill> skills = weapons.get(slot).skills();
+            skillStencils[slot] = new SkillStencils.Stencil[skills.size() * Direction.DIRECTIONS.length];
+            for (int skill = 0; skill < skills.size(); skill++) {
+                for (Direction facing : Direction.DIRECTIONS) {
+                    skillStencils[slot][skill * Direction.DIRECTIONS.length + facing.ordinal()] =
+                        stencils.stencil(skills.get(skill), facing);
+                }
+            }
+        }
+        pairDamage = new int[stride * stride];
+        for (int attacker = -1; attacker < weapons.size(); attacker++) {
+            for (int defender = -1; defender < weapons.size(); defender++) {
+                pairDamage[(attacker + 1) * stride + defender + 1] = damage(
+                    attacker < 0 ? null : weapons.get(attacker), defender < 0 ? null : weapons.get(defender));
+            }
+        }
+    }
+
+    private static int[] buildTagTable() {
+        int[] table = new int[TAGS.length * TAGS.length];
+        for (WeaponTag attacker : TAGS) {
+            for (WeaponTag defender : TAGS) {
+                int percent = NEUTRAL_PERCENT;
+                if (attacker.beats(defender)) {
+                    percent = ADVANTAGE_PERCENT;
+                } else if (defender.beats(attacker)) {
+                    percent = DISADVANTAGE_PERCENT;
+                }
+                table[attacker.ordinal() * TAGS.length + defender.ordinal()] = percent;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Reusable, append-only log of hits as parallel arrays: caster, target, damage dealt and the target's hit points
+     * afterwards. Grows by doubling and is emptied with {@link #clear()}, so steady-state casting allocates nothing.
+     */
+    static final class Hits {
+        private int[] casters = new int[16];
+        private int[] targets = new int[16];
+        private int[] damage = new int[16];
+        private int[] hpAfter = new int[16];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        int caster(int i) {
+            return casters[i];
+        }
+
+        int target(int i) {
+            return targets[i];
+        }
+
+        int damage(int i) {
+            return damage[i];
+        }
+
+        int hpAfter(int i) {
+            return hpAfter[i];
+        }
+
+        boolean defeated(int i) {
+            return hpAfter[i] == 0;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        private void add(int caster, int target, int amount) {
+            if (size == targets.length) {
+                casters = Arrays.copyOf(casters, size * 2);
+                targets = Arrays.copyOf(targets, size * 2);
+                damage = Arrays.copyOf(damage, size * 2);
+                hpAfter = Arrays.copyOf(hpAfter, size * 2);
+            }
+            casters[size] = caster;
+            targets[size] = target;
+            damage[size] = amount;
+            size++;
+        }
+    }
+}
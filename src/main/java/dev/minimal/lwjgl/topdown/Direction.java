@@ -8,6 +8,9 @@ enum Direction {
     LEFT(-1, 0, GLFW.GLFW_KEY_A, GLFW.GLFW_KEY_LEFT),
     RIGHT(1, 0, GLFW.GLFW_KEY_D, GLFW.GLFW_KEY_RIGHT);
 
+    /** Shared copy of {@link #values()} for hot loops; must not be modified. */
+    static final Direction[] DIRECTIONS = values();
+
     final int dx;
     final int dy;
     private final int[] keyCodes;
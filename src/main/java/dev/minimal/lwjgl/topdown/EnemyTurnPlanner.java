@@ -0,0 +1,227 @@
+package dev.minimal.lwjgl.topdown;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Moves the enemy squad along a shared {@link FlowField} built from the player squad. Healthy enemies head downhill
+ * toward the nearest player unit; wounded ones (below half health) head uphill instead. Each enemy ranks the tiles it
+ * can reach on the board as it stood at the start of the turn by flow distance, ties going to fewer steps and then
+ * {@link Direction} order, and takes the best one no enemy earlier in the squad has taken. Moves are applied once the
+ * whole squad is planned, so turns are deterministic.
+ *
+ * <p>{@link #execute} plans the squad in order on the calling thread; {@link #executeParallel} plans every enemy at
+ * once and claims tiles in a shared reservation array with compare-and-set. There a lower squad index displaces a
+ * higher one, and the displaced unit moves on to its next choice, so the reservations only settle conflicts: both
+ * produce the same moves, whatever the pool size or scheduling.
+ */
+final class EnemyTurnPlanner {
+    /** Squad size from which the game switches to {@link #executeParallel}. */
+    static final int PARALLEL_THRESHOLD = 64;
+    /** Enemies planned per pool task. */
+    private static final int PLAN_BATCH = 16;
+    private static final int UNCLAIMED = 0;
+
+    private final FlowField playerField = new FlowField();
+    private final ThreadLocal<MovementPreview> previews = ThreadLocal.withInitial(MovementPreview::new);
+    private AtomicIntegerArray reservations = new AtomicIntegerArray(0);
+
+    /** Plays one enemy turn of up to {@code maxSteps} per unit and returns how many enemies changed tiles. */
+    int execute(Level level, BoardOccupancy occupancy, List<Unit> enemies, List<Unit> players, int maxSteps) {
+        TurnPlan plan = plan(level, occupancy, enemies, players, maxSteps);
+        if (plan == null) {
+            return 0;
+        }
+        for (int i = 0; i < enemies.size(); i++) {
+            plan.rank(i);
+            plan.claim(i);
+        }
+        return plan.apply();
+    }
+
+    /** Plays the same turn as {@link #execute}, planning the squad on {@code pool}. */
+    int executeParallel(Level level, BoardOccupancy occupancy, List<Unit> enemies, List<Unit> players, int maxSteps,
+                        ForkJoinPool pool) {
+        TurnPlan plan = plan(level, occupancy, enemies, players, maxSteps);
+        if (plan == null) {
+            return 0;
+        }
+        int count = enemies.size();
+        List<ForkJoinTask<?>> tasks = new ArrayList<>((count + PLAN_BATCH - 1) / PLAN_BATCH);
+        for (int first = 0; first < count; first += PLAN_BATCH) {
+            int from = first;
+            int to = Math.min(count, first + PLAN_BATCH);
+            tasks.add(pool.submit(() -> {
+                for (int i = from; i < to; i++) {
+                    plan.rank(i);
+                    plan.claim(i);
+                }
+            }));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+        return plan.apply();
+    }
+
+    static boolean shouldRetreat(Unit unit) {
+        return unit.hp() * 2 < unit.maxHp();
+    }
+
+    /** Builds the flow field and sizes the reservations, or returns {@code null} when there is no turn to play. */
+    private TurnPlan plan(Level level, BoardOccupancy occupancy, List<Unit> enemies, List<Unit> players,
+                          int maxSteps) {
+        if (level == null || occupancy == null || enemies == null || maxSteps <= 0
+            || !playerField.compute(level, players)) {
+            return null;
+        }
+        int cells = level.columns() * level.rows();
+        if (reservations.length() != cells) {
+            reservations = new AtomicIntegerArray(cells);
+        }
+        return new TurnPlan(level, occupancy, enemies, maxSteps);
+    }
+
+    /** Per-turn state of a planned turn: ranked candidates per enemy and how far down its list each got. */
+    private final class TurnPlan {
+        private final Level level;
+        private final BoardOccupancy occupancy;
+        private final List<Unit> enemies;
+        private final int maxSteps;
+        private final int stride;
+        /** Candidate tiles per enemy, best first, ending with the enemy's own tile. */
+        private final int[] candidates;
+        private final int[] candidateCounts;
+        /**
+         * Index of the candidate each enemy holds or is trying. Written only by whichever thread is claiming for the
+         * enemy, and handed between threads through the reservation compare-and-set.
+         */
+        private final int[] cursors;
+
+        TurnPlan(Level level, BoardOccupancy occupancy, List<Unit> enemies, int maxSteps) {
+            this.level = level;
+            this.occupancy = occupancy;
+            this.enemies = enemies;
+            this.maxSteps = maxSteps;
+            this.stride = 2 * maxSteps * (maxSteps + 1) + 1;
+            this.candidates = new int[enemies.size() * stride];
+            this.candidateCounts = new int[enemies.size()];
+            this.cursors = new int[enemies.size()];
+        }
+
+        /**
+         * Orders the tiles enemy {@code i} can reach by flow distance (ascending, or descending when it retreats),
+         * then by steps taken. Tiles no better than staying put are dropped.
+         */
+        void rank(int i) {
+            Unit enemy = enemies.get(i);
+            if (enemy == null || !enemy.isPlaced()) {
+                return;
+            }
+            int columns = level.columns();
+            int base = i * stride;
+            int own = enemy.row() * columns + enemy.col();
+            MovementPreview preview = previews.get();
+            int ownDistance = playerField.distanceAt(enemy.col(), enemy.row());
+            if (ownDistance == FlowField.UNREACHABLE || !preview.calculate(level, occupancy, enemy, maxSteps)) {
+                candidates[base] = own;
+                candidateCounts[i] = 1;
+                return;
+            }
+            boolean retreat = shouldRetreat(enemy);
+            int ownScore = retreat ? -ownDistance : ownDistance;
+            int count = 0;
+            // Entry 0 of the preview is the enemy's own tile; BFS order already sorts the rest by steps taken.
+            for (int r = 1; r < preview.reachableCount(); r++) {
+                int distance = playerField.distanceAt(preview.reachableCol(r), preview.reachableRow(r));
+                if (distance == FlowField.UNREACHABLE) {
+                    continue;
+                }
+                int score = retreat ? -distance : distance;
+                if (score >= ownScore) {
+                    continue;
+                }
+                int tile = preview.reachableRow(r) * columns + preview.reachableCol(r);
+                // Insertion sort keeps BFS order among equal scores; lists hold at most 2d(d+1) tiles.
+                int at = count++;
+                while (at > 0 && scoreOf(candidates[base + at - 1], retreat) > score) {
+                    candidates[base + at] = candidates[base + at - 1];
+                    at--;
+                }
+                candidates[base + at] = tile;
+            }
+            candidates[base + count++] = own;
+            candidateCounts[i] = count;
+        }
+
+        /**
+         * Claims the best tile enemy {@code i} can hold. Taking a tile from a higher-indexed enemy continues with that
+         * enemy's list from where it left off, which is safe because a tile only ever passes to lower indices.
+         */
+        void claim(int i) {
+            if (candidateCounts[i] == 0) {
+                return;
+            }
+            int unit = i;
+            int k = 0;
+            while (true) {
+                if (k == candidateCounts[unit]) {
+                    // Only reachable when units share a start tile and a lower one kept it; this one stays unplanned.
+                    cursors[unit] = -1;
+                    return;
+                }
+                int holder = unit + 1;
+                int tile = candidates[unit * stride + k];
+                int current = reservations.get(tile);
+                if (current != UNCLAIMED && current < holder) {
+                    k++;
+                    continue;
+                }
+                cursors[unit] = k;
+                if (!reservations.compareAndSet(tile, current, holder)) {
+                    continue;
+                }
+                if (current == UNCLAIMED) {
+                    return;
+                }
+                unit = current - 1;
+                k = cursors[unit] + 1;
+            }
+        }
+
+        /**
+         * Moves every enemy to the tile it holds, in squad order, and releases the reservations. No enemy targets
+         * another's start-of-turn tile, so the moves cannot collide. Returns how many enemies changed tiles.
+         */
+        int apply() {
+            int moved = 0;
+            int columns = level.columns();
+            for (int i = 0; i < enemies.size(); i++) {
+                int tile = destination(i);
+                if (tile < 0) {
+                    continue;
+                }
+                reservations.set(tile, UNCLAIMED);
+                Unit enemy = enemies.get(i);
+                if (tile != enemy.row() * columns + enemy.col()) {
+                    enemy.placeAt(tile % columns, tile / columns);
+                    moved++;
+                }
+            }
+            return moved;
+        }
+
+        /** Tile enemy {@code i} ended up holding, or {@code -1} when it stays without a claim. */
+        int destination(int i) {
+            return candidateCounts[i] == 0 || cursors[i] < 0 ? -1 : candidates[i * stride + cursors[i]];
+        }
+
+        private int scoreOf(int tile, boolean retreat) {
+            int distance = playerField.distanceAt(tile % level.columns(), tile / level.columns());
+            return retreat ? -distance : distance;
+        }
+    }
+}
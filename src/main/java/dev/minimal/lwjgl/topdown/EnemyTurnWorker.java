@@ -0,0 +1,74 @@
+package dev.minimal.lwjgl.topdown;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plans enemy turns on a background thread so the render loop never waits for the AI. The game hands over an
+ * immutable {@link BattleState} snapshot, polls once per frame, and applies the finished {@link TacticalSearch.TurnPlan}
+ * itself on the main thread, so live units are only ever touched there.
+ *
+ * <p>At most one turn is planned at a time. {@link #cancel()} abandons it: its {@link TacticalSearch} is cancelled for
+ * good, stopping at its next clock check, and the plan is dropped even if it was already finished.
+ */
+final class EnemyTurnWorker {
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "enemy-turn");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Future<TacticalSearch.TurnPlan> pending;
+    private TacticalSearch pendingSearch;
+
+    /** Starts planning the side to move in {@code snapshot}. Any turn still being planned is cancelled first. */
+    void start(TacticalSearch search, BattleState snapshot, long budgetNanos, int maxDepth) {
+        cancel();
+        pendingSearch = search;
+        pending = executor.submit(() -> search.planTurn(snapshot, budgetNanos, maxDepth));
+    }
+
+    boolean isThinking() {
+        return pending != null;
+    }
+
+    /**
+     * The finished plan, or {@code null} while still thinking or when idle. A plan is returned once; afterwards the
+     * worker is idle again.
+     */
+    TacticalSearch.TurnPlan poll() {
+        if (pending == null || !pending.isDone()) {
+            return null;
+        }
+        Future<TacticalSearch.TurnPlan> done = pending;
+        pending = null;
+        pendingSearch = null;
+        try {
+            return done.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (CancellationException ex) {
+            return null;
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Enemy turn planning failed", ex.getCause());
+        }
+    }
+
+    void cancel() {
+        if (pending == null) {
+            return;
+        }
+        pendingSearch.cancel();
+        pending.cancel(false);
+        pending = null;
+        pendingSearch = null;
+    }
+
+    void shutdown() {
+        cancel();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,101 @@
+package dev.minimal.lwjgl.topdown;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Distance to the nearest unit of a faction for every tile, built by one multi-source breadth-first flood. Any number
+ * of units can then read the field to step toward or away from that faction, so a whole turn costs a single flood
+ * instead of one search per unit. Units are not treated as obstacles here; callers check occupancy per step.
+ *
+ * <p>Buffers are reused across {@link #compute} calls and only grow with the board.
+ */
+final class FlowField {
+    static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private int columns;
+    private int rows;
+    private int stride;
+    /** Indexed by {@link Level#cellIndex}; the wall border stays {@link #UNREACHABLE}. */
+    private int[] distances = new int[0];
+    private int[] queue = new int[0];
+    private boolean valid;
+
+    /**
+     * Floods from every placed unit in {@code sources}. Returns {@code false} when none is on the board. The level must
+     * be packed.
+     */
+    boolean compute(Level level, List<Unit> sources) {
+        valid = false;
+        if (level == null || sources == null) {
+            return false;
+        }
+        long[] walkable = level.walkableBits();
+        columns = level.columns();
+        rows = level.rows();
+        stride = level.stride();
+        int cells = stride * (rows + 2);
+        if (distances.length != cells) {
+            distances = new int[cells];
+            queue = new int[cells];
+        }
+        Arrays.fill(distances, UNREACHABLE);
+
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < sources.size(); i++) {
+            Unit unit = sources.get(i);
+            if (unit == null || !unit.isPlaced()) {
+                continue;
+            }
+            int index = level.cellIndex(unit.col(), unit.row());
+            if (distances[index] != 0) {
+                distances[index] = 0;
+                queue[tail++] = index;
+            }
+        }
+        if (tail == 0) {
+            return false;
+        }
+
+        while (head < tail) {
+            int current = queue[head++];
+            int nextDistance = distances[current] + 1;
+            tail = visit(walkable, current - stride, nextDistance, tail);
+            tail = visit(walkable, current + stride, nextDistance, tail);
+            tail = visit(walkable, current - 1, nextDistance, tail);
+            tail = visit(walkable, current + 1, nextDistance, tail);
+        }
+        valid = true;
+        return true;
+    }
+
+    private int visit(long[] walkable, int next, int distance, int tail) {
+        if ((walkable[next >>> 6] & (1L << next)) == 0 || distances[next] != UNREACHABLE) {
+            return tail;
+        }
+        distances[next] = distance;
+        queue[tail] = next;
+        return tail + 1;
+    }
+
+    boolean isValid() {
+        return valid;
+    }
+
+    int columns() {
+        return columns;
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    /** Steps to the nearest source, or {@link #UNREACHABLE} for walls, cut-off tiles and positions off the board. */
+    int distanceAt(int col, int row) {
+        if (!valid || col < 0 || col >= columns || row < 0 || row >= rows) {
+            return UNREACHABLE;
+        }
+        return distances[(row + 1) * stride + col + 1];
+    }
+}
@@ -1,6 +1,9 @@
 package dev.minimal.lwjgl.topdown;
 
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 
 final class GameConfig {
@@ -15,14 +18,20 @@ final class GameConfig {
     private final float hazardDensity;
     private final long seed;
     private final boolean seedLocked;
+    private final Path levelFile;
 
     GameConfig(int width, int height, int tileSize, float hazardDensity, long seed, boolean seedLocked) {
+        this(width, height, tileSize, hazardDensity, seed, seedLocked, null);
+    }
+
+    GameConfig(int width, int height, int tileSize, float hazardDensity, long seed, boolean seedLocked, Path levelFile) {
         this.width = makeOdd(width);
         this.height = makeOdd(height);
         this.tileSize = tileSize;
         this.hazardDensity = Math.min(Math.max(hazardDensity, 0f), 0.9f);
         this.seed = seed;
         this.seedLocked = seedLocked;
+        this.levelFile = levelFile;
     }
 
     int width() {
@@ -49,6 +58,11 @@ final class GameConfig {
         return seedLocked;
     }
 
+    /** Binary level to open instead of generating one, or {@code null}. */
+    Path levelFile() {
+        return levelFile;
+    }
+
     LevelSettings toLevelSettings() {
         return new LevelSettings(width, height, tileSize, hazardDensity, seed, seedLocked);
     }
@@ -59,24 +73,17 @@ final class GameConfig {
         int tileSize = DEFAULT_TILE_SIZE;
         float hazard = DEFAULT_HAZARD_DENSITY;
         Long seed = null;
+        Path levelFile = null;
 
-        for (String arg : Objects.requireNonNullElse(args, new String[0])) {
-            if (arg == null || arg.isBlank()) {
-                continue;
-            }
-            String cleaned = arg.startsWith("--") ? arg.substring(2) : arg;
-            String[] parts = cleaned.split("=", 2);
-            if (parts.length != 2) {
-                continue;
-            }
-            String key = parts[0].trim().toLowerCase(Locale.ROOT);
-            String value = parts[1].trim();
-            switch (key) {
+        for (Map.Entry<String, String> option : parseOptions(args).entrySet()) {
+            String value = option.getValue();
+            switch (option.getKey()) {
                 case "width" -> width = parsePositiveInt(value, width);
                 case "height" -> height = parsePositiveInt(value, height);
                 case "tilesize" -> tileSize = parsePositiveInt(value, tileSize);
                 case "hazard" -> hazard = parseFloat(value, hazard);
                 case "seed" -> seed = parseLong(value, null);
+                case "level" -> levelFile = value.isEmpty() ? null : Path.of(value);
                 default -> {
                 }
             }
@@ -84,10 +91,30 @@ final class GameConfig {
 
         boolean customSeed = seed != null;
         long resolvedSeed = customSeed ? seed : System.nanoTime();
-        return new GameConfig(width, height, tileSize, hazard, resolvedSeed, customSeed);
+        return new GameConfig(width, height, tileSize, hazard, resolvedSeed, customSeed, levelFile);
+    }
+
+    /**
+     * Splits {@code --key=value} (or {@code key=value}) arguments into a map with lower-case keys, skipping anything
+     * else. Shared by the game and the headless tools so they accept the same flags.
+     */
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : Objects.requireNonNullElse(args, new String[0])) {
+            if (arg == null || arg.isBlank()) {
+                continue;
+            }
+            String cleaned = arg.startsWith("--") ? arg.substring(2) : arg;
+            String[] parts = cleaned.split("=", 2);
+            if (parts.length != 2) {
+                continue;
+            }
+            options.put(parts[0].trim().toLowerCase(Locale.ROOT), parts[1].trim());
+        }
+        return options;
     }
 
-    private static int parsePositiveInt(String value, int fallback) {
+    static int parsePositiveInt(String value, int fallback) {
         try {
             int parsed = Integer.parseInt(value);
             return parsed > 0 ? parsed : fallback;
@@ -1,6 +1,7 @@
 package dev.minimal.lwjgl.topdown;
 
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
 import java.util.Collections;
 import java.util.List;
 
@@ -15,7 +16,20 @@ import static org.lwjgl.opengl.GL11.glEnd;
 import static org.lwjgl.opengl.GL11.glVertex2f;
 
 final class Level {
-    private final TileType[][] tiles;
+    /**
+     * Tile ordinals in row-major order with a one-tile wall border on every side, so neighbour probes from any
+     * interior cell never leave the array. Index a cell through {@link #cellIndex(int, int)}. Generated levels wrap
+     * a heap array; levels opened through {@link LevelFile} read straight from the mapped file.
+     */
+    private final ByteBuffer tiles;
+    /**
+     * One bit per padded cell, set when the tile does not block movement. Kept on the heap even for mapped levels,
+     * where it is copied once on load, so flood loops test a plain array; {@code null} for chunked levels.
+     */
+    private final long[] walkable;
+    private final int stride;
+    /** Backing store for chunked boards; {@code null} when the packed plane above holds every tile. */
+    private final ChunkedTileStore chunks;
     private final GridPosition start;
     private final GridPosition exit;
     private final int tileSize;
@@ -32,14 +46,27 @@ final class Level {
     private final float originY;
     private final List<GridPosition> playerSpawnTiles;
     private final List<GridPosition> enemySpawnTiles;
+    /** Scratch state for {@link #findPath}; created on first use and guarded by the level's monitor. */
+    private PathFinder pathFinder;
 
     Level(String[] layout, int tileSize) {
-        if (layout.length == 0) {
-            throw new IllegalArgumentException("Level layout requires rows");
-        }
+        this(LevelBuilder.parse(layout).layout(), tileSize);
+    }
+
+    /**
+     * Creates a level whose tiles live in a {@link ChunkedTileStore}. Markers are passed in directly because a
+     * chunked board is never scanned as a whole.
+     */
+    Level(ChunkedTileStore chunks, int tileSize, GridPosition start, GridPosition exit,
+          List<GridPosition> playerSpawnTiles, List<GridPosition> enemySpawnTiles) {
+        this(new Layout(chunks.columns(), chunks.rows(), null, null, chunks, start, exit,
+            List.copyOf(playerSpawnTiles), List.copyOf(enemySpawnTiles)), tileSize);
+    }
+
+    Level(Layout layout, int tileSize) {
         this.tileSize = tileSize;
-        this.rows = layout.length;
-        this.columns = layout[0].length();
+        this.rows = layout.rows();
+        this.columns = layout.columns();
         this.isoTileWidth = tileSize;
         this.isoTileHeight = tileSize * 0.6f;
         this.halfIsoWidth = isoTileWidth / 2f;
@@ -58,38 +85,37 @@ final class Level {
         float boardDepth = (columns + rows - 2) * halfIsoHeight + isoTileHeight;
         this.pixelWidth = (int) Math.ceil(widthSpan + horizontalMargin * 2f);
         this.pixelHeight = (int) Math.ceil(originY + boardDepth + bottomPadding);
-        this.tiles = new TileType[rows][columns];
-        this.playerSpawnTiles = new ArrayList<>();
-        this.enemySpawnTiles = new ArrayList<>();
-
-        GridPosition startPos = null;
-        GridPosition exitPos = null;
-
-        for (int row = 0; row < rows; row++) {
-            String line = layout[row];
-            if (line.length() != columns) {
-                throw new IllegalStateException("Inconsistent level width at row " + row);
-            }
-            for (int col = 0; col < columns; col++) {
-                TileType tile = TileType.fromSymbol(line.charAt(col));
-                tiles[row][col] = tile;
-                if (tile == TileType.START) {
-                    startPos = new GridPosition(col, row);
-                } else if (tile == TileType.EXIT) {
-                    exitPos = new GridPosition(col, row);
-                } else if (tile == TileType.PLAYER_SPAWN) {
-                    playerSpawnTiles.add(new GridPosition(col, row));
-                } else if (tile == TileType.ENEMY_SPAWN) {
-                    enemySpawnTiles.add(new GridPosition(col, row));
-                }
-            }
+        this.stride = columns + 2;
+        this.tiles = layout.tiles();
+        this.walkable = layout.walkable() != null ? heapBits(layout.walkable()) : null;
+        this.chunks = layout.chunks();
+        this.playerSpawnTiles = layout.playerSpawnTiles();
+        this.enemySpawnTiles = layout.enemySpawnTiles();
+
+        if (layout.start() == null || layout.exit() == null) {
+            throw new IllegalStateException("Level must define both a start (S) and exit (G)");
         }
+        this.start = layout.start();
+        this.exit = layout.exit();
+    }
 
-        if (startPos == null || exitPos == null) {
-            throw new IllegalStateException("Level must define both a start (S) and exit (G)");
+    /**
+     * Wraps an already padded tile plane and walkability bitset without copying them. Used by {@link LevelFile} so a
+     * mapped file backs the level directly.
+     */
+    static Level fromPlanes(int columns, int rows, int tileSize, ByteBuffer tiles, LongBuffer walkable,
+                            GridPosition start, GridPosition exit, List<GridPosition> playerSpawnTiles,
+                            List<GridPosition> enemySpawnTiles) {
+        int cells = (columns + 2) * (rows + 2);
+        if (tiles.capacity() != cells || walkable.capacity() != wordsFor(cells)) {
+            throw new IllegalArgumentException("Tile planes do not match a " + columns + "x" + rows + " level");
         }
-        this.start = startPos;
-        this.exit = exitPos;
+        return new Level(new Layout(columns, rows, tiles, walkable, null, start, exit, List.copyOf(playerSpawnTiles),
+            List.copyOf(enemySpawnTiles)), tileSize);
+    }
+
+    static int wordsFor(int cells) {
+        return (cells + 63) >>> 6;
     }
 
     List<GridPosition> playerSpawnTiles() {
@@ -108,20 +134,107 @@ final class Level {
         return exit;
     }
 
+    /**
+     * Shortest 4-connected route between two tiles, both included, or an empty list when there is none. Bits set in
+     * {@code occupied} (indexed {@code row * columns + col}, may be {@code null}) mark tiles held by units. Packed
+     * levels only.
+     */
+    synchronized List<GridPosition> findPath(GridPosition from, GridPosition to, long[] occupied) {
+        if (pathFinder == null) {
+            pathFinder = new PathFinder(this);
+        }
+        return pathFinder.find(from, to, occupied);
+    }
+
     boolean isWalkable(int col, int row) {
-        TileType tile = tileAt(col, row);
-        return !tile.blocksMovement;
+        if (!isInside(col, row)) {
+            return false;
+        }
+        if (chunks != null) {
+            return chunks.isWalkable(col, row);
+        }
+        return isWalkableCell(cellIndex(col, row));
     }
 
     TileType tileAt(int col, int row) {
         if (!isInside(col, row)) {
             return TileType.WALL;
         }
-        return tiles[row][col];
+        if (chunks != null) {
+            return chunks.tileAt(col, row);
+        }
+        return TileType.fromOrdinal(tiles.get(cellIndex(col, row)));
+    }
+
+    /**
+     * Whether the packed plane is available, which the index-based accessors below require; on a chunked level they
+     * throw {@link IllegalStateException}.
+     */
+    boolean isPacked() {
+        return chunks == null;
+    }
+
+    /** Edge length of a storage chunk, or {@code 0} for packed levels. */
+    int chunkSize() {
+        return chunks != null ? chunks.chunkSize() : 0;
     }
 
     boolean isInside(int col, int row) {
-        return col >= 0 && col < columns && row >= 0 && row < rows;
+        return Integer.compareUnsigned(col, columns) < 0 & Integer.compareUnsigned(row, rows) < 0;
+    }
+
+    /**
+     * Padded index of an inside cell, addressing the planes of a packed level. The four neighbours of any inside cell
+     * are {@code index +/- 1} and {@code index +/- stride()}, and they are always valid indices thanks to the wall
+     * border.
+     */
+    int cellIndex(int col, int row) {
+        return (row + 1) * stride + col + 1;
+    }
+
+    int stride() {
+        return stride;
+    }
+
+    /** Walkability of a padded cell; packed levels only, checked once through {@link #isPacked()} by the caller. */
+    boolean isWalkableCell(int index) {
+        return (walkable[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * The walkability bitset itself, indexed by {@link #cellIndex(int, int)}, for flood loops that probe it per
+     * neighbour; packed levels only. Must not be modified.
+     */
+    long[] walkableBits() {
+        requirePacked();
+        return walkable;
+    }
+
+    /** Read-only view of the padded tile plane; packed levels only. */
+    ByteBuffer tilePlane() {
+        requirePacked();
+        return tiles.asReadOnlyBuffer().clear();
+    }
+
+    /** Read-only view of the walkability bitset; packed levels only. */
+    LongBuffer walkablePlane() {
+        requirePacked();
+        return LongBuffer.wrap(walkable).asReadOnlyBuffer();
+    }
+
+    private static long[] heapBits(LongBuffer walkable) {
+        if (walkable.hasArray() && walkable.arrayOffset() == 0 && walkable.array().length == walkable.capacity()) {
+            return walkable.array();
+        }
+        long[] bits = new long[walkable.capacity()];
+        walkable.get(0, bits);
+        return bits;
+    }
+
+    private void requirePacked() {
+        if (chunks != null) {
+            throw new IllegalStateException("A chunked level has no packed plane");
+        }
     }
 
     int tileSize() {
@@ -155,7 +268,7 @@ final class Level {
     void render() {
         for (int row = 0; row < rows; row++) {
             for (int col = 0; col < columns; col++) {
-                drawTile(col, row, tiles[row][col]);
+                drawTile(col, row, tileAt(col, row));
             }
         }
     }
@@ -307,4 +420,18 @@ final class Level {
     private float clampColor(float value) {
         return Math.max(0f, Math.min(1f, value));
     }
+
+    /** Storage handed to a level by {@link LevelBuilder}, {@link LevelFile} or the chunked generator. */
+    record Layout(
+        int columns,
+        int rows,
+        ByteBuffer tiles,
+        LongBuffer walkable,
+        ChunkedTileStore chunks,
+        GridPosition start,
+        GridPosition exit,
+        List<GridPosition> playerSpawnTiles,
+        List<GridPosition> enemySpawnTiles
+    ) {
+    }
 }
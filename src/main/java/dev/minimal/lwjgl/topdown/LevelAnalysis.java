@@ -0,0 +1,151 @@
+package dev.minimal.lwjgl.topdown;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Offline checks for generated boards: terrain ratios plus a breadth-first flood from the start tile that verifies
+ * the exit and every spawn tile can be reached. {@link #analyze} keeps one visited bit per tile and only the current
+ * wavefront as tile indices, so it also fits chunked boards far too large for a per-tile array. Floods run on the
+ * padded indices of {@link Level#cellIndex}, whose wall border lets them step without bounds checks; packed levels
+ * test walkability straight from their bitset.
+ */
+final class LevelAnalysis {
+    private LevelAnalysis() {
+    }
+
+    static Stats analyze(Level level) {
+        int columns = level.columns();
+        int rows = level.rows();
+        int walls = 0;
+        int hazards = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < columns; col++) {
+                TileType tile = level.tileAt(col, row);
+                if (tile == TileType.WALL) {
+                    walls++;
+                } else if (tile == TileType.HAZARD) {
+                    hazards++;
+                }
+            }
+        }
+
+        long[] reached = new long[Level.wordsFor(level.stride() * (rows + 2))];
+        int pathLength = floodLayers(level, level.startPosition(), reached);
+        int unreachableSpawns = countUnreachable(level, reached, level.playerSpawnTiles())
+            + countUnreachable(level, reached, level.enemySpawnTiles());
+        float cells = (float) columns * rows;
+        return new Stats(walls / cells, hazards / cells, pathLength, unreachableSpawns);
+    }
+
+    /**
+     * Floods from {@code origin} one distance layer at a time, setting the bit at {@link Level#cellIndex} in
+     * {@code reached} for every tile it reaches. Returns the steps to the exit, or {@code -1} when the exit is cut off.
+     */
+    private static int floodLayers(Level level, GridPosition origin, long[] reached) {
+        long[] walkable = level.isPacked() ? level.walkableBits() : null;
+        int[] neighbours = neighbourOffsets(level);
+        GridPosition exit = level.exitPosition();
+        int exitIndex = level.cellIndex(exit.col(), exit.row());
+        int exitDistance = -1;
+        int[] layer = new int[64];
+        int[] next = new int[64];
+        int layerSize = 1;
+        layer[0] = level.cellIndex(origin.col(), origin.row());
+        reached[layer[0] >>> 6] |= 1L << layer[0];
+        for (int distance = 0; layerSize > 0; distance++) {
+            int nextSize = 0;
+            for (int i = 0; i < layerSize; i++) {
+                int current = layer[i];
+                if (current == exitIndex) {
+                    exitDistance = distance;
+                }
+                for (int offset : neighbours) {
+                    int index = current + offset;
+                    if (!isOpen(level, walkable, index) || (reached[index >>> 6] & (1L << index)) != 0) {
+                        continue;
+                    }
+                    reached[index >>> 6] |= 1L << index;
+                    if (nextSize == next.length) {
+                        next = Arrays.copyOf(next, nextSize * 2);
+                    }
+                    next[nextSize++] = index;
+                }
+            }
+            int[] swap = layer;
+            layer = next;
+            next = swap;
+            layerSize = nextSize;
+        }
+        return exitDistance;
+    }
+
+    /** Step counts from {@code origin} indexed by {@code row * columns + col}; {@code -1} marks unreachable tiles. */
+    static int[] floodFrom(Level level, GridPosition origin) {
+        long[] walkable = level.isPacked() ? level.walkableBits() : null;
+        int columns = level.columns();
+        int rows = level.rows();
+        int[] neighbours = neighbourOffsets(level);
+        int[] padded = new int[level.stride() * (rows + 2)];
+        Arrays.fill(padded, -1);
+        int[] queue = new int[padded.length];
+        int head = 0;
+        int tail = 0;
+        int originIndex = level.cellIndex(origin.col(), origin.row());
+        padded[originIndex] = 0;
+        queue[tail++] = originIndex;
+        while (head < tail) {
+            int current = queue[head++];
+            for (int offset : neighbours) {
+                int next = current + offset;
+                if (!isOpen(level, walkable, next) || padded[next] >= 0) {
+                    continue;
+                }
+                padded[next] = padded[current] + 1;
+                queue[tail++] = next;
+            }
+        }
+        int[] distances = new int[columns * rows];
+        for (int row = 0; row < rows; row++) {
+            System.arraycopy(padded, level.cellIndex(0, row), distances, row * columns, columns);
+        }
+        return distances;
+    }
+
+    /** Padded-index offsets of the four neighbours, in {@link Direction#DIRECTIONS} order. */
+    private static int[] neighbourOffsets(Level level) {
+        return new int[] {-level.stride(), level.stride(), -1, 1};
+    }
+
+    /**
+     * Walkability of a padded cell: one bit test on packed levels, a chunk lookup otherwise. Border cells map to
+     * column or row {@code -1} or one past the end, which {@link Level#isWalkable} reports as blocked.
+     */
+    private static boolean isOpen(Level level, long[] walkable, int index) {
+        if (walkable != null) {
+            return (walkable[index >>> 6] & (1L << index)) != 0;
+        }
+        int stride = level.stride();
+        return level.isWalkable(index % stride - 1, index / stride - 1);
+    }
+
+    private static int countUnreachable(Level level, long[] reached, List<GridPosition> tiles) {
+        int unreachable = 0;
+        for (GridPosition tile : tiles) {
+            int index = level.cellIndex(tile.col(), tile.row());
+            if ((reached[index >>> 6] & (1L << index)) == 0) {
+                unreachable++;
+            }
+        }
+        return unreachable;
+    }
+
+    /**
+     * @param shortestPath steps from start to exit, or {@code -1} when the exit is cut off
+     */
+    record Stats(float wallRatio, float hazardRatio, int shortestPath, int unreachableSpawns) {
+        boolean connected() {
+            return shortestPath >= 0 && unreachableSpawns == 0;
+        }
+    }
+}
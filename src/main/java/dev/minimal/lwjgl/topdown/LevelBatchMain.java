@@ -0,0 +1,172 @@
+package dev.minimal.lwjgl.topdown;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Headless level pre-baking: generates {@code count} boards over consecutive seeds, validates connectivity and prints
+ * per-batch throughput. Never touches GLFW, so it runs on machines without a display.
+ *
+ * <p>Accepts the game's board flags ({@code --width}, {@code --height}, {@code --tilesize}, {@code --hazard},
+ * {@code --seed}) plus {@code --count}, {@code --threads}, {@code --generator=sequential|parallel|chunked},
+ * {@code --out=dir} to write every level through {@link LevelFile}, and {@code --verbose=true} for one CSV line per
+ * level, including what the {@link RegionRepair} pass changed. The chunked generator keeps only
+ * {@link LevelGenerator#DEFAULT_RESIDENT_CHUNKS} chunks in memory, for boards too large to hold as one plane; it cannot
+ * be combined with {@code --out}, since a level file is that plane.
+ */
+public final class LevelBatchMain {
+    private static final int DEFAULT_COUNT = 100;
+    private static final List<String> GENERATORS = List.of("sequential", "parallel", "chunked");
+
+    private LevelBatchMain() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        GameConfig config = GameConfig.fromArgs(args);
+        Map<String, String> options = GameConfig.parseOptions(args);
+        int count = GameConfig.parsePositiveInt(options.getOrDefault("count", ""), DEFAULT_COUNT);
+        int threads = GameConfig.parsePositiveInt(options.getOrDefault("threads", ""),
+            Runtime.getRuntime().availableProcessors());
+        String generator = options.getOrDefault("generator", "sequential").toLowerCase(Locale.ROOT);
+        if (!GENERATORS.contains(generator)) {
+            throw new IllegalArgumentException("Unknown --generator=" + generator + ", expected one of " + GENERATORS);
+        }
+        boolean parallelGenerator = generator.equals("parallel");
+        boolean verbose = Boolean.parseBoolean(options.get("verbose"));
+        Path outDir = options.containsKey("out") ? Path.of(options.get("out")) : null;
+        if (outDir != null && generator.equals("chunked")) {
+            throw new IllegalArgumentException("--out cannot be combined with --generator=chunked: a level file holds "
+                + "the whole tile plane, which chunked boards never build");
+        }
+        LevelSettings settings = config.toLevelSettings();
+
+        if (outDir != null) {
+            try {
+                Files.createDirectories(outDir);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        System.out.printf(Locale.ROOT, "Generating %d levels (%dx%d, hazard %.2f) from seed %d on %d threads (%s)%n",
+            count, settings.width(), settings.height(), settings.hazardDensity(), settings.seed(), threads,
+            generator + " generator");
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        ForkJoinPool bandPool = parallelGenerator ? new ForkJoinPool(threads) : null;
+        List<Report> reports = new ArrayList<>(count);
+        long batchStart = System.nanoTime();
+        try {
+            List<Future<Report>> futures = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long seed = settings.seed() + i;
+                futures.add(executor.submit(() -> generateOne(settings, seed, generator, bandPool, outDir)));
+            }
+            for (Future<Report> future : futures) {
+                reports.add(future.get());
+            }
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Level generation failed", ex.getCause());
+        } finally {
+            executor.shutdownNow();
+            if (bandPool != null) {
+                bandPool.shutdownNow();
+            }
+        }
+        long batchNanos = System.nanoTime() - batchStart;
+
+        if (verbose) {
+            System.out.println("seed,gen_ms,wall_ratio,hazard_ratio,shortest_path,unreachable_spawns,carved_tiles,"
+                + "filled_tiles");
+            for (Report report : reports) {
+                LevelAnalysis.Stats stats = report.stats();
+                System.out.printf(Locale.ROOT, "%d,%.3f,%.4f,%.4f,%d,%d,%d,%d%n", report.seed(), report.nanos() / 1e6,
+                    stats.wallRatio(), stats.hazardRatio(), stats.shortestPath(), stats.unreachableSpawns(),
+                    report.repair().carvedTiles(), report.repair().filledTiles());
+            }
+        }
+        printSummary(reports, batchNanos);
+    }
+
+    private static Report generateOne(LevelSettings settings, long seed, String kind, ForkJoinPool bandPool,
+                                      Path outDir) throws IOException {
+        long start = System.nanoTime();
+        LevelGenerator generator = new LevelGenerator(settings.width(), settings.height(), settings.tileSize(),
+            settings.hazardDensity(), seed);
+        Level level = switch (kind) {
+            case "parallel" -> generator.generateParallel(bandPool);
+            case "chunked" -> generator.generateChunked(LevelGenerator.DEFAULT_CHUNK_SIZE,
+                LevelGenerator.DEFAULT_RESIDENT_CHUNKS);
+            default -> generator.generate();
+        };
+        long nanos = System.nanoTime() - start;
+        LevelAnalysis.Stats stats = LevelAnalysis.analyze(level);
+        if (outDir != null && stats.connected()) {
+            LevelFile.write(level, outDir.resolve("level-" + seed + ".lvl"));
+        }
+        return new Report(seed, nanos, stats, generator.lastRepair());
+    }
+
+    private static void printSummary(List<Report> reports, long batchNanos) {
+        if (reports.isEmpty()) {
+            return;
+        }
+        long[] nanos = new long[reports.size()];
+        double wallRatio = 0;
+        double hazardRatio = 0;
+        long pathTotal = 0;
+        int connected = 0;
+        long carved = 0;
+        long filled = 0;
+        int repaired = 0;
+        for (int i = 0; i < reports.size(); i++) {
+            Report report = reports.get(i);
+            nanos[i] = report.nanos();
+            wallRatio += report.stats().wallRatio();
+            hazardRatio += report.stats().hazardRatio();
+            carved += report.repair().carvedTiles();
+            filled += report.repair().filledTiles();
+            if (report.repair().carvedTiles() + report.repair().filledTiles() > 0) {
+                repaired++;
+            }
+            if (report.stats().connected()) {
+                connected++;
+                pathTotal += report.stats().shortestPath();
+            } else {
+                System.out.printf(Locale.ROOT, "Seed %d failed validation: exit path %d, %d unreachable spawn tiles%n",
+                    report.seed(), report.stats().shortestPath(), report.stats().unreachableSpawns());
+            }
+        }
+        Arrays.sort(nanos);
+        int total = reports.size();
+        double seconds = batchNanos / 1e9;
+        System.out.printf(Locale.ROOT, "Levels: %d (%d connected, %d rejected)%n", total, connected, total - connected);
+        System.out.printf(Locale.ROOT, "Throughput: %.1f levels/sec over %.2f s%n", total / seconds, seconds);
+        System.out.printf(Locale.ROOT, "Generation time: p50 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+            percentile(nanos, 0.50) / 1e6, percentile(nanos, 0.99) / 1e6, nanos[total - 1] / 1e6);
+        System.out.printf(Locale.ROOT, "Mean wall ratio %.3f, hazard ratio %.3f, shortest path %.1f tiles%n",
+            wallRatio / total, hazardRatio / total, connected == 0 ? 0.0 : pathTotal / (double) connected);
+        System.out.printf(Locale.ROOT, "Region repair: %d levels changed, %d tiles carved, %d tiles filled%n",
+            repaired, carved, filled);
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private record Report(long seed, long nanos, LevelAnalysis.Stats stats, RegionRepair.Result repair) {
+    }
+}
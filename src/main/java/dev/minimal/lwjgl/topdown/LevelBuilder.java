@@ -0,0 +1,210 @@
+package dev.minimal.lwjgl.topdown;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes tiles straight into the padded plane a packed {@link Level} is backed by. Start, exit and spawn markers are
+ * tracked as they are written, so {@link #build(int)} only has to derive the walkability bitset before handing the
+ * plane over without copying it. Every cell starts as {@link TileType#FLOOR}.
+ */
+final class LevelBuilder {
+    private final int columns;
+    private final int rows;
+    private final int stride;
+    private final byte[] tiles;
+    private int startIndex = -1;
+    private int exitIndex = -1;
+    private int[] playerSpawns = new int[8];
+    private int playerSpawnCount;
+    private int[] enemySpawns = new int[8];
+    private int enemySpawnCount;
+    private boolean built;
+
+    LevelBuilder(int columns, int rows) {
+        if (columns <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("Level dimensions must be positive");
+        }
+        this.columns = columns;
+        this.rows = rows;
+        this.stride = columns + 2;
+        this.tiles = new byte[stride * (rows + 2)];
+        byte wall = (byte) TileType.WALL.ordinal();
+        Arrays.fill(tiles, 0, stride, wall);
+        Arrays.fill(tiles, tiles.length - stride, tiles.length, wall);
+        for (int row = 1; row <= rows; row++) {
+            tiles[row * stride] = wall;
+            tiles[row * stride + stride - 1] = wall;
+        }
+    }
+
+    static LevelBuilder parse(String[] layout) {
+        if (layout.length == 0) {
+            throw new IllegalArgumentException("Level layout requires rows");
+        }
+        LevelBuilder builder = new LevelBuilder(layout[0].length(), layout.length);
+        for (int row = 0; row < builder.rows; row++) {
+            String line = layout[row];
+            if (line.length() != builder.columns) {
+                throw new IllegalStateException("Inconsistent level width at row " + row);
+            }
+            for (int col = 0; col < builder.columns; col++) {
+                builder.set(col, row, TileType.fromSymbol(line.charAt(col)));
+            }
+        }
+        return builder;
+    }
+
+    int columns() {
+        return columns;
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    TileType tileAt(int col, int row) {
+        return TileType.fromOrdinal(tiles[indexOf(col, row)]);
+    }
+
+    /**
+     * Writes one tile. Separate threads may write disjoint cells concurrently as long as no marker tile is written
+     * or overwritten, since only marker bookkeeping touches shared state.
+     */
+    void set(int col, int row, TileType tile) {
+        int index = indexOf(col, row);
+        TileType previous = TileType.fromOrdinal(tiles[index]);
+        if (previous == tile) {
+            return;
+        }
+        if (previous.isMarker()) {
+            forgetMarker(previous, index);
+        }
+        tiles[index] = (byte) tile.ordinal();
+        if (tile.isMarker()) {
+            rememberMarker(tile, index);
+        }
+    }
+
+    int stride() {
+        return stride;
+    }
+
+    /** Number of padded cells, including the wall border. */
+    int cellCount() {
+        return tiles.length;
+    }
+
+    int cellIndex(int col, int row) {
+        return indexOf(col, row);
+    }
+
+    boolean isWalkableCell(int index) {
+        return TileType.isWalkableOrdinal(tiles[index]);
+    }
+
+    int startCell() {
+        return startIndex;
+    }
+
+    /** Exit and spawn cells: everything that must share the start tile's region. */
+    int[] requiredCells() {
+        int[] cells = new int[1 + playerSpawnCount + enemySpawnCount];
+        cells[0] = exitIndex;
+        System.arraycopy(playerSpawns, 0, cells, 1, playerSpawnCount);
+        System.arraycopy(enemySpawns, 0, cells, 1 + playerSpawnCount, enemySpawnCount);
+        return cells;
+    }
+
+    void setCell(int index, TileType tile) {
+        set(index % stride - 1, index / stride - 1, tile);
+    }
+
+    Level build(int tileSize) {
+        return new Level(layout(), tileSize);
+    }
+
+    /** Hands the plane over to a level. The builder must not be written to afterwards. */
+    Level.Layout layout() {
+        if (built) {
+            throw new IllegalStateException("Level already built from this builder");
+        }
+        built = true;
+        long[] walkable = new long[Level.wordsFor(tiles.length)];
+        for (int index = 0; index < tiles.length; index++) {
+            if (TileType.isWalkableOrdinal(tiles[index])) {
+                walkable[index >>> 6] |= 1L << index;
+            }
+        }
+        return new Level.Layout(columns, rows, ByteBuffer.wrap(tiles), LongBuffer.wrap(walkable), null,
+            positionOf(startIndex), positionOf(exitIndex), positionsOf(playerSpawns, playerSpawnCount),
+            positionsOf(enemySpawns, enemySpawnCount));
+    }
+
+    private int indexOf(int col, int row) {
+        if (Integer.compareUnsigned(col, columns) >= 0 | Integer.compareUnsigned(row, rows) >= 0) {
+            throw new IndexOutOfBoundsException("Tile (" + col + "," + row + ") is outside the level");
+        }
+        return (row + 1) * stride + col + 1;
+    }
+
+    private void rememberMarker(TileType tile, int index) {
+        switch (tile) {
+            case START -> startIndex = index;
+            case EXIT -> exitIndex = index;
+            case PLAYER_SPAWN -> {
+                if (playerSpawnCount == playerSpawns.length) {
+                    playerSpawns = Arrays.copyOf(playerSpawns, playerSpawnCount * 2);
+                }
+                playerSpawns[playerSpawnCount++] = index;
+            }
+            case ENEMY_SPAWN -> {
+                if (enemySpawnCount == enemySpawns.length) {
+                    enemySpawns = Arrays.copyOf(enemySpawns, enemySpawnCount * 2);
+                }
+                enemySpawns[enemySpawnCount++] = index;
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void forgetMarker(TileType tile, int index) {
+        switch (tile) {
+            case START -> startIndex = startIndex == index ? -1 : startIndex;
+            case EXIT -> exitIndex = exitIndex == index ? -1 : exitIndex;
+            case PLAYER_SPAWN -> playerSpawnCount = remove(playerSpawns, playerSpawnCount, index);
+            case ENEMY_SPAWN -> enemySpawnCount = remove(enemySpawns, enemySpawnCount, index);
+            default -> {
+            }
+        }
+    }
+
+    private static int remove(int[] indices, int count, int index) {
+        for (int i = 0; i < count; i++) {
+            if (indices[i] == index) {
+                System.arraycopy(indices, i + 1, indices, i, count - i - 1);
+                return count - 1;
+            }
+        }
+        return count;
+    }
+
+    private GridPosition positionOf(int index) {
+        return index < 0 ? null : new GridPosition(index % stride - 1, index / stride - 1);
+    }
+
+    /** Spawn lists come out in row-major order, matching a top-to-bottom scan of the layout. */
+    private List<GridPosition> positionsOf(int[] indices, int count) {
+        int[] sorted = Arrays.copyOf(indices, count);
+        Arrays.sort(sorted);
+        List<GridPosition> positions = new ArrayList<>(count);
+        for (int index : sorted) {
+            positions.add(positionOf(index));
+        }
+        return List.copyOf(positions);
+    }
+}
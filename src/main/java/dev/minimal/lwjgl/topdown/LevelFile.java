@@ -0,0 +1,257 @@
+package dev.minimal.lwjgl.topdown;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary level format. Layout (little endian):
+ * <pre>
+ * int   magic 'SRLV', int version
+ * int   columns, rows, tileSize
+ * int   startCol, startRow, exitCol, exitRow
+ * int   playerSpawnCount, enemySpawnCount, then (col, row) pairs for each list
+ * pad   to an 8-byte boundary, so the header is 11 ints plus the spawn pairs, rounded up
+ * long  walkability bitset over the padded plane
+ * byte  padded tile plane, (columns + 2) * (rows + 2) ordinals
+ * </pre>
+ * Both planes use exactly the in-memory layout of {@link Level}, so {@link #read(Path)} maps the file and hands
+ * slices of it to the level without copying tiles, after one pass that rejects a file whose planes do not describe a
+ * valid level, whose tile size is not positive, or whose start, exit or spawns are off the board or not walkable.
+ */
+final class LevelFile {
+    private static final int MAGIC = 0x564C5253;
+    /** Version 1 reserved two unused ints after the spawn counts. */
+    private static final int VERSION = 2;
+    /** Magic, version, dimensions and tile size, start and exit, and the two spawn counts. */
+    private static final int FIXED_HEADER_BYTES = 11 * Integer.BYTES;
+
+    private LevelFile() {
+    }
+
+    static void write(Level level, Path path) throws IOException {
+        int columns = level.columns();
+        int rows = level.rows();
+        int cells = (columns + 2) * (rows + 2);
+        List<GridPosition> playerSpawns = level.playerSpawnTiles();
+        List<GridPosition> enemySpawns = level.enemySpawnTiles();
+        int headerBytes = alignTo8(FIXED_HEADER_BYTES + (playerSpawns.size() + enemySpawns.size()) * 2 * Integer.BYTES);
+
+        ByteBuffer header = ByteBuffer.allocate(headerBytes).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION);
+        header.putInt(columns).putInt(rows).putInt(level.tileSize());
+        putPosition(header, level.startPosition());
+        putPosition(header, level.exitPosition());
+        header.putInt(playerSpawns.size()).putInt(enemySpawns.size());
+        for (GridPosition spawn : playerSpawns) {
+            putPosition(header, spawn);
+        }
+        for (GridPosition spawn : enemySpawns) {
+            putPosition(header, spawn);
+        }
+        header.position(headerBytes).flip();
+
+        ByteBuffer tiles;
+        LongBuffer walkable;
+        if (level.isPacked()) {
+            tiles = level.tilePlane();
+            walkable = level.walkablePlane();
+        } else {
+            byte[] plane = new byte[cells];
+            long[] bits = new long[Level.wordsFor(cells)];
+            rasterize(level, plane, bits);
+            tiles = ByteBuffer.wrap(plane);
+            walkable = LongBuffer.wrap(bits);
+        }
+        ByteBuffer walkableBytes = ByteBuffer.allocate(walkable.remaining() * Long.BYTES)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        walkableBytes.asLongBuffer().put(walkable);
+
+        // Write beside the target and move it into place, so a failed write never leaves a truncated level behind.
+        // A level read from the destination keeps it mapped until collected; Windows refuses to replace a mapped
+        // file, so there the move fails with an IOException while such a level is alive. Write to a new path then.
+        Path staging = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(staging, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer[] parts = {header, walkableBytes, tiles};
+            long total = headerBytes + (long) walkableBytes.remaining() + tiles.remaining();
+            long written = 0;
+            while (written < total) {
+                written += channel.write(parts);
+            }
+        }
+        Files.move(staging, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static Level read(Path path) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < FIXED_HEADER_BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a level file: " + path);
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported level file version " + version + ": " + path);
+        }
+        int columns = buffer.getInt();
+        int rows = buffer.getInt();
+        int tileSize = buffer.getInt();
+        GridPosition start = getPosition(buffer);
+        GridPosition exit = getPosition(buffer);
+        int playerSpawnCount = buffer.getInt();
+        int enemySpawnCount = buffer.getInt();
+        long spawnBytes = ((long) playerSpawnCount + enemySpawnCount) * 2 * Integer.BYTES;
+        long paddedCells = ((long) columns + 2) * ((long) rows + 2);
+        if (columns <= 0 || rows <= 0 || tileSize <= 0 || playerSpawnCount < 0 || enemySpawnCount < 0
+            || spawnBytes > buffer.remaining() || paddedCells > buffer.capacity()) {
+            throw new IOException("Corrupt level header: " + path);
+        }
+        int headerBytes = alignTo8(FIXED_HEADER_BYTES + (int) spawnBytes);
+        int cells = (int) paddedCells;
+        int walkableBytes = Level.wordsFor(cells) * Long.BYTES;
+        if ((long) headerBytes + walkableBytes + cells != buffer.capacity()) {
+            throw new IOException("Level file size does not match its header: " + path);
+        }
+        List<GridPosition> playerSpawns = getPositions(buffer, playerSpawnCount);
+        List<GridPosition> enemySpawns = getPositions(buffer, enemySpawnCount);
+
+        LongBuffer walkable = buffer.slice(headerBytes, walkableBytes).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        ByteBuffer tiles = buffer.slice(headerBytes + walkableBytes, cells);
+        checkPlanes(tiles, walkable, columns, rows, path);
+        checkPosition(start, tiles, columns, rows, path);
+        checkPosition(exit, tiles, columns, rows, path);
+        for (GridPosition spawn : playerSpawns) {
+            checkPosition(spawn, tiles, columns, rows, path);
+        }
+        for (GridPosition spawn : enemySpawns) {
+            checkPosition(spawn, tiles, columns, rows, path);
+        }
+        return Level.fromPlanes(columns, rows, tileSize, tiles, walkable, start, exit, playerSpawns, enemySpawns);
+    }
+
+    /**
+     * Level trusts its planes, so check them once here: every ordinal names a tile, the padding ring is wall, and the
+     * walkability bitset agrees with the tiles, with no bits set past the plane. Copies the plane out a row at a time
+     * and compares the bitset a word at a time against the bits the tiles call for.
+     */
+    private static void checkPlanes(ByteBuffer tiles, LongBuffer walkable, int columns, int rows, Path path)
+        throws IOException {
+        int tileTypes = TileType.values().length;
+        int wall = TileType.WALL.ordinal();
+        int stride = columns + 2;
+        byte[] line = new byte[stride];
+        int index = 0;
+        long expected = 0L;
+        for (int row = 0; row < rows + 2; row++) {
+            tiles.get(index, line);
+            boolean borderRow = row == 0 || row == rows + 1;
+            if ((line[0] & 0xFF) != wall || (line[stride - 1] & 0xFF) != wall) {
+                throw new IOException("Corrupt level file, open border in row " + row + ": " + path);
+            }
+            for (int col = 0; col < stride; col++, index++) {
+                int ordinal = line[col] & 0xFF;
+                if (ordinal >= tileTypes) {
+                    throw new IOException("Corrupt level file, unknown tile " + ordinal + " at cell " + index + ": "
+                        + path);
+                }
+                if (borderRow && ordinal != wall) {
+                    throw new IOException("Corrupt level file, open border in row " + row + ": " + path);
+                }
+                if (TileType.isWalkableOrdinal(ordinal)) {
+                    expected |= 1L << index;
+                }
+                if ((index & 63) == 63) {
+                    checkWalkableWord(walkable, index >>> 6, expected, index + 1, path);
+                    expected = 0L;
+                }
+            }
+        }
+        if ((index & 63) != 0) {
+            checkWalkableWord(walkable, index >>> 6, expected, index, path);
+        }
+    }
+
+    /** Compares one bitset word with the bits the tiles call for; {@code cells} is where the plane ends. */
+    private static void checkWalkableWord(LongBuffer walkable, int word, long expected, int cells, Path path)
+        throws IOException {
+        long difference = walkable.get(word) ^ expected;
+        if (difference == 0L) {
+            return;
+        }
+        int cell = (word << 6) + Long.numberOfTrailingZeros(difference);
+        if (cell >= cells) {
+            throw new IOException("Corrupt level file, walkability bits past the plane: " + path);
+        }
+        throw new IOException("Corrupt level file, walkability disagrees with the tile at cell " + cell + ": " + path);
+    }
+
+    /** Start, exit and spawn tiles must lie on the board and be walkable; call after {@link #checkPlanes}. */
+    private static void checkPosition(GridPosition position, ByteBuffer tiles, int columns, int rows, Path path)
+        throws IOException {
+        if (position.col() < 0 || position.col() >= columns || position.row() < 0 || position.row() >= rows) {
+            throw new IOException("Corrupt level file, position " + position.col() + "," + position.row()
+                + " is off the board: " + path);
+        }
+        int index = (position.row() + 1) * (columns + 2) + position.col() + 1;
+        if (!TileType.isWalkableOrdinal(tiles.get(index))) {
+            throw new IOException("Corrupt level file, position " + position.col() + "," + position.row()
+                + " is not walkable: " + path);
+        }
+    }
+
+    /** Copies a chunked level into a padded plane, one chunk at a time so each chunk is generated only once. */
+    private static void rasterize(Level level, byte[] plane, long[] bits) {
+        Arrays.fill(plane, (byte) TileType.WALL.ordinal());
+        int stride = level.columns() + 2;
+        int block = level.chunkSize();
+        for (int blockRow = 0; blockRow < level.rows(); blockRow += block) {
+            for (int blockCol = 0; blockCol < level.columns(); blockCol += block) {
+                int rowEnd = Math.min(level.rows(), blockRow + block);
+                int colEnd = Math.min(level.columns(), blockCol + block);
+                for (int row = blockRow; row < rowEnd; row++) {
+                    for (int col = blockCol; col < colEnd; col++) {
+                        TileType tile = level.tileAt(col, row);
+                        int index = (row + 1) * stride + col + 1;
+                        plane[index] = (byte) tile.ordinal();
+                        if (!tile.blocksMovement) {
+                            bits[index >>> 6] |= 1L << index;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void putPosition(ByteBuffer buffer, GridPosition position) {
+        buffer.putInt(position.col()).putInt(position.row());
+    }
+
+    private static GridPosition getPosition(ByteBuffer buffer) {
+        return new GridPosition(buffer.getInt(), buffer.getInt());
+    }
+
+    private static List<GridPosition> getPositions(ByteBuffer buffer, int count) {
+        List<GridPosition> positions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            positions.add(getPosition(buffer));
+        }
+        return positions;
+    }
+
+    private static int alignTo8(int value) {
+        return (value + 7) & ~7;
+    }
+}
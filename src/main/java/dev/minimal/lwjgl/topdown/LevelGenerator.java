@@ -1,25 +1,32 @@
 package dev.minimal.lwjgl.topdown;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.random.RandomGenerator;
 
 /**
  * Generates open-area arenas with scattered obstacles and hazards while guaranteeing a clear route between
- * the spawn and exit.
+ * the spawn and exit. Packed levels finish with a {@link RegionRepair} pass, so spawn zones and the exit always share
+ * the start tile's region and no unreachable floor pockets remain.
  */
 final class LevelGenerator {
-    private static final char WALL = '#';
-    private static final char FLOOR = '.';
-    private static final char START = 'S';
-    private static final char EXIT = 'G';
-    private static final char HAZARD = 'X';
-    private static final char PLAYER_SPAWN = 'P';
-    private static final char ENEMY_SPAWN = 'E';
+    private static final int SPAWN_BLOCK_SIZE = 2;
+    static final int DEFAULT_CHUNK_SIZE = 32;
+    static final int DEFAULT_RESIDENT_CHUNKS = 1024;
+    /** Rows per unit of parallel work. Fixed so the split, and therefore the output, never depends on core count. */
+    private static final int BAND_ROWS = 64;
 
     private final int width;
     private final int height;
     private final int tileSize;
     private final Random random;
     private final float hazardChance;
+    private final long seed;
+    private RegionRepair.Result lastRepair = new RegionRepair.Result(0, 0);
 
     LevelGenerator(int width, int height, int tileSize, float hazardChance, long seed) {
         if (width % 2 == 0 || height % 2 == 0) {
@@ -29,43 +36,127 @@ final class LevelGenerator {
         this.height = height;
         this.tileSize = tileSize;
         this.hazardChance = hazardChance;
+        this.seed = seed;
         this.random = new Random(seed);
     }
 
     Level generate() {
-        char[][] grid = new char[height][width];
+        LevelBuilder grid = new LevelBuilder(width, height);
         boolean[][] walkway = new boolean[height][width];
         fillWithGround(grid);
 
         GridPosition start = new GridPosition(1, Math.max(1, height / 2));
         GridPosition exit = new GridPosition(width - 2, random.nextInt(1, height - 1));
 
-        carveGuidedPath(grid, walkway, start, exit);
+        carveGuidedPath(grid, walkway, start, exit, random);
         placeObstacleClusters(grid, walkway);
         sprinkleHazards(grid, walkway);
         placeSpawnZones(grid, start, exit);
 
-        grid[start.row()][start.col()] = START;
-        grid[exit.row()][exit.col()] = EXIT;
-        return new Level(toRows(grid), tileSize);
+        grid.set(start.col(), start.row(), TileType.START);
+        grid.set(exit.col(), exit.row(), TileType.EXIT);
+        lastRepair = RegionRepair.connect(grid);
+        return grid.build(tileSize);
     }
 
-    private void fillWithGround(char[][] grid) {
-        for (int row = 0; row < height; row++) {
-            for (int col = 0; col < width; col++) {
-                boolean isBorder = row == 0 || col == 0 || row == height - 1 || col == width - 1;
-                grid[row][col] = isBorder ? WALL : FLOOR;
+    /**
+     * What the {@link RegionRepair} pass of the last generated level changed; chunked levels skip the pass and report
+     * nothing.
+     */
+    RegionRepair.Result lastRepair() {
+        return lastRepair;
+    }
+
+    /**
+     * Generates the same kind of arena as {@link #generate()}, with obstacles and hazards filled in fixed-height row
+     * bands on {@code pool}. Each band draws from its own stream derived from the seed and the band index, so a seed
+     * yields the same level for any pool size (though not the same level as the sequential generator).
+     */
+    Level generateParallel(ForkJoinPool pool) {
+        LevelBuilder grid = new LevelBuilder(width, height);
+        boolean[][] walkway = new boolean[height][width];
+        fillWithGround(grid);
+
+        SplittableRandom layoutRandom = new SplittableRandom(seed);
+        GridPosition start = new GridPosition(1, Math.max(1, height / 2));
+        GridPosition exit = new GridPosition(width - 2, layoutRandom.nextInt(1, height - 1));
+        carveGuidedPath(grid, walkway, start, exit, layoutRandom);
+
+        int interiorRows = height - 2;
+        int bands = (interiorRows + BAND_ROWS - 1) / BAND_ROWS;
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(bands);
+        for (int band = 0; band < bands; band++) {
+            int firstRow = 1 + band * BAND_ROWS;
+            int endRow = Math.min(height - 1, firstRow + BAND_ROWS);
+            SplittableRandom bandRandom = new SplittableRandom(mix64(seed ^ mix64(band + 0x9E3779B97F4A7C15L)));
+            tasks.add(pool.submit(() -> fillBand(grid, walkway, firstRow, endRow, bandRandom)));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+
+        placeSpawnZones(grid, start, exit);
+        grid.set(start.col(), start.row(), TileType.START);
+        grid.set(exit.col(), exit.row(), TileType.EXIT);
+        lastRepair = RegionRepair.connect(grid);
+        return grid.build(tileSize);
+    }
+
+    /** Obstacles, pillars and hazards for rows {@code [firstRow, endRow)}; writes never leave the band. */
+    private void fillBand(LevelBuilder grid, boolean[][] walkway, int firstRow, int endRow, RandomGenerator rng) {
+        int bandArea = width * (endRow - firstRow);
+        int clusters = Math.max(1, bandArea / 150);
+        for (int i = 0; i < clusters; i++) {
+            int clusterWidth = rng.nextInt(2, 5);
+            int clusterHeight = rng.nextInt(2, 5);
+            int col = rng.nextInt(1, Math.max(2, width - clusterWidth - 1));
+            int row = rng.nextInt(firstRow, endRow);
+            for (int y = row; y < Math.min(endRow, row + clusterHeight); y++) {
+                for (int x = col; x < Math.min(width - 1, col + clusterWidth); x++) {
+                    if (!walkway[y][x]) {
+                        grid.set(x, y, TileType.WALL);
+                    }
+                }
             }
         }
+
+        int pillars = Math.max(1, bandArea / 120);
+        for (int i = 0; i < pillars; i++) {
+            int col = rng.nextInt(1, width - 1);
+            int row = rng.nextInt(firstRow, endRow);
+            if (!walkway[row][col]) {
+                grid.set(col, row, TileType.WALL);
+            }
+        }
+
+        for (int row = firstRow; row < endRow; row++) {
+            for (int col = 1; col < width - 1; col++) {
+                if (!walkway[row][col] && grid.tileAt(col, row) == TileType.FLOOR && rng.nextFloat() < hazardChance) {
+                    grid.set(col, row, TileType.HAZARD);
+                }
+            }
+        }
+    }
+
+    private void fillWithGround(LevelBuilder grid) {
+        for (int col = 0; col < width; col++) {
+            grid.set(col, 0, TileType.WALL);
+            grid.set(col, height - 1, TileType.WALL);
+        }
+        for (int row = 1; row < height - 1; row++) {
+            grid.set(0, row, TileType.WALL);
+            grid.set(width - 1, row, TileType.WALL);
+        }
     }
 
-    private void carveGuidedPath(char[][] grid, boolean[][] walkway, GridPosition start, GridPosition exit) {
+    private void carveGuidedPath(LevelBuilder grid, boolean[][] walkway, GridPosition start, GridPosition exit,
+                                 RandomGenerator rng) {
         int col = start.col();
         int row = start.row();
         walkway[row][col] = true;
 
         while (col != exit.col() || row != exit.row()) {
-            boolean moveHorizontally = random.nextBoolean();
+            boolean moveHorizontally = rng.nextBoolean();
             if (col == exit.col()) {
                 moveHorizontally = false;
             } else if (row == exit.row()) {
@@ -82,11 +173,11 @@ final class LevelGenerator {
                 break;
             }
             walkway[row][col] = true;
-            grid[row][col] = FLOOR;
+            grid.set(col, row, TileType.FLOOR);
         }
     }
 
-    private void placeObstacleClusters(char[][] grid, boolean[][] walkway) {
+    private void placeObstacleClusters(LevelBuilder grid, boolean[][] walkway) {
         int clusters = Math.max(3, (width * height) / 150);
         for (int i = 0; i < clusters; i++) {
             int clusterWidth = random.nextInt(2, 5);
@@ -96,7 +187,7 @@ final class LevelGenerator {
             for (int y = row; y < row + clusterHeight; y++) {
                 for (int x = col; x < col + clusterWidth; x++) {
                     if (!walkway[y][x]) {
-                        grid[y][x] = WALL;
+                        grid.set(x, y, TileType.WALL);
                     }
                 }
             }
@@ -108,42 +199,45 @@ final class LevelGenerator {
             int col = random.nextInt(1, width - 1);
             int row = random.nextInt(1, height - 1);
             if (!walkway[row][col]) {
-                grid[row][col] = WALL;
+                grid.set(col, row, TileType.WALL);
             }
         }
     }
 
-    private void sprinkleHazards(char[][] grid, boolean[][] walkway) {
+    private void sprinkleHazards(LevelBuilder grid, boolean[][] walkway) {
         for (int row = 1; row < height - 1; row++) {
             for (int col = 1; col < width - 1; col++) {
                 if (walkway[row][col]) {
                     continue;
                 }
-                if (grid[row][col] == FLOOR && random.nextFloat() < hazardChance) {
-                    grid[row][col] = HAZARD;
+                if (grid.tileAt(col, row) == TileType.FLOOR && random.nextFloat() < hazardChance) {
+                    grid.set(col, row, TileType.HAZARD);
                 }
             }
         }
     }
 
-    private void placeSpawnZones(char[][] grid, GridPosition start, GridPosition exit) {
-        carveSpawnBlock(grid, start, PLAYER_SPAWN, 1);
-        carveSpawnBlock(grid, exit, ENEMY_SPAWN, -1);
+    private void placeSpawnZones(LevelBuilder grid, GridPosition start, GridPosition exit) {
+        carveSpawnBlock(grid, start, TileType.PLAYER_SPAWN, 1);
+        carveSpawnBlock(grid, exit, TileType.ENEMY_SPAWN, -1);
     }
 
-    private void carveSpawnBlock(char[][] grid, GridPosition anchor, char symbol, int horizontalDirection) {
-        int blockWidth = 2;
-        int blockHeight = 2;
-        int startCol = anchor.col() + (horizontalDirection > 0 ? 1 : -blockWidth);
-        startCol = clampInteriorCol(startCol, blockWidth);
-        int startRow = clampInteriorRow(anchor.row() - blockHeight / 2, blockHeight);
-        for (int row = startRow; row < startRow + blockHeight; row++) {
-            for (int col = startCol; col < startCol + blockWidth; col++) {
-                grid[row][col] = symbol;
+    private void carveSpawnBlock(LevelBuilder grid, GridPosition anchor, TileType tile, int horizontalDirection) {
+        GridPosition origin = spawnBlockOrigin(anchor, horizontalDirection);
+        for (int row = origin.row(); row < origin.row() + SPAWN_BLOCK_SIZE; row++) {
+            for (int col = origin.col(); col < origin.col() + SPAWN_BLOCK_SIZE; col++) {
+                grid.set(col, row, tile);
             }
         }
     }
 
+    private GridPosition spawnBlockOrigin(GridPosition anchor, int horizontalDirection) {
+        int startCol = anchor.col() + (horizontalDirection > 0 ? 1 : -SPAWN_BLOCK_SIZE);
+        startCol = clampInteriorCol(startCol, SPAWN_BLOCK_SIZE);
+        int startRow = clampInteriorRow(anchor.row() - SPAWN_BLOCK_SIZE / 2, SPAWN_BLOCK_SIZE);
+        return new GridPosition(startCol, startRow);
+    }
+
     private int clampInteriorCol(int desired, int span) {
         int min = 1;
         int max = span >= width ? min : width - span - 1;
@@ -156,11 +250,118 @@ final class LevelGenerator {
         return Math.max(min, Math.min(desired, max));
     }
 
-    private String[] toRows(char[][] grid) {
-        String[] rows = new String[height];
-        for (int row = 0; row < height; row++) {
-            rows[row] = new String(grid[row]);
+    /**
+     * Builds a chunked level whose tiles are produced on demand. Each chunk draws from its own stream seeded by the
+     * level seed and the chunk coordinate, so the layout differs from {@link #generate()} for the same seed but is
+     * stable across evictions. The guided walkway is an L-shaped corridor (along the start row, then down the exit
+     * column) because a random walk cannot be evaluated one chunk at a time.
+     */
+    Level generateChunked(int chunkSize, int residentChunks) {
+        lastRepair = new RegionRepair.Result(0, 0);
+        GridPosition start = new GridPosition(1, Math.max(1, height / 2));
+        GridPosition exit = new GridPosition(width - 2, new SplittableRandom(seed).nextInt(1, height - 1));
+        GridPosition playerBlock = spawnBlockOrigin(start, 1);
+        GridPosition enemyBlock = spawnBlockOrigin(exit, -1);
+        ChunkedTileStore store = new ChunkedTileStore(width, height, chunkSize, residentChunks,
+            (originCol, originRow, size, tiles) -> fillChunk(originCol, originRow, size, tiles, start, exit,
+                playerBlock, enemyBlock));
+        return new Level(store, tileSize, start, exit, spawnBlockTiles(playerBlock), spawnBlockTiles(enemyBlock));
+    }
+
+    private void fillChunk(int originCol, int originRow, int size, byte[] tiles, GridPosition start, GridPosition exit,
+                           GridPosition playerBlock, GridPosition enemyBlock) {
+        SplittableRandom chunkRandom = new SplittableRandom(chunkSeed(originCol, originRow));
+        byte floor = (byte) TileType.FLOOR.ordinal();
+        byte wall = (byte) TileType.WALL.ordinal();
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int col = originCol + x;
+                int row = originRow + y;
+                boolean isBorder = row == 0 || col == 0 || row == height - 1 || col == width - 1;
+                tiles[y * size + x] = isBorder ? wall : floor;
+            }
+        }
+
+        int area = size * size;
+        int clusters = Math.max(1, area / 150);
+        for (int i = 0; i < clusters; i++) {
+            int clusterWidth = chunkRandom.nextInt(2, 5);
+            int clusterHeight = chunkRandom.nextInt(2, 5);
+            int x0 = chunkRandom.nextInt(0, size);
+            int y0 = chunkRandom.nextInt(0, size);
+            for (int y = y0; y < Math.min(size, y0 + clusterHeight); y++) {
+                for (int x = x0; x < Math.min(size, x0 + clusterWidth); x++) {
+                    if (!isCorridor(originCol + x, originRow + y, start, exit)) {
+                        tiles[y * size + x] = wall;
+                    }
+                }
+            }
+        }
+        int pillars = Math.max(1, area / 120);
+        for (int i = 0; i < pillars; i++) {
+            int x = chunkRandom.nextInt(0, size);
+            int y = chunkRandom.nextInt(0, size);
+            if (!isCorridor(originCol + x, originRow + y, start, exit)) {
+                tiles[y * size + x] = wall;
+            }
+        }
+
+        byte hazard = (byte) TileType.HAZARD.ordinal();
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int index = y * size + x;
+                float roll = chunkRandom.nextFloat();
+                if (tiles[index] == floor && roll < hazardChance
+                    && !isCorridor(originCol + x, originRow + y, start, exit)) {
+                    tiles[index] = hazard;
+                }
+            }
         }
-        return rows;
+
+        stampBlock(tiles, originCol, originRow, size, playerBlock, SPAWN_BLOCK_SIZE, TileType.PLAYER_SPAWN);
+        stampBlock(tiles, originCol, originRow, size, enemyBlock, SPAWN_BLOCK_SIZE, TileType.ENEMY_SPAWN);
+        stampBlock(tiles, originCol, originRow, size, start, 1, TileType.START);
+        stampBlock(tiles, originCol, originRow, size, exit, 1, TileType.EXIT);
+    }
+
+    private boolean isCorridor(int col, int row, GridPosition start, GridPosition exit) {
+        if (row == start.row() && col >= start.col() && col <= exit.col()) {
+            return true;
+        }
+        return col == exit.col() && row >= Math.min(start.row(), exit.row()) && row <= Math.max(start.row(), exit.row());
+    }
+
+    private static void stampBlock(byte[] tiles, int originCol, int originRow, int size, GridPosition origin, int span,
+                                   TileType tile) {
+        for (int row = origin.row(); row < origin.row() + span; row++) {
+            for (int col = origin.col(); col < origin.col() + span; col++) {
+                int x = col - originCol;
+                int y = row - originRow;
+                if (x >= 0 && x < size && y >= 0 && y < size) {
+                    tiles[y * size + x] = (byte) tile.ordinal();
+                }
+            }
+        }
+    }
+
+    private static List<GridPosition> spawnBlockTiles(GridPosition origin) {
+        List<GridPosition> tiles = new ArrayList<>(SPAWN_BLOCK_SIZE * SPAWN_BLOCK_SIZE);
+        for (int row = origin.row(); row < origin.row() + SPAWN_BLOCK_SIZE; row++) {
+            for (int col = origin.col(); col < origin.col() + SPAWN_BLOCK_SIZE; col++) {
+                tiles.add(new GridPosition(col, row));
+            }
+        }
+        return tiles;
+    }
+
+    private long chunkSeed(int originCol, int originRow) {
+        long key = ((long) originRow << 32) ^ (originCol & 0xffffffffL);
+        return mix64(seed ^ mix64(key + 0x9E3779B97F4A7C15L));
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
     }
 }
@@ -1,95 +1,222 @@
 package dev.minimal.lwjgl.topdown;
 
-import java.util.ArrayDeque;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
-import java.util.Queue;
-import java.util.Set;
+import java.util.Arrays;
 
+/**
+ * Breadth-first reachability for a single unit, computed on primitive arrays. An instance is meant to be kept and
+ * recalculated: the distance field, queue and reachable list are sized once per move range, so {@link #calculate}
+ * produces no garbage. Other units block movement through the board's {@link BoardOccupancy} index.
+ *
+ * <p>A search never leaves the diamond of radius {@code maxDistance} around the unit, so distances live in a square
+ * window of side {@code 2 * maxDistance + 1} centred on it rather than in a board-sized array; that keeps one preview
+ * per unit cheap on any board. Instead of clearing the window per call, every entry carries the generation that
+ * wrote it and older entries read as unreachable.
+ */
 final class MovementPreview {
-    private final Map<GridPosition, Integer> distances;
-    private final int maxDistance;
+    private static final int STEPS = Direction.DIRECTIONS.length;
 
-    private MovementPreview(Map<GridPosition, Integer> distances, int maxDistance) {
-        this.distances = distances;
-        this.maxDistance = maxDistance;
+    private int originCol;
+    private int originRow;
+    private int window;
+    private int[] distances = new int[0];
+    private int[] stamps = new int[0];
+    private int generation;
+    private int[] queue = new int[0];
+    /** Padded board index of each queued window index; see {@link Level#cellIndex}. */
+    private int[] queueCells = new int[0];
+    /** Index offsets of the four neighbours, in {@link Direction#DIRECTIONS} order, in the window and on the board. */
+    private final int[] windowSteps = new int[STEPS];
+    private final int[] cellSteps = new int[STEPS];
+    private int[] reachable = new int[0];
+    private int reachableCount;
+    private int maxDistance;
+    private boolean active;
+
+    /** Tiles a search may not enter besides walls, such as those other units stand on. */
+    @FunctionalInterface
+    interface Obstacles {
+        boolean isBlocked(int col, int row);
+    }
+
+    /**
+     * Recomputes the preview for {@code selected}. Tiles held by any other unit in {@code occupancy} block movement.
+     * Returns {@code false}, leaving the preview inactive, when there is nothing to compute.
+     */
+    boolean calculate(Level level, BoardOccupancy occupancy, Unit selected, int maxDistance) {
+        if (occupancy == null || selected == null || !selected.isPlaced()) {
+            active = false;
+            reachableCount = 0;
+            return false;
+        }
+        return calculate(level, selected.col(), selected.row(), maxDistance, occupancy);
     }
 
-    static MovementPreview calculate(Level level, Unit selected, List<Unit> friendlies, List<Unit> enemies, int maxDistance) {
-        if (level == null || selected == null || !selected.isPlaced() || maxDistance <= 0) {
-            return null;
+    /**
+     * Recomputes the preview from an arbitrary tile on the board; the start tile itself is never tested against
+     * obstacles. The level must be packed.
+     */
+    boolean calculate(Level level, int col, int row, int maxDistance, Obstacles obstacles) {
+        active = false;
+        reachableCount = 0;
+        if (level == null || obstacles == null || maxDistance <= 0 || !level.isInside(col, row)) {
+            return false;
         }
-        GridPosition start = selected.position();
-        Map<GridPosition, Integer> distances = new HashMap<>();
-        distances.put(start, 0);
-        Queue<PreviewNode> queue = new ArrayDeque<>();
-        queue.add(new PreviewNode(start, 0));
-
-        Set<GridPosition> blocked = new HashSet<>();
-        addUnitPositions(blocked, friendlies, selected);
-        addUnitPositions(blocked, enemies, null);
-
-        while (!queue.isEmpty()) {
-            PreviewNode node = queue.poll();
-            if (node.distance >= maxDistance) {
+        long[] walkable = level.walkableBits();
+        ensureCapacity(maxDistance);
+        setSteps(cellSteps, level.stride());
+        this.maxDistance = maxDistance;
+        originCol = col - maxDistance;
+        originRow = row - maxDistance;
+        if (++generation == 0) {
+            Arrays.fill(stamps, 0);
+            generation = 1;
+        }
+
+        // Window and board indices advance together: a step moves the window index by 1 or window and the padded
+        // board index by 1 or stride. The board index finds walls with one bit test, and since the search only
+        // leaves walkable tiles, the wall border keeps every probe on the plane.
+        int startIndex = maxDistance * window + maxDistance;
+        visit(startIndex, 0);
+        int queueMask = queue.length - 1;
+        int head = 0;
+        int tail = 0;
+        queue[tail] = startIndex;
+        queueCells[tail++] = level.cellIndex(col, row);
+        while (head != tail) {
+            int current = queue[head & queueMask];
+            int currentCell = queueCells[head++ & queueMask];
+            int distance = distances[current];
+            if (distance >= maxDistance) {
                 continue;
             }
-            for (Direction direction : Direction.values()) {
-                GridPosition neighbor = new GridPosition(node.position.col() + direction.dx, node.position.row() + direction.dy);
-                if (distances.containsKey(neighbor)) {
+            for (int i = 0; i < STEPS; i++) {
+                int next = current + windowSteps[i];
+                int nextCell = currentCell + cellSteps[i];
+                if (stamps[next] == generation || (walkable[nextCell >>> 6] & (1L << nextCell)) == 0) {
                     continue;
                 }
-                if (!level.isInside(neighbor.col(), neighbor.row()) || !level.isWalkable(neighbor.col(), neighbor.row())) {
+                if (obstacles.isBlocked(originCol + next % window, originRow + next / window)) {
                     continue;
                 }
-                if (blocked.contains(neighbor)) {
-                    continue;
-                }
-                int nextDistance = node.distance + 1;
-                distances.put(neighbor, nextDistance);
-                queue.add(new PreviewNode(neighbor, nextDistance));
+                visit(next, distance + 1);
+                queue[tail & queueMask] = next;
+                queueCells[tail++ & queueMask] = nextCell;
             }
         }
 
-        return new MovementPreview(distances, maxDistance);
+        active = true;
+        return true;
     }
 
-    private static void addUnitPositions(Set<GridPosition> blocked, List<Unit> units, Unit exception) {
-        if (units == null) {
-            return;
+    boolean isActive() {
+        return active;
+    }
+
+    /** Tile the preview was computed from. */
+    int unitCol() {
+        return originCol + maxDistance;
+    }
+
+    int unitRow() {
+        return originRow + maxDistance;
+    }
+
+    /**
+     * Whether a unit arriving on or leaving the tile could change this preview: it is reachable now, or it borders a
+     * tile from which the search would have stepped onto it.
+     */
+    boolean isAffectedBy(int col, int row) {
+        if (!active) {
+            return true;
         }
-        for (Unit unit : units) {
-            if (unit == null || !unit.isPlaced()) {
-                continue;
-            }
-            if (exception != null && Objects.equals(unit.id(), exception.id())) {
-                continue;
+        if (isReachable(col, row)) {
+            return true;
+        }
+        for (Direction direction : Direction.DIRECTIONS) {
+            if (distanceTo(col + direction.dx, row + direction.dy) < maxDistance) {
+                return true;
             }
-            blocked.add(unit.position());
         }
+        return false;
     }
 
     boolean isReachable(GridPosition position) {
-        return position != null && distances.containsKey(position);
+        return position != null && isReachable(position.col(), position.row());
+    }
+
+    boolean isReachable(int col, int row) {
+        return distanceTo(col, row) != Integer.MAX_VALUE;
     }
 
     int distanceTo(GridPosition position) {
-        return distances.getOrDefault(position, Integer.MAX_VALUE);
+        return position == null ? Integer.MAX_VALUE : distanceTo(position.col(), position.row());
+    }
+
+    int distanceTo(int col, int row) {
+        int localCol = col - originCol;
+        int localRow = row - originRow;
+        if (!active || localCol < 0 || localCol >= window || localRow < 0 || localRow >= window) {
+            return Integer.MAX_VALUE;
+        }
+        int index = localRow * window + localCol;
+        return stamps[index] == generation ? distances[index] : Integer.MAX_VALUE;
+    }
+
+    /** Reachable tiles in breadth-first order; index 0 is always the unit's own tile. */
+    int reachableCount() {
+        return reachableCount;
+    }
+
+    int reachableCol(int i) {
+        return originCol + reachable[i] % window;
+    }
+
+    int reachableRow(int i) {
+        return originRow + reachable[i] / window;
     }
 
-    List<GridPosition> reachableTiles() {
-        return new ArrayList<>(distances.keySet());
+    int reachableDistance(int i) {
+        return distances[reachable[i]];
+    }
+
+    GridPosition reachableAt(int i) {
+        return new GridPosition(reachableCol(i), reachableRow(i));
     }
 
     int maxDistance() {
         return maxDistance;
     }
 
-    private record PreviewNode(GridPosition position, int distance) {
+    private void visit(int index, int distance) {
+        stamps[index] = generation;
+        distances[index] = distance;
+        reachable[reachableCount++] = index;
+    }
+
+    private void ensureCapacity(int maxDistance) {
+        window = 2 * maxDistance + 1;
+        int cells = window * window;
+        if (distances.length < cells) {
+            distances = new int[cells];
+            stamps = new int[cells];
+        }
+        // A diamond of radius d holds 2d(d+1)+1 tiles; at most 8d of them are queued at once.
+        int diamond = 2 * maxDistance * (maxDistance + 1) + 1;
+        if (reachable.length < diamond) {
+            reachable = new int[diamond];
+        }
+        int queueCapacity = Integer.highestOneBit((8 * maxDistance + 1) * 2 - 1);
+        if (queue.length < queueCapacity) {
+            queue = new int[queueCapacity];
+            queueCells = new int[queueCapacity];
+        }
+        setSteps(windowSteps, window);
+    }
+
+    private static void setSteps(int[] steps, int width) {
+        for (int i = 0; i < STEPS; i++) {
+            Direction direction = Direction.DIRECTIONS[i];
+            steps[i] = direction.dy * width + direction.dx;
+        }
     }
 }
@@ -0,0 +1,63 @@
+package dev.minimal.lwjgl.topdown;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Keeps one {@link MovementPreview} per unit and reuses it until the board changes in a way that matters. Each entry
+ * remembers the {@link BoardOccupancy} version it was computed at; on lookup the tiles changed since then are
+ * replayed and the preview is recalculated only if one of them lies in its explored area, if the unit itself moved,
+ * or if the log no longer reaches back that far.
+ */
+final class MovementPreviewCache {
+    private final Level level;
+    private final BoardOccupancy board;
+    private final Map<Unit, Entry> entries = new IdentityHashMap<>();
+
+    MovementPreviewCache(Level level, BoardOccupancy board) {
+        this.level = level;
+        this.board = board;
+    }
+
+    /**
+     * Preview for {@code unit}, recalculated only when stale. Returns {@code null} when no preview can be computed.
+     * The returned instance stays owned by the cache and must not be recalculated by the caller.
+     */
+    MovementPreview preview(Unit unit, int maxDistance) {
+        if (unit == null || !unit.isPlaced()) {
+            return null;
+        }
+        Entry entry = entries.computeIfAbsent(unit, ignored -> new Entry());
+        if (!isCurrent(entry.preview, unit, maxDistance) || isStale(entry)) {
+            entry.preview.calculate(level, board, unit, maxDistance);
+        }
+        entry.version = board.version();
+        return entry.preview.isActive() ? entry.preview : null;
+    }
+
+    private static boolean isCurrent(MovementPreview preview, Unit unit, int maxDistance) {
+        return preview.isActive()
+            && preview.maxDistance() == maxDistance
+            && preview.unitCol() == unit.col()
+            && preview.unitRow() == unit.row();
+    }
+
+    private boolean isStale(Entry entry) {
+        if (!board.canReplay(entry.version)) {
+            return true;
+        }
+        int columns = board.columns();
+        for (long change = entry.version + 1; change <= board.version(); change++) {
+            int tile = board.changedTile(change);
+            if (entry.preview.isAffectedBy(tile % columns, tile / columns)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Entry {
+        private final MovementPreview preview = new MovementPreview();
+        private long version = -1;
+    }
+}
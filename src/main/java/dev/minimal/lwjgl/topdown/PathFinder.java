@@ -0,0 +1,363 @@
+package dev.minimal.lwjgl.topdown;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Shortest routes on the 4-connected grid of one {@link Level}. {@link #find} runs A* over jump points: horizontal
+ * runs are skipped until a cell gains a vertical neighbour that the cell behind it lacks, and vertical runs are
+ * skipped until a horizontal scan from them turns up such a cell. On the open arenas the generator produces that
+ * leaves only a handful of heap entries per query. {@link #findAStar} expands every tile and serves as the reference.
+ *
+ * <p>Scores, parents and the heap live in primitive arrays reused across queries; per-query state is told apart by
+ * generation stamps, so nothing is cleared between searches. Nodes are the padded indices of {@link Level#cellIndex},
+ * so every terrain probe is one bit test on the level's walkability bitset and the wall border stops runs at the
+ * board edge. The level must be packed. Instances are not thread-safe.
+ */
+final class PathFinder {
+    private static final int NONE = -1;
+
+    private final Level level;
+    private final int columns;
+    private final int rows;
+    private final int stride;
+    private final long[] walkable;
+    private final int[] cost;
+    private final int[] parent;
+    private final int[] seen;
+    private final int[] closed;
+    /**
+     * Per padded cell, the horizontal jump from it in each direction over terrain alone: {@code k > 0} means the k-th
+     * tile along is a jump point, {@code -k} (including zero) means k open tiles and then a wall. Built on first use.
+     */
+    private int[] jumpEast;
+    private int[] jumpWest;
+    private int generation;
+    private long[] occupied;
+    private int goal;
+    private int goalCol;
+    private int goalRow;
+
+    private int[] heapNodes = new int[256];
+    private int[] heapCosts = new int[256];
+    private long[] heapKeys = new long[256];
+    private int heapSize;
+
+    PathFinder(Level level) {
+        this.level = level;
+        this.columns = level.columns();
+        this.rows = level.rows();
+        this.stride = level.stride();
+        this.walkable = level.walkableBits();
+        int cells = stride * (rows + 2);
+        this.cost = new int[cells];
+        this.parent = new int[cells];
+        this.seen = new int[cells];
+        this.closed = new int[cells];
+    }
+
+    /**
+     * Jump-point route from {@code from} to {@code to}, both included, or an empty list when the target cannot be
+     * reached. Bits set in {@code occupied} (indexed {@code row * columns + col}, may be {@code null}) block their
+     * tile; the start tile is exempt so a unit may path away from its own position.
+     */
+    List<GridPosition> find(GridPosition from, GridPosition to, long[] occupied) {
+        return search(from, to, occupied, true);
+    }
+
+    /** Plain A* over every tile; same contract as {@link #find}. */
+    List<GridPosition> findAStar(GridPosition from, GridPosition to, long[] occupied) {
+        return search(from, to, occupied, false);
+    }
+
+    private List<GridPosition> search(GridPosition from, GridPosition to, long[] occupied, boolean jump) {
+        if (!level.isWalkable(from.col(), from.row()) || !level.isWalkable(to.col(), to.row())) {
+            return List.of();
+        }
+        if (jump && jumpEast == null) {
+            buildJumpTables();
+        }
+        this.occupied = occupied;
+        int start = level.cellIndex(from.col(), from.row());
+        goal = level.cellIndex(to.col(), to.row());
+        goalCol = to.col();
+        goalRow = to.row();
+        if (start != goal && isOccupied(goalCol, goalRow)) {
+            return List.of();
+        }
+        if (++generation == 0) {
+            Arrays.fill(seen, 0);
+            Arrays.fill(closed, 0);
+            generation = 1;
+        }
+        heapSize = 0;
+        relax(start, 0, NONE);
+        while (heapSize > 0) {
+            int node = heapNodes[0];
+            int nodeCost = heapCosts[0];
+            pop();
+            if (closed[node] == generation || nodeCost != cost[node]) {
+                continue;
+            }
+            closed[node] = generation;
+            if (node == goal) {
+                return reconstruct(start);
+            }
+            if (jump) {
+                expandJumpPoints(node);
+            } else {
+                expandNeighbours(node);
+            }
+        }
+        return List.of();
+    }
+
+    private void expandNeighbours(int node) {
+        int col = colOf(node);
+        int row = rowOf(node);
+        for (Direction direction : Direction.DIRECTIONS) {
+            int nextCol = col + direction.dx;
+            int nextRow = row + direction.dy;
+            if (isPassable(nextCol, nextRow)) {
+                relax(node + direction.dy * stride + direction.dx, cost[node] + 1, node);
+            }
+        }
+    }
+
+    private void expandJumpPoints(int node) {
+        int col = colOf(node);
+        int row = rowOf(node);
+        int from = parent[node];
+        if (from == NONE) {
+            jumpFrom(node, col, row, 1, 0);
+            jumpFrom(node, col, row, -1, 0);
+            jumpFrom(node, col, row, 0, 1);
+            jumpFrom(node, col, row, 0, -1);
+            return;
+        }
+        int dx = Integer.signum(col - colOf(from));
+        int dy = Integer.signum(row - rowOf(from));
+        if (dy == 0) {
+            jumpFrom(node, col, row, dx, 0);
+            if (isPassable(col, row - 1) && !isPassable(col - dx, row - 1)) {
+                jumpFrom(node, col, row, 0, -1);
+            }
+            if (isPassable(col, row + 1) && !isPassable(col - dx, row + 1)) {
+                jumpFrom(node, col, row, 0, 1);
+            }
+        } else {
+            jumpFrom(node, col, row, 0, dy);
+            jumpFrom(node, col, row, 1, 0);
+            jumpFrom(node, col, row, -1, 0);
+        }
+    }
+
+    private void jumpFrom(int node, int col, int row, int dx, int dy) {
+        int target = dy == 0 ? jumpHorizontal(col, row, dx) : jumpVertical(col, row, dy);
+        if (target != NONE) {
+            int distance = Math.abs(colOf(target) - col) + Math.abs(rowOf(target) - row);
+            relax(target, cost[node] + distance, node);
+        }
+    }
+
+    private int jumpHorizontal(int col, int row, int dx) {
+        int cell = level.cellIndex(col, row);
+        int jump = (dx > 0 ? jumpEast : jumpWest)[cell];
+        int span = Math.abs(jump);
+        int last = col + dx * span;
+        if (occupied != null && span > 0 && isAnyOccupied(row, Math.min(col, last), Math.max(col, last))) {
+            return scanHorizontal(col, row, dx);
+        }
+        if (goalRow == row && (goalCol - col) * dx > 0 && (goalCol - col) * dx <= span) {
+            return goal;
+        }
+        return jump > 0 ? cell + dx * span : NONE;
+    }
+
+    /** Step-by-step version of {@link #jumpHorizontal} for rows where units change which tiles are forced. */
+    private int scanHorizontal(int col, int row, int dx) {
+        while (true) {
+            col += dx;
+            if (!isPassable(col, row)) {
+                return NONE;
+            }
+            int index = level.cellIndex(col, row);
+            if (index == goal || isForced(col, row, dx)) {
+                return index;
+            }
+        }
+    }
+
+    private boolean isForced(int col, int row, int dx) {
+        return (isPassable(col, row - 1) && !isPassable(col - dx, row - 1))
+            || (isPassable(col, row + 1) && !isPassable(col - dx, row + 1));
+    }
+
+    private int jumpVertical(int col, int row, int dy) {
+        while (true) {
+            row += dy;
+            if (!isPassable(col, row)) {
+                return NONE;
+            }
+            int index = level.cellIndex(col, row);
+            if (index == goal || jumpHorizontal(col, row, 1) != NONE || jumpHorizontal(col, row, -1) != NONE) {
+                return index;
+            }
+        }
+    }
+
+    private void relax(int node, int nodeCost, int from) {
+        if (seen[node] == generation && cost[node] <= nodeCost) {
+            return;
+        }
+        seen[node] = generation;
+        cost[node] = nodeCost;
+        parent[node] = from;
+        int estimate = nodeCost + Math.abs(colOf(node) - goalCol) + Math.abs(rowOf(node) - goalRow);
+        // Lowest estimate first; among equal estimates prefer the node furthest along, which keeps ties near the goal.
+        push(node, nodeCost, ((long) estimate << 32) | (Integer.MAX_VALUE - nodeCost));
+    }
+
+    private List<GridPosition> reconstruct(int start) {
+        List<GridPosition> path = new ArrayList<>(cost[goal] + 1);
+        int node = goal;
+        while (node != start) {
+            int previous = parent[node];
+            int col = colOf(node);
+            int row = rowOf(node);
+            int dx = Integer.signum(colOf(previous) - col);
+            int dy = Integer.signum(rowOf(previous) - row);
+            int steps = Math.abs(colOf(previous) - col) + Math.abs(rowOf(previous) - row);
+            for (int i = 0; i < steps; i++) {
+                path.add(new GridPosition(col + dx * i, row + dy * i));
+            }
+            node = previous;
+        }
+        path.add(new GridPosition(colOf(start), rowOf(start)));
+        Collections.reverse(path);
+        return path;
+    }
+
+    private void buildJumpTables() {
+        occupied = null;
+        jumpEast = new int[cost.length];
+        jumpWest = new int[cost.length];
+        // The border cells keep their zero, which reads as a wall straight ahead.
+        for (int row = 0; row < rows; row++) {
+            int base = level.cellIndex(0, row);
+            for (int col = columns - 1; col >= 0; col--) {
+                jumpEast[base + col] = nextJump(jumpEast[base + col + 1], col + 1, row, 1);
+            }
+            for (int col = 0; col < columns; col++) {
+                jumpWest[base + col] = nextJump(jumpWest[base + col - 1], col - 1, row, -1);
+            }
+        }
+    }
+
+    /** Jump value for the tile before {@code col}, given the value already computed for {@code col} itself. */
+    private int nextJump(int following, int col, int row, int dx) {
+        if (!isPassable(col, row)) {
+            return 0;
+        }
+        if (isForced(col, row, dx)) {
+            return 1;
+        }
+        return following > 0 ? following + 1 : following - 1;
+    }
+
+    /** Whether a unit stands on rows {@code row - 1} to {@code row + 1} between the two columns, both included. */
+    private boolean isAnyOccupied(int row, int fromCol, int toCol) {
+        for (int r = Math.max(0, row - 1); r <= Math.min(rows - 1, row + 1); r++) {
+            int from = r * columns + fromCol;
+            int to = r * columns + toCol;
+            for (int word = from >>> 6; word <= to >>> 6; word++) {
+                long mask = -1L;
+                if (word == from >>> 6) {
+                    mask &= -1L << from;
+                }
+                if (word == to >>> 6) {
+                    mask &= -1L >>> (63 - (to & 63));
+                }
+                if ((occupied[word] & mask) != 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Callers stay within the wall border: one step past the board at most, where the bitset reads blocked. */
+    private boolean isPassable(int col, int row) {
+        int cell = (row + 1) * stride + col + 1;
+        return (walkable[cell >>> 6] & (1L << cell)) != 0 && !isOccupied(col, row);
+    }
+
+    private boolean isOccupied(int col, int row) {
+        int index = row * columns + col;
+        return occupied != null && (occupied[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private int colOf(int node) {
+        return node % stride - 1;
+    }
+
+    private int rowOf(int node) {
+        return node / stride - 1;
+    }
+
+    private void push(int node, int nodeCost, long key) {
+        if (heapSize == heapNodes.length) {
+            heapNodes = Arrays.copyOf(heapNodes, heapSize * 2);
+            heapCosts = Arrays.copyOf(heapCosts, heapSize * 2);
+            heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+        }
+        int i = heapSize++;
+        while (i > 0) {
+            int up = (i - 1) >>> 1;
+            if (heapKeys[up] <= key) {
+                break;
+            }
+            moveHeapEntry(up, i);
+            i = up;
+        }
+        heapNodes[i] = node;
+        heapCosts[i] = nodeCost;
+        heapKeys[i] = key;
+    }
+
+    private void pop() {
+        int last = --heapSize;
+        if (last == 0) {
+            return;
+        }
+        int node = heapNodes[last];
+        int nodeCost = heapCosts[last];
+        long key = heapKeys[last];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= last) {
+                break;
+            }
+            if (child + 1 < last && heapKeys[child + 1] < heapKeys[child]) {
+                child++;
+            }
+            if (key <= heapKeys[child]) {
+                break;
+            }
+            moveHeapEntry(child, i);
+            i = child;
+        }
+        heapNodes[i] = node;
+        heapCosts[i] = nodeCost;
+        heapKeys[i] = key;
+    }
+
+    private void moveHeapEntry(int from, int to) {
+        heapNodes[to] = heapNodes[from];
+        heapCosts[to] = heapCosts[from];
+        heapKeys[to] = heapKeys[from];
+    }
+}
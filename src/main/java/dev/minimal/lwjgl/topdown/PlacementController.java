@@ -9,13 +9,20 @@ final class PlacementController {
     private final CursorController cursor;
     private final Squad squad;
     private final Set<GridPosition> spawnTiles;
+    private final BoardOccupancy occupancy;
     private int placedUnits;
 
-    PlacementController(CursorController cursor, Squad squad, List<GridPosition> spawnTiles) {
+    PlacementController(CursorController cursor, Squad squad, List<GridPosition> spawnTiles, BoardOccupancy occupancy) {
         this.cursor = Objects.requireNonNull(cursor, "cursor");
         this.squad = Objects.requireNonNull(squad, "squad");
         this.spawnTiles = new HashSet<>(Objects.requireNonNull(spawnTiles, "spawnTiles"));
-        this.placedUnits = 0;
+        this.occupancy = Objects.requireNonNull(occupancy, "occupancy");
+        // A squad resumed from a save may already be partly deployed.
+        for (Unit unit : squad.units()) {
+            if (unit.isPlaced()) {
+                placedUnits++;
+            }
+        }
     }
 
     PlacementResult attemptPlacement() {
@@ -26,7 +33,7 @@ final class PlacementController {
         if (!spawnTiles.contains(focus)) {
             return PlacementResult.INVALID;
         }
-        if (isOccupied(focus)) {
+        if (occupancy.isOccupied(focus)) {
             return PlacementResult.INVALID;
         }
         Unit unit = squad.nextUnplacedUnit();
@@ -53,15 +60,6 @@ final class PlacementController {
         return placedUnits >= squad.units().size();
     }
 
-    private boolean isOccupied(GridPosition position) {
-        for (Unit unit : squad.units()) {
-            if (position.equals(unit.position())) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     Unit nextUnit() {
         return squad.nextUnplacedUnit();
     }
@@ -0,0 +1,168 @@
+package dev.minimal.lwjgl.topdown;
+
+import java.util.Arrays;
+
+/**
+ * Connectivity pass over a {@link LevelBuilder}. A disjoint-set forest labels the walkable regions. Any exit or spawn
+ * tile outside the start tile's region gets a corridor carved back towards the start, and walkable pockets that
+ * still cannot be reached are filled with walls. Runs in near-linear time in the number of cells.
+ */
+final class RegionRepair {
+    private final LevelBuilder grid;
+    private final int stride;
+    /**
+     * Parent links; a root stores the negated size of its set (approximate, since run members attach without
+     * updating it). Non-walkable cells stay unused singletons.
+     */
+    private final int[] parent;
+
+    private RegionRepair(LevelBuilder grid) {
+        this.grid = grid;
+        this.stride = grid.stride();
+        this.parent = new int[grid.cellCount()];
+    }
+
+    static Result connect(LevelBuilder grid) {
+        if (grid.startCell() < 0) {
+            throw new IllegalStateException("Level must define a start (S) before connectivity can be checked");
+        }
+        return new RegionRepair(grid).run();
+    }
+
+    private Result run() {
+        labelRegions();
+
+        int start = grid.startCell();
+        int carved = 0;
+        for (int target : grid.requiredCells()) {
+            if (target >= 0 && find(target) != find(start)) {
+                carved += carveTowards(target, start);
+            }
+        }
+
+        // A horizontal run of walkable cells always lies in one set, so resolve its root once per run.
+        int filled = 0;
+        int anchor = find(start);
+        for (int row = 0; row < grid.rows(); row++) {
+            int index = grid.cellIndex(0, row);
+            boolean inRun = false;
+            boolean orphanRun = false;
+            for (int col = 0; col < grid.columns(); col++, index++) {
+                if (!grid.isWalkableCell(index)) {
+                    inRun = false;
+                    continue;
+                }
+                if (!inRun) {
+                    inRun = true;
+                    orphanRun = find(index) != anchor;
+                }
+                if (orphanRun) {
+                    grid.setCell(index, TileType.WALL);
+                    filled++;
+                }
+            }
+        }
+        return new Result(carved, filled);
+    }
+
+    /**
+     * Scanline labelling: each horizontal run hangs off its first cell, and a run only merges with the row above where
+     * a vertical contact begins, since continuing contacts are already joined through the cell to the left.
+     */
+    private void labelRegions() {
+        Arrays.fill(parent, -1);
+        for (int row = 0; row < grid.rows(); row++) {
+            int index = grid.cellIndex(0, row);
+            int runRoot = -1;
+            for (int col = 0; col < grid.columns(); col++, index++) {
+                if (!grid.isWalkableCell(index)) {
+                    runRoot = -1;
+                    continue;
+                }
+                if (runRoot < 0) {
+                    runRoot = index;
+                } else {
+                    parent[index] = runRoot;
+                }
+                int above = index - stride;
+                if (grid.isWalkableCell(above) && !(runRoot != index && grid.isWalkableCell(above - 1))) {
+                    union(index, above);
+                }
+            }
+        }
+    }
+
+    /**
+     * Walks an L-shaped route from {@code from} to {@code to} (columns first, then rows), opening walls until the
+     * cut-off region merges with the start region.
+     */
+    private int carveTowards(int from, int to) {
+        int carved = 0;
+        int current = from;
+        int targetCol = to % stride;
+        int targetRow = to / stride;
+        while (find(current) != find(to)) {
+            int col = current % stride;
+            int row = current / stride;
+            if (col != targetCol) {
+                current += Integer.signum(targetCol - col);
+            } else if (row != targetRow) {
+                current += Integer.signum(targetRow - row) * stride;
+            } else {
+                break;
+            }
+            if (!grid.isWalkableCell(current)) {
+                grid.setCell(current, TileType.FLOOR);
+                joinWalkableNeighbours(current);
+                carved++;
+            }
+        }
+        return carved;
+    }
+
+    private void joinWalkableNeighbours(int index) {
+        joinIfWalkable(index, index + 1);
+        joinIfWalkable(index, index - 1);
+        joinIfWalkable(index, index + stride);
+        joinIfWalkable(index, index - stride);
+    }
+
+    private void joinIfWalkable(int index, int neighbour) {
+        if (grid.isWalkableCell(neighbour)) {
+            union(index, neighbour);
+        }
+    }
+
+    private int find(int index) {
+        while (parent[index] >= 0) {
+            int next = parent[index];
+            if (parent[next] >= 0) {
+                parent[index] = parent[next];
+            }
+            index = next;
+        }
+        return index;
+    }
+
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) {
+            return;
+        }
+        if (parent[rootA] > parent[rootB]) {
+            int swap = rootA;
+            rootA = rootB;
+            rootB = swap;
+        }
+        parent[rootA] += parent[rootB];
+        parent[rootB] = rootA;
+    }
+
+    /**
+     * @param carvedTiles walls opened to reconnect the exit or spawn zones
+     * @param filledTiles unreachable walkable tiles turned into walls
+     */
+    record Result(int carvedTiles, int filledTiles) {
+    }
+}
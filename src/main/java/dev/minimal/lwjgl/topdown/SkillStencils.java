@@ -0,0 +1,272 @@
+package dev.minimal.lwjgl.topdown;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Which tiles a {@link WeaponSkill} can hit, precomputed as offset stencils per skill shape and facing so that
+ * resolving a skill at a tile is a walk over a short array instead of geometry.
+ *
+ * <p>Shapes, measured from the caster along the facing {@link Direction}:
+ * <ul>
+ *   <li>{@link SkillPattern#SINGLE_TARGET}: every tile within {@code range} steps (Manhattan), in any direction; the
+ *       facing is ignored.</li>
+ *   <li>{@link SkillPattern#LINE}: {@code range} tiles straight ahead, {@code width} tiles wide.</li>
+ *   <li>{@link SkillPattern#CONE}: {@code range} rows ahead, starting {@code width} wide and widening by one tile on
+ *       each side per row.</li>
+ * </ul>
+ * Widths are centred on the caster's axis, so even widths round down to the odd width below.
+ *
+ * <p>Every offset carries the Bresenham line from the caster to it. A tile is hit only when it is walkable and no wall
+ * lies on that line between caster and tile.
+ */
+final class SkillStencils {
+    private final Map<Shape, Stencil[]> stencils = new ConcurrentHashMap<>();
+    /** Stencils per facing of each registered skill, indexed by {@link WeaponSkill#index()}. */
+    private final Stencil[][] bySkill;
+    private final WeaponSkill[] registered;
+
+    /**
+     * Precomputes the stencils of {@code skills}, the interned skills of one {@link WeaponRegistry} in index order, for
+     * lookup by index; other skills are built on first use.
+     */
+    SkillStencils(List<WeaponSkill> skills) {
+        bySkill = new Stencil[skills.size()][];
+        registered = new WeaponSkill[skills.size()];
+        for (WeaponSkill skill : skills) {
+            if (skill.index() < 0 || skill.index() >= skills.size() || registered[skill.index()] != null) {
+                throw new IllegalArgumentException("Skill " + skill.id() + " has index " + skill.index()
+                    + " outside a dense registry order");
+            }
+            registered[skill.index()] = skill;
+            bySkill[skill.index()] = stencilsFor(skill);
+        }
+    }
+
+    Stencil stencil(WeaponSkill skill, Direction facing) {
+        int index = skill.index();
+        if (index >= 0 && index < registered.length && registered[index] == skill) {
+            return bySkill[index][facing.ordinal()];
+        }
+        return stencilsFor(skill)[facing.ordinal()];
+    }
+
+    /**
+     * Every offset any of {@code skills} can hit in any facing, each once with its line of sight, in skill, facing and
+     * stencil order. Answers whether a weapon can hit a tile at all, whichever skill and facing it casts.
+     */
+    Stencil coverage(List<WeaponSkill> skills) {
+        Builder builder = new Builder();
+        Set<Long> seen = new HashSet<>();
+        for (WeaponSkill skill : skills) {
+            for (Stencil stencil : stencilsFor(skill)) {
+                for (int i = 0; i < stencil.size(); i++) {
+                    if (seen.add(((long) stencil.dx(i) << 32) | (stencil.dy(i) & 0xFFFFFFFFL))) {
+                        builder.add(stencil.dx(i), stencil.dy(i));
+                    }
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private Stencil[] stencilsFor(WeaponSkill skill) {
+        if (skill.range() <= 0) {
+            throw new IllegalArgumentException("Skill " + skill.id() + " needs a positive range");
+        }
+        return stencils.computeIfAbsent(new Shape(skill.pattern(), skill.range(), Math.max(1, skill.width())),
+            SkillStencils::build);
+    }
+
+    private static Stencil[] build(Shape shape) {
+        Stencil[] byFacing = new Stencil[Direction.DIRECTIONS.length];
+        if (shape.pattern() == SkillPattern.SINGLE_TARGET) {
+            Stencil stencil = diamond(shape.range());
+            for (int i = 0; i < byFacing.length; i++) {
+                byFacing[i] = stencil;
+            }
+            return byFacing;
+        }
+        int halfWidth = (shape.width() - 1) / 2;
+        for (Direction facing : Direction.DIRECTIONS) {
+            Builder builder = new Builder();
+            // Lateral axis: the facing turned a quarter clockwise.
+            int lateralX = -facing.dy;
+            int lateralY = facing.dx;
+            for (int ahead = 1; ahead <= shape.range(); ahead++) {
+                int half = shape.pattern() == SkillPattern.CONE ? halfWidth + ahead - 1 : halfWidth;
+                for (int side = -half; side <= half; side++) {
+                    builder.add(facing.dx * ahead + lateralX * side, facing.dy * ahead + lateralY * side);
+                }
+            }
+            byFacing[facing.ordinal()] = builder.build();
+        }
+        return byFacing;
+    }
+
+    /** Nearest rings first, so the stencil lists tiles in the order a caster would see them. */
+    private static Stencil diamond(int range) {
+        Builder builder = new Builder();
+        for (int distance = 1; distance <= range; distance++) {
+            for (int dx = -distance; dx <= distance; dx++) {
+                int dy = distance - Math.abs(dx);
+                builder.add(dx, dy);
+                if (dy != 0) {
+                    builder.add(dx, -dy);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private record Shape(SkillPattern pattern, int range, int width) {
+    }
+
+    /**
+     * Offsets of one shape and facing, with each offset's line of sight flattened into one array: the cells strictly
+     * between caster and offset {@code i} are {@code rayStarts[i]} up to {@code rayStarts[i + 1]}.
+     */
+    static final class Stencil {
+        private final int[] dx;
+        private final int[] dy;
+        private final int[] rayStarts;
+        private final int[] rayDx;
+        private final int[] rayDy;
+
+        private Stencil(int[] dx, int[] dy, int[] rayStarts, int[] rayDx, int[] rayDy) {
+            this.dx = dx;
+            this.dy = dy;
+            this.rayStarts = rayStarts;
+            this.rayDx = rayDx;
+            this.rayDy = rayDy;
+        }
+
+        int size() {
+            return dx.length;
+        }
+
+        int dx(int i) {
+            return dx[i];
+        }
+
+        int dy(int i) {
+            return dy[i];
+        }
+
+        /** Position of offset ({@code offsetX}, {@code offsetY}) in the stencil, or {@code -1}. */
+        int indexOf(int offsetX, int offsetY) {
+            for (int i = 0; i < dx.length; i++) {
+                if (dx[i] == offsetX && dy[i] == offsetY) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Replaces the contents of {@code hits} with the tiles the skill hits when cast from ({@code col},
+         * {@code row}) on {@code level}, and returns how many there are.
+         */
+        int apply(Level level, int col, int row, TileMask hits) {
+            hits.clear();
+            addTo(level, col, row, hits);
+            return hits.count();
+        }
+
+        /** Like {@link #apply} but keeps what {@code hits} already holds, to build unions over several casts. */
+        void addTo(Level level, int col, int row, TileMask hits) {
+            for (int i = 0; i < dx.length; i++) {
+                int targetCol = col + dx[i];
+                int targetRow = row + dy[i];
+                if (level.isWalkable(targetCol, targetRow) && hasLineOfSight(level, col, row, i)) {
+                    hits.add(targetCol, targetRow);
+                }
+            }
+        }
+
+        /** Whether offset {@code i} is hit when cast from ({@code col}, {@code row}). */
+        boolean hits(Level level, int col, int row, int i) {
+            return level.isWalkable(col + dx[i], row + dy[i]) && hasLineOfSight(level, col, row, i);
+        }
+
+        private boolean hasLineOfSight(Level level, int col, int row, int i) {
+            for (int cell = rayStarts[i]; cell < rayStarts[i + 1]; cell++) {
+                if (!level.isWalkable(col + rayDx[cell], row + rayDy[cell])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Builder {
+        private final IntList dx = new IntList();
+        private final IntList dy = new IntList();
+        private final IntList rayStarts = new IntList();
+        private final IntList rayDx = new IntList();
+        private final IntList rayDy = new IntList();
+
+        void add(int offsetX, int offsetY) {
+            dx.add(offsetX);
+            dy.add(offsetY);
+            rayStarts.add(rayDx.size());
+            traceRay(offsetX, offsetY);
+        }
+
+        /** Bresenham from the origin to the offset, keeping only the cells strictly between the two. */
+        private void traceRay(int toX, int toY) {
+            int stepX = Integer.signum(toX);
+            int stepY = Integer.signum(toY);
+            int spanX = Math.abs(toX);
+            int spanY = -Math.abs(toY);
+            int error = spanX + spanY;
+            int x = 0;
+            int y = 0;
+            while (true) {
+                int doubled = 2 * error;
+                if (doubled >= spanY) {
+                    error += spanY;
+                    x += stepX;
+                }
+                if (doubled <= spanX) {
+                    error += spanX;
+                    y += stepY;
+                }
+                if (x == toX && y == toY) {
+                    return;
+                }
+                rayDx.add(x);
+                rayDy.add(y);
+            }
+        }
+
+        Stencil build() {
+            rayStarts.add(rayDx.size());
+            return new Stencil(dx.toArray(), dy.toArray(), rayStarts.toArray(), rayDx.toArray(), rayDy.toArray());
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
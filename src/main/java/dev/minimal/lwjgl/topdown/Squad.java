@@ -1,14 +1,21 @@
 package dev.minimal.lwjgl.topdown;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 
 final class Squad {
+    private static final int DEFAULT_HP = 30;
+    private static final int DEFAULT_SP = 10;
+
     private final UnitFaction faction;
     private final List<Unit> units;
+    private final Map<Unit, Integer> slots = new IdentityHashMap<>();
 
     Squad(UnitFaction faction, List<Unit> units) {
         this.faction = Objects.requireNonNull(faction, "faction");
@@ -17,18 +24,31 @@ final class Squad {
             if (unit.faction() != faction) {
                 throw new IllegalArgumentException("Unit faction mismatch");
             }
+            slots.put(unit, this.units.size());
             this.units.add(unit);
         }
     }
 
-    static Squad create(UnitFaction faction, int unitCount) {
+    /** Adds {@code unitCount} fresh units of {@code faction} to {@code table} and groups them as a squad. */
+    static Squad create(UnitTable table, UnitFaction faction, int unitCount) {
         if (unitCount < 0) {
             throw new IllegalArgumentException("unitCount must be non-negative");
         }
         List<Unit> units = new ArrayList<>(unitCount);
         for (int i = 0; i < unitCount; i++) {
             String id = faction.name().toLowerCase(Locale.ROOT) + "-" + (i + 1);
-            units.add(new Unit(id, faction));
+            units.add(table.add(id, faction, DEFAULT_HP, DEFAULT_SP));
+        }
+        return new Squad(faction, units);
+    }
+
+    /** Groups every unit of {@code faction} in {@code table}, in table order, as when resuming a saved battle. */
+    static Squad fromTable(UnitTable table, UnitFaction faction) {
+        List<Unit> units = new ArrayList<>();
+        for (int i = 0; i < table.size(); i++) {
+            if (table.faction(i) == faction) {
+                units.add(table.unit(i));
+            }
         }
         return new Squad(faction, units);
     }
@@ -41,6 +61,12 @@ final class Squad {
         return Collections.unmodifiableList(units);
     }
 
+    /** Position of {@code unit} in {@link #units()}, or {@code -1} when it belongs to another squad. */
+    int indexOf(Unit unit) {
+        Integer slot = slots.get(unit);
+        return slot == null ? -1 : slot;
+    }
+
     Unit nextUnplacedUnit() {
         for (Unit unit : units) {
             if (!unit.isPlaced()) {
@@ -54,9 +80,105 @@ final class Squad {
         return nextUnplacedUnit() == null;
     }
 
+    /**
+     * Places every unit on the next free tile of {@code tiles}, in order. Once those are taken the rest go to the
+     * nearest free walkable tiles, searching outward from {@code tiles} breadth first. Throws
+     * {@link IllegalStateException} when the zone's part of the level has too few free tiles. {@code tiles} must not
+     * be empty.
+     *
+     * <p>The search stops as soon as every unit stands, so it only touches the zone and the rings around it; its queue
+     * and visited set start at a size set by the zone and squad and grow with the search, never with the board.
+     */
+    void deploy(Level level, List<GridPosition> tiles, BoardOccupancy board) {
+        int columns = level.columns();
+        int[] queue = new int[Math.max(16, 4 * (tiles.size() + units.size()))];
+        TileSet seen = new TileSet(queue.length);
+        int tail = 0;
+        for (GridPosition tile : tiles) {
+            int index = tile.row() * columns + tile.col();
+            if (seen.add(index)) {
+                queue[tail++] = index;
+            }
+        }
+        int next = 0;
+        for (int head = 0; head < tail && next < units.size(); head++) {
+            int col = queue[head] % columns;
+            int row = queue[head] / columns;
+            if (level.isWalkable(col, row) && !board.isOccupied(col, row)) {
+                units.get(next++).placeAt(col, row);
+            }
+            for (Direction direction : Direction.DIRECTIONS) {
+                int nextCol = col + direction.dx;
+                int nextRow = row + direction.dy;
+                int index = nextRow * columns + nextCol;
+                if (level.isWalkable(nextCol, nextRow) && seen.add(index)) {
+                    if (tail == queue.length) {
+                        queue = Arrays.copyOf(queue, tail * 2);
+                    }
+                    queue[tail++] = index;
+                }
+            }
+        }
+        if (next < units.size()) {
+            throw new IllegalStateException("Only " + next + " free tiles near the deployment zone for "
+                + units.size() + " " + faction.name().toLowerCase(Locale.ROOT) + " units");
+        }
+    }
+
     void clearPlacements() {
         for (Unit unit : units) {
             unit.clearPlacement();
         }
     }
+
+    /** Open-addressing set of tile indices, kept at most half full and doubled when it gets there. */
+    private static final class TileSet {
+        private static final int EMPTY = -1;
+
+        private int[] slots;
+        private int size;
+
+        TileSet(int expected) {
+            slots = new int[Integer.highestOneBit(Math.max(8, expected) * 2 - 1) * 2];
+            Arrays.fill(slots, EMPTY);
+        }
+
+        /** Adds {@code tile} and returns whether it was new. */
+        boolean add(int tile) {
+            int mask = slots.length - 1;
+            int slot = home(tile, mask);
+            while (slots[slot] != EMPTY) {
+                if (slots[slot] == tile) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = tile;
+            if (++size * 2 > slots.length) {
+                grow();
+            }
+            return true;
+        }
+
+        private void grow() {
+            int[] old = slots;
+            slots = new int[old.length * 2];
+            Arrays.fill(slots, EMPTY);
+            int mask = slots.length - 1;
+            for (int tile : old) {
+                if (tile != EMPTY) {
+                    int slot = home(tile, mask);
+                    while (slots[slot] != EMPTY) {
+                        slot = (slot + 1) & mask;
+                    }
+                    slots[slot] = tile;
+                }
+            }
+        }
+
+        private static int home(int tile, int mask) {
+            int hash = tile * 0x9E3779B9;
+            return (hash ^ (hash >>> 16)) & mask;
+        }
+    }
 }
@@ -0,0 +1,468 @@
+package dev.minimal.lwjgl.topdown;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Alpha-beta search over {@link BattleState}s with iterative deepening under a wall-clock budget. One ply is one
+ * unit's action; the score only flips sign when the side to move changes, since a side acts several times in a row.
+ *
+ * <p>Each actor considers a strike on every opponent in reach, from the two best tiles to strike it from, and its
+ * {@value #MAX_QUIET_ACTIONS} most promising plain moves. Tiles are ranked by the same distance term the evaluation
+ * uses: enemies close in, players back off. Without that
+ * beam a four-unit squad has around sixty actions per ply and a turn budget never sees the opponent reply.
+ *
+ * <p>Root actions are shared out across the workers of a {@link ForkJoinPool}: each worker takes the next untried
+ * root action and searches it against the best score found so far by any worker. The last fully completed depth
+ * decides the answer; the first depth always completes so a move is always returned.
+ *
+ * <p>Workers share a {@link TranspositionTable} keyed by {@link BattleState#key()}, which cuts off positions already
+ * searched deeply enough (the same units end on the same tiles by many move orders) and tries the best move found
+ * last time first. The table outlives a single search; because workers race on it, node counts and, rarely, the
+ * chosen move among equals can vary between runs on more than one thread.
+ */
+final class TacticalSearch {
+    static final int MAX_DEPTH = 64;
+    private static final int INFINITY = 1_000_000;
+    private static final int NODES_PER_CLOCK_CHECK = 1024;
+    static final int MAX_QUIET_ACTIONS = 8;
+    private static final int STRIKE_TILES_PER_TARGET = 2;
+    /** 2^18 entries, 4 MiB. */
+    static final int TABLE_LOG2_ENTRIES = 18;
+
+    private final Level level;
+    private final int maxDistance;
+    private final ForkJoinPool pool;
+    private final TranspositionTable table;
+    private volatile boolean cancelled;
+
+    /** Searches on {@code pool}'s workers, or on the calling thread alone when {@code pool} is {@code null}. */
+    TacticalSearch(Level level, int maxDistance, ForkJoinPool pool) {
+        this(level, maxDistance, pool, new TranspositionTable(TABLE_LOG2_ENTRIES));
+    }
+
+    /**
+     * Uses {@code table}, which may be shared with later searches on the same level but never with two searches at
+     * once; clear it before using it on another level.
+     */
+    TacticalSearch(Level level, int maxDistance, ForkJoinPool pool, TranspositionTable table) {
+        if (maxDistance <= 0) {
+            throw new IllegalArgumentException("Movement range must be positive");
+        }
+        this.level = level;
+        this.maxDistance = maxDistance;
+        this.pool = pool;
+        this.table = Objects.requireNonNull(table, "table");
+    }
+
+    /**
+     * @param action       best action for the side to move, or {@code 0} when it has nothing to do
+     * @param depth        deepest fully searched depth in plies
+     * @param nodes        states visited across all workers, including the abandoned last iteration
+     * @param elapsedNanos wall-clock time spent
+     */
+    record Result(long action, int score, int depth, long nodes, long elapsedNanos) {
+        boolean hasAction() {
+            return depth > 0;
+        }
+
+        double nodesPerSecond() {
+            return elapsedNanos == 0 ? 0 : nodes * 1e9 / elapsedNanos;
+        }
+    }
+
+    /**
+     * A side's whole turn, planned from {@code start}: one action per unit, in the order they are played, with totals
+     * over their searches. {@code depth} is the deepest any of them reached.
+     */
+    record TurnPlan(BattleState start, long[] actions, int depth, long nodes, long elapsedNanos) {
+        /** Plays the actions on the live units, which must still be in the {@code start} position. */
+        void applyTo(List<Unit> players, List<Unit> enemies) {
+            BattleState state = start;
+            for (long action : actions) {
+                state.applyTo(action, players, enemies);
+                state = state.apply(action);
+            }
+        }
+
+        double nodesPerSecond() {
+            return elapsedNanos == 0 ? 0 : nodes * 1e9 / elapsedNanos;
+        }
+    }
+
+    /**
+     * Plans every remaining action of the side to move in {@code start}, searching each within {@code budgetNanos}
+     * and {@code maxDepth}. Touches no live units, so it can run on any thread; stops early once {@link #cancel}ed.
+     */
+    TurnPlan planTurn(BattleState start, long budgetNanos, int maxDepth) {
+        long[] actions = new long[start.unitCount()];
+        int count = 0;
+        int deepest = 0;
+        long nodes = 0;
+        long elapsedNanos = 0;
+        BattleState state = start;
+        while (!cancelled && state.sideToMove() == start.sideToMove() && !state.isOver() && state.nextActor() >= 0) {
+            Result result = search(state, budgetNanos, maxDepth);
+            if (!result.hasAction()) {
+                break;
+            }
+            actions[count++] = result.action();
+            state = state.apply(result.action());
+            deepest = Math.max(deepest, result.depth());
+            nodes += result.nodes();
+            elapsedNanos += result.elapsedNanos();
+        }
+        return new TurnPlan(start, Arrays.copyOf(actions, count), deepest, nodes, elapsedNanos);
+    }
+
+    /**
+     * Plays {@code side}'s turn on the live units, one searched action per unit still able to act. Moved flags are
+     * left set; clearing them starts the next turn.
+     */
+    TurnPlan playTurn(List<Unit> players, List<Unit> enemies, UnitFaction side, long budgetNanos, int maxDepth) {
+        TurnPlan plan = planTurn(BattleState.capture(level, players, enemies, side), budgetNanos, maxDepth);
+        plan.applyTo(players, enemies);
+        return plan;
+    }
+
+    /**
+     * Makes any running and every later search on this instance return as soon as possible. Their results are then
+     * meaningless; used to abandon work for a board that no longer exists.
+     */
+    void cancel() {
+        cancelled = true;
+    }
+
+    /** Searches as deep as {@code budgetNanos} allows; {@link Long#MAX_VALUE} means no time limit. */
+    Result search(BattleState root, long budgetNanos) {
+        return search(root, budgetNanos, MAX_DEPTH);
+    }
+
+    /** Like {@link #search(BattleState, long)} but never deeper than {@code maxDepth} plies. */
+    Result search(BattleState root, long budgetNanos, int maxDepth) {
+        long start = System.nanoTime();
+        // Clamped so that an effectively unlimited budget cannot overflow; deadlines compare by difference.
+        long deadline = start + Math.max(0, Math.min(budgetNanos, Long.MAX_VALUE / 2));
+        if (root.isOver() || root.nextActor() < 0) {
+            return new Result(0, root.evaluate(), 0, 0, System.nanoTime() - start);
+        }
+        table.newSearch();
+        int workerCount = pool == null ? 1 : Math.max(1, pool.getParallelism());
+        Worker[] workers = new Worker[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Worker(deadline);
+        }
+
+        int rootCount = workers[0].generate(root, 0);
+        long[] rootActions = Arrays.copyOf(workers[0].actionsByPly[0], rootCount);
+        long bestAction = rootActions[0];
+        int bestScore = -INFINITY;
+        int completedDepth = 0;
+        for (int depth = 1; depth <= Math.min(maxDepth, MAX_DEPTH); depth++) {
+            RootIteration iteration = new RootIteration(root, rootActions, depth, depth > 1);
+            if (pool == null) {
+                workers[0].searchRoot(iteration);
+            } else {
+                List<ForkJoinTask<?>> tasks = new ArrayList<>(workerCount);
+                for (Worker worker : workers) {
+                    tasks.add(pool.submit(() -> worker.searchRoot(iteration)));
+                }
+                for (ForkJoinTask<?> task : tasks) {
+                    task.join();
+                }
+            }
+            if (iteration.aborted()) {
+                break;
+            }
+            bestAction = iteration.bestAction();
+            bestScore = iteration.bestScore.get();
+            completedDepth = depth;
+            moveToFront(rootActions, bestAction);
+            if (Math.abs(bestScore) >= INFINITY / 2 || System.nanoTime() - deadline >= 0) {
+                break;
+            }
+        }
+
+        long nodes = 0;
+        for (Worker worker : workers) {
+            nodes += worker.nodes;
+        }
+        return new Result(bestAction, bestScore, completedDepth, nodes, System.nanoTime() - start);
+    }
+
+    private static void moveToFront(long[] actions, long action) {
+        for (int i = 0; i < actions.length; i++) {
+            if (actions[i] == action) {
+                System.arraycopy(actions, 0, actions, 1, i);
+                actions[0] = action;
+                return;
+            }
+        }
+    }
+
+    /**
+     * One depth of the root: workers claim actions by index and publish results. Ties between equal scores go to the
+     * lower index, which keeps the previous iteration's best action preferred.
+     */
+    private static final class RootIteration {
+        private final BattleState root;
+        private final long[] actions;
+        private final int depth;
+        private final boolean abortable;
+        private final AtomicInteger nextIndex = new AtomicInteger();
+        private final AtomicInteger bestScore = new AtomicInteger(-INFINITY);
+        /** Score in the high half and inverted root index in the low half: the largest key is the best, earliest action. */
+        private final AtomicLong bestKey = new AtomicLong(Long.MIN_VALUE);
+        private volatile boolean aborted;
+
+        RootIteration(BattleState root, long[] actions, int depth, boolean abortable) {
+            this.root = root;
+            this.actions = actions;
+            this.depth = depth;
+            this.abortable = abortable;
+        }
+
+        void publish(int index, int score) {
+            long key = ((long) score << 32) | (Integer.MAX_VALUE - index);
+            bestKey.accumulateAndGet(key, Math::max);
+            bestScore.accumulateAndGet(score, Math::max);
+        }
+
+        long bestAction() {
+            return actions[Integer.MAX_VALUE - (int) bestKey.get()];
+        }
+
+        boolean aborted() {
+            return aborted;
+        }
+    }
+
+    /** Per-thread search state: scratch for move generation, per-ply action buffers and a node counter. */
+    private final class Worker implements MovementPreview.Obstacles {
+        private final long deadline;
+        private final MovementPreview preview = new MovementPreview();
+        private final long[][] actionsByPly = new long[MAX_DEPTH + 1][];
+        /** Rank of each tile the current actor can reach, and the best of them in order. */
+        private int[] ranks = new int[0];
+        private int[] quietOrder = new int[0];
+        private BattleState blockedBy;
+        private int blockedSelf;
+        private long nodes;
+        private RootIteration iteration;
+
+        Worker(long deadline) {
+            this.deadline = deadline;
+        }
+
+        void searchRoot(RootIteration iteration) {
+            this.iteration = iteration;
+            BattleState root = iteration.root;
+            int index;
+            while (!iteration.aborted && (index = iteration.nextIndex.getAndIncrement()) < iteration.actions.length) {
+                BattleState child = root.apply(iteration.actions[index]);
+                // Search one below the shared best so equal scores come back exact and ties resolve by index.
+                int alpha = iteration.bestScore.get() - 1;
+                int score = child.sideToMove() == root.sideToMove()
+                    ? negamax(child, iteration.depth - 1, 1, alpha, INFINITY)
+                    : -negamax(child, iteration.depth - 1, 1, -INFINITY, -alpha);
+                if (iteration.aborted) {
+                    return;
+                }
+                iteration.publish(index, score);
+            }
+        }
+
+        private int negamax(BattleState state, int depth, int ply, int alpha, int beta) {
+            if ((++nodes & (NODES_PER_CLOCK_CHECK - 1)) == 0
+                && (cancelled || iteration.abortable && System.nanoTime() - deadline >= 0)) {
+                iteration.aborted = true;
+            }
+            if (iteration.aborted) {
+                return 0;
+            }
+            if (state.isOver()) {
+                // Prefer quicker wins and slower losses.
+                return state.aliveCount(state.sideToMove()) == 0 ? -INFINITY + ply : INFINITY - ply;
+            }
+            if (depth == 0) {
+                return state.evaluate();
+            }
+            if (state.nextActor() < 0) {
+                return -negamax(state.passTurn(), depth - 1, ply + 1, -beta, -alpha);
+            }
+            long entry = table.probe(state.key());
+            int hashMove = TranspositionTable.NO_MOVE;
+            if (entry != TranspositionTable.MISS) {
+                hashMove = TranspositionTable.moveOf(entry);
+                if (TranspositionTable.depthOf(entry) >= depth) {
+                    int stored = fromTable(TranspositionTable.scoreOf(entry), ply);
+                    int bound = TranspositionTable.boundOf(entry);
+                    if (bound == TranspositionTable.BOUND_EXACT
+                        || bound == TranspositionTable.BOUND_LOWER && stored >= beta
+                        || bound == TranspositionTable.BOUND_UPPER && stored <= alpha) {
+                        return stored;
+                    }
+                }
+            }
+            int count = generate(state, ply);
+            long[] actions = actionsByPly[ply];
+            if (hashMove < count) {
+                long first = actions[hashMove];
+                System.arraycopy(actions, 0, actions, 1, hashMove);
+                actions[0] = first;
+            } else {
+                hashMove = TranspositionTable.NO_MOVE;
+            }
+            int originalAlpha = alpha;
+            int best = -INFINITY;
+            int bestIndex = TranspositionTable.NO_MOVE;
+            for (int i = 0; i < count; i++) {
+                long action = actions[i];
+                BattleState child = state.apply(action);
+                int score = child.sideToMove() == state.sideToMove()
+                    ? negamax(child, depth - 1, ply + 1, alpha, beta)
+                    : -negamax(child, depth - 1, ply + 1, -beta, -alpha);
+                if (iteration.aborted) {
+                    return 0;
+                }
+                if (score > best) {
+                    best = score;
+                    bestIndex = generatedIndex(i, hashMove);
+                }
+                if (best > alpha) {
+                    alpha = best;
+                }
+                if (alpha >= beta) {
+                    break;
+                }
+            }
+            int bound = best >= beta ? TranspositionTable.BOUND_LOWER
+                : best <= originalAlpha ? TranspositionTable.BOUND_UPPER
+                : TranspositionTable.BOUND_EXACT;
+            table.store(state.key(), depth, toTable(best, ply), bound, bestIndex);
+            return best;
+        }
+
+        /** Index in generation order of the action tried {@code i}th after the hash move was moved to the front. */
+        private int generatedIndex(int i, int hashMove) {
+            if (hashMove == TranspositionTable.NO_MOVE || i > hashMove) {
+                return i;
+            }
+            return i == 0 ? hashMove : i - 1;
+        }
+
+        /** Mate scores are stored relative to the stored position rather than the root, so they stay valid anywhere. */
+        private int toTable(int score, int ply) {
+            return score >= INFINITY / 2 ? score + ply : score <= -INFINITY / 2 ? score - ply : score;
+        }
+
+        private int fromTable(int score, int ply) {
+            return score >= INFINITY / 2 ? score - ply : score <= -INFINITY / 2 ? score + ply : score;
+        }
+
+        /**
+         * Fills {@code actionsByPly[ply]} with the next actor's actions and returns how many there are: strikes,
+         * weakest target first since those are the likeliest to cut the search, then the best plain moves.
+         */
+        int generate(BattleState state, int ply) {
+            int unit = state.nextActor();
+            int columns = state.columns();
+            int tile = state.tileOf(unit);
+            blockedBy = state;
+            blockedSelf = tile;
+            preview.calculate(level, tile % columns, tile / columns, maxDistance, this);
+
+            long[] buffer = actionsByPly[ply];
+            int capacity = state.unitCount() * STRIKE_TILES_PER_TARGET + MAX_QUIET_ACTIONS;
+            if (buffer == null || buffer.length < capacity) {
+                buffer = new long[capacity];
+                actionsByPly[ply] = buffer;
+            }
+            boolean approach = state.factionOf(unit) == UnitFaction.ENEMY;
+            int reachable = preview.reachableCount();
+            if (ranks.length < reachable) {
+                ranks = new int[reachable];
+                quietOrder = new int[reachable];
+            }
+            // Lower is better: distance to the nearest opponent for enemies, its negation for players.
+            for (int i = 0; i < reachable; i++) {
+                int distance = state.nearestOpponentDistance(unit, tileAt(i, columns));
+                ranks[i] = approach ? distance : -distance;
+            }
+
+            int strikes = 0;
+            for (int target = 0; target < state.unitCount(); target++) {
+                if (!state.isAlive(target) || state.factionOf(target) == state.factionOf(unit)) {
+                    continue;
+                }
+                int first = -1;
+                int second = -1;
+                for (int i = 0; i < reachable; i++) {
+                    if (!state.inReach(unit, tileAt(i, columns), target)) {
+                        continue;
+                    }
+                    if (first < 0 || ranks[i] < ranks[first]) {
+                        second = first;
+                        first = i;
+                    } else if (second < 0 || ranks[i] < ranks[second]) {
+                        second = i;
+                    }
+                }
+                if (first >= 0) {
+                    buffer[strikes++] = BattleState.action(unit, tileAt(first, columns), target);
+                }
+                if (second >= 0) {
+                    buffer[strikes++] = BattleState.action(unit, tileAt(second, columns), target);
+                }
+            }
+            sortStrikesByTargetHp(state, buffer, strikes);
+
+            // Keep the best plain moves by insertion into a short sorted list; ties keep breadth-first order.
+            int quiet = 0;
+            for (int i = 0; i < reachable; i++) {
+                if (quiet == MAX_QUIET_ACTIONS && ranks[i] >= ranks[quietOrder[quiet - 1]]) {
+                    continue;
+                }
+                int at = quiet < MAX_QUIET_ACTIONS ? quiet++ : quiet - 1;
+                while (at > 0 && ranks[quietOrder[at - 1]] > ranks[i]) {
+                    quietOrder[at] = quietOrder[at - 1];
+                    at--;
+                }
+                quietOrder[at] = i;
+            }
+            for (int q = 0; q < quiet; q++) {
+                buffer[strikes + q] = BattleState.action(unit, tileAt(quietOrder[q], columns), BattleState.NO_TARGET);
+            }
+            return strikes + quiet;
+        }
+
+        private int tileAt(int reachableIndex, int columns) {
+            return preview.reachableRow(reachableIndex) * columns + preview.reachableCol(reachableIndex);
+        }
+
+        private void sortStrikesByTargetHp(BattleState state, long[] actions, int count) {
+            for (int i = 1; i < count; i++) {
+                long action = actions[i];
+                int hp = state.hp(BattleState.actionTarget(action));
+                int at = i;
+                while (at > 0 && state.hp(BattleState.actionTarget(actions[at - 1])) > hp) {
+                    actions[at] = actions[at - 1];
+                    at--;
+                }
+                actions[at] = action;
+            }
+        }
+
+        @Override
+        public boolean isBlocked(int col, int row) {
+            int tile = row * blockedBy.columns() + col;
+            return tile != blockedSelf && blockedBy.unitOn(tile) >= 0;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package dev.minimal.lwjgl.topdown;
+
+import java.util.Arrays;
+
+/**
+ * For every tile, how many skills of each faction could hit it next turn. A unit threatens a tile with a skill when,
+ * from some tile it can walk to within its movement range and in some facing, that skill's {@link SkillStencils}
+ * stencil hits the tile; every (unit, skill) pair counts at most once per tile.
+ *
+ * <p>Movement here is blocked by terrain only, not by other units, so a unit's threat depends on nothing but its own
+ * tile and weapon. That keeps updates incremental: {@link #sync()} compares each unit of the {@link BoardOccupancy}
+ * with the tile it was last counted at and re-counts only the units that moved, were defeated or were
+ * {@link #refresh refreshed}; when the board version is unchanged it returns at once.
+ */
+final class ThreatMap {
+    private static final int NOT_PLACED = -1;
+    private static final MovementPreview.Obstacles TERRAIN_ONLY = (col, row) -> false;
+
+    private final Level level;
+    private final BoardOccupancy board;
+    private final SkillStencils stencils;
+    private final int movementRange;
+    private final int columns;
+    /** Counts per faction ordinal, indexed {@code row * columns + col}. */
+    private final int[][] counts;
+    private final MovementPreview reach = new MovementPreview();
+    private final TileMask skillHits;
+    /** Per unit handle: the tile it was counted at, and the tiles it added, one entry per skill that hits them. */
+    private int[] countedAt = new int[0];
+    private int[][] contributions = new int[0][];
+    private long version = -1;
+
+    ThreatMap(Level level, BoardOccupancy board, SkillStencils stencils, int movementRange) {
+        if (movementRange <= 0) {
+            throw new IllegalArgumentException("Movement range must be positive");
+        }
+        this.level = level;
+        this.board = board;
+        this.stencils = stencils;
+        this.movementRange = movementRange;
+        this.columns = level.columns();
+        this.counts = new int[UnitFaction.values().length][columns * level.rows()];
+        this.skillHits = new TileMask(columns, level.rows());
+    }
+
+    /** Skills of {@code faction} that could hit the tile next turn, as of the last {@link #sync()}. */
+    int threat(UnitFaction faction, int col, int row) {
+        if (!level.isInside(col, row)) {
+            return 0;
+        }
+        return counts[faction.ordinal()][row * columns + col];
+    }
+
+    boolean isThreatened(UnitFaction by, int col, int row) {
+        return threat(by, col, row) > 0;
+    }
+
+    /** Brings the counts up to date with the board, re-counting only units whose tile changed. */
+    void sync() {
+        int units = board.unitCount();
+        if (countedAt.length < units) {
+            int previous = countedAt.length;
+            countedAt = Arrays.copyOf(countedAt, units);
+            contributions = Arrays.copyOf(contributions, units);
+            Arrays.fill(countedAt, previous, units, NOT_PLACED);
+        }
+        if (version == board.version()) {
+            return;
+        }
+        for (int handle = 0; handle < units; handle++) {
+            if (tileOf(board.unit(handle)) != countedAt[handle]) {
+                recount(handle);
+            }
+        }
+        version = board.version();
+    }
+
+    /** Re-counts {@code unit} now even though it did not move, e.g. after a weapon change. */
+    void refresh(Unit unit) {
+        for (int handle = 0; handle < countedAt.length; handle++) {
+            if (board.unit(handle) == unit) {
+                recount(handle);
+                return;
+            }
+        }
+    }
+
+    private void recount(int handle) {
+        Unit unit = board.unit(handle);
+        int[] factionCounts = counts[unit.faction().ordinal()];
+        int[] previous = contributions[handle];
+        if (previous != null) {
+            for (int tile : previous) {
+                factionCounts[tile]--;
+            }
+        }
+        int tile = tileOf(unit);
+        countedAt[handle] = tile;
+        contributions[handle] = tile == NOT_PLACED || unit.weapon() == null ? null : contributionOf(unit, tile);
+        if (contributions[handle] != null) {
+            for (int hit : contributions[handle]) {
+                factionCounts[hit]++;
+            }
+        }
+    }
+
+    private int[] contributionOf(Unit unit, int tile) {
+        reach.calculate(level, tile % columns, tile / columns, movementRange, TERRAIN_ONLY);
+        int[] added = new int[0];
+        int count = 0;
+        for (WeaponSkill skill : unit.weapon().skills()) {
+            skillHits.clear();
+            for (Direction facing : Direction.DIRECTIONS) {
+                SkillStencils.Stencil stencil = stencils.stencil(skill, facing);
+                if (facing != Direction.DIRECTIONS[0] && stencil == stencils.stencil(skill, Direction.DIRECTIONS[0])) {
+                    continue;
+                }
+                for (int i = 0; i < reach.reachableCount(); i++) {
+                    stencil.addTo(level, reach.reachableCol(i), reach.reachableRow(i), skillHits);
+                }
+            }
+            if (count + skillHits.count() > added.length) {
+                added = Arrays.copyOf(added, Math.max(added.length * 2, count + skillHits.count()));
+            }
+            for (int i = 0; i < skillHits.count(); i++) {
+                added[count++] = skillHits.tileAt(i);
+            }
+        }
+        return Arrays.copyOf(added, count);
+    }
+
+    private int tileOf(Unit unit) {
+        return unit.isPlaced() && !unit.isDefeated()
+            ? unit.row() * columns + unit.col()
+            : NOT_PLACED;
+    }
+}
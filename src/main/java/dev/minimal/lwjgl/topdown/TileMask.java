@@ -0,0 +1,92 @@
+package dev.minimal.lwjgl.topdown;
+
+import java.util.Arrays;
+
+/**
+ * Reusable set of board tiles: a bitset indexed {@code row * columns + col}, the same layout as
+ * {@link BoardOccupancy#occupiedBits()}, plus the list of tiles set so far. The list makes iterating and clearing cost
+ * one step per member instead of one per board word, so a mask can be refilled every query without reallocating.
+ */
+final class TileMask {
+    private final int columns;
+    private final int rows;
+    private final long[] words;
+    private int[] tiles = new int[16];
+    private int count;
+
+    TileMask(int columns, int rows) {
+        if (columns <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("Board dimensions must be positive");
+        }
+        this.columns = columns;
+        this.rows = rows;
+        this.words = new long[Level.wordsFor(columns * rows)];
+    }
+
+    int columns() {
+        return columns;
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    /** Adds the tile and returns whether it was new. Tiles off the board are ignored. */
+    boolean add(int col, int row) {
+        if (Integer.compareUnsigned(col, columns) >= 0 || Integer.compareUnsigned(row, rows) >= 0) {
+            return false;
+        }
+        int index = row * columns + col;
+        long bit = 1L << index;
+        if ((words[index >>> 6] & bit) != 0) {
+            return false;
+        }
+        words[index >>> 6] |= bit;
+        if (count == tiles.length) {
+            tiles = Arrays.copyOf(tiles, count * 2);
+        }
+        tiles[count++] = index;
+        return true;
+    }
+
+    boolean contains(int col, int row) {
+        if (Integer.compareUnsigned(col, columns) >= 0 || Integer.compareUnsigned(row, rows) >= 0) {
+            return false;
+        }
+        int index = row * columns + col;
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /** Whether any member is also set in {@code bits}, a bitset of the same layout. */
+    boolean intersects(long[] bits) {
+        for (int i = 0; i < count; i++) {
+            int index = tiles[i];
+            if ((bits[index >>> 6] & (1L << index)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int count() {
+        return count;
+    }
+
+    /** Member {@code i} in insertion order, as {@code row * columns + col}. */
+    int tileAt(int i) {
+        return tiles[i];
+    }
+
+    /** Backing bitset; callers must not modify it. */
+    long[] words() {
+        return words;
+    }
+
+    void clear() {
+        for (int i = 0; i < count; i++) {
+            int index = tiles[i];
+            words[index >>> 6] &= ~(1L << index);
+        }
+        count = 0;
+    }
+}
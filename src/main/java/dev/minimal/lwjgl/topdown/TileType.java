@@ -9,6 +9,17 @@ enum TileType {
     PLAYER_SPAWN('P', 0.38f, 0.58f, 0.82f, false),
     ENEMY_SPAWN('E', 0.72f, 0.32f, 0.32f, false);
 
+    private static final TileType[] BY_ORDINAL = values();
+    private static final TileType[] BY_SYMBOL = new TileType[128];
+    private static final boolean[] WALKABLE_BY_ORDINAL = new boolean[BY_ORDINAL.length];
+
+    static {
+        for (TileType type : BY_ORDINAL) {
+            BY_SYMBOL[type.symbol] = type;
+            WALKABLE_BY_ORDINAL[type.ordinal()] = !type.blocksMovement;
+        }
+    }
+
     final char symbol;
     final float r;
     final float g;
@@ -23,12 +34,21 @@ enum TileType {
         this.blocksMovement = blocksMovement;
     }
 
+    static TileType fromOrdinal(int ordinal) {
+        return BY_ORDINAL[ordinal];
+    }
+
+    static boolean isWalkableOrdinal(int ordinal) {
+        return WALKABLE_BY_ORDINAL[ordinal];
+    }
+
     static TileType fromSymbol(char symbol) {
-        for (TileType type : values()) {
-            if (type.symbol == symbol) {
-                return type;
-            }
-        }
-        return FLOOR;
+        TileType type = symbol < BY_SYMBOL.length ? BY_SYMBOL[symbol] : null;
+        return type != null ? type : FLOOR;
+    }
+
+    /** Start, exit and spawn tiles, which levels index by position. */
+    boolean isMarker() {
+        return this == START || this == EXIT || this == PLAYER_SPAWN || this == ENEMY_SPAWN;
     }
 }
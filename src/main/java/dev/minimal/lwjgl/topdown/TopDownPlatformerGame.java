@@ -5,14 +5,16 @@ import org.lwjgl.glfw.GLFWErrorCallback;
 import org.lwjgl.opengl.GL;
 import org.lwjgl.stb.STBEasyFont;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.ArrayDeque;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.lwjgl.glfw.GLFW.*;
 import static org.lwjgl.opengl.GL11.*;
@@ -23,6 +25,13 @@ final class TopDownPlatformerGame {
     private static final int PLAYER_SQUAD_SIZE = 4;
     private static final int ENEMY_SQUAD_SIZE = 4;
     private static final int MOVEMENT_RANGE = 4;
+    /** Thinking time per enemy action when the squad is small enough for {@link TacticalSearch}. */
+    private static final long ENEMY_ACTION_BUDGET_NANOS = 100_000_000L;
+    private static final Path SAVE_FILE = Path.of("battle.sav");
+    /** Kept apart from {@link #SAVE_FILE} so that autosaves never replace the player's own save. */
+    private static final Path AUTOSAVE_FILE = Path.of("autosave.sav");
+    /** Weapon rows shown at once; longer catalogs scroll with the cursor. */
+    private static final int WEAPON_MENU_ROWS = 8;
 
     private final ByteBuffer textBuffer = BufferUtils.createByteBuffer(64 * 1024);
 
@@ -32,6 +41,22 @@ final class TopDownPlatformerGame {
     private Squad enemySquad;
     private PlacementController placementController;
     private MovementPreview movementPreview;
+    private BoardOccupancy boardOccupancy;
+    private MovementPreviewCache previewCache;
+    private final EnemyTurnPlanner enemyPlanner = new EnemyTurnPlanner();
+    private TacticalSearch tacticalSearch;
+    private final EnemyTurnWorker enemyTurnWorker = new EnemyTurnWorker();
+    private float enemyThinkingSeconds;
+    private ThreatMap threatMap;
+    private CombatEngine combatEngine;
+    private BattleLog battleLog;
+    private UnitTable unitTable;
+    private TurnScheduler turnScheduler;
+    private final BattleSave battleSave = new BattleSave(SAVE_FILE);
+    private final BattleSave autosaveSlot = new BattleSave(AUTOSAVE_FILE);
+    private final CombatEngine.Hits enemyHits = new CombatEngine.Hits();
+    private boolean threatOverlayVisible;
+    private final WeaponRegistry weaponRegistry = WeaponRegistry.standard();
     private WeaponMenu weaponMenu;
     private Weapon equippedWeapon;
     private boolean partyReviewed;
@@ -51,11 +76,13 @@ final class TopDownPlatformerGame {
     private LevelSettings editingSettings;
     private final StringBuilder seedInput = new StringBuilder();
     private Unit lastSelectedUnit;
+    private Path levelFile;
 
     TopDownPlatformerGame(GameConfig config) {
         this.currentSettings = LevelSettings.fromConfig(config);
         this.editingSettings = this.currentSettings;
-        this.weaponMenu = new WeaponMenu(WeaponDefinitions.catalog());
+        this.levelFile = config.levelFile();
+        this.weaponMenu = new WeaponMenu(weaponRegistry.catalog());
         this.equippedWeapon = weaponMenu.selected();
     }
 
@@ -149,6 +176,10 @@ final class TopDownPlatformerGame {
     }
 
     private void update(float deltaSeconds) {
+        if (battlePhase == BattlePhase.ENEMY_TURN) {
+            pollEnemyTurn(deltaSeconds);
+            return;
+        }
         if (uiMode == UiMode.CONFIG || uiMode == UiMode.WEAPON_MENU || uiMode == UiMode.PARTY_MENU
             || battlePhase != BattlePhase.ACTIVE) {
             return;
@@ -168,6 +199,7 @@ final class TopDownPlatformerGame {
 
         level.render();
         renderSpawnZones();
+        renderThreatOverlay();
         renderReachablePreview();
         renderUnits();
         if (cursor != null) {
@@ -214,11 +246,30 @@ final class TopDownPlatformerGame {
             enterConfigMode();
             return;
         }
+        if (key == GLFW_KEY_T) {
+            threatOverlayVisible = !threatOverlayVisible;
+            contextualMessage = threatOverlayVisible
+                ? "Threat overlay on: red tiles can be hit by enemy skills next turn (T to hide)."
+                : "Threat overlay off.";
+            return;
+        }
         if (key == GLFW_KEY_R) {
             boolean regenerateLevel = regenerateOnReset || status == GameStatus.DEAD;
             resetLevel(regenerateLevel);
             return;
         }
+        if (key == GLFW_KEY_F5) {
+            saveBattle();
+            return;
+        }
+        if (key == GLFW_KEY_F9) {
+            loadBattle(battleSave);
+            return;
+        }
+        if (key == GLFW_KEY_F10) {
+            loadBattle(autosaveSlot);
+            return;
+        }
         if (battlePhase == BattlePhase.PLACEMENT) {
             handlePlacementInput(key);
             return;
@@ -328,6 +379,9 @@ final class TopDownPlatformerGame {
                 equippedWeapon = selection;
                 if (loadoutTarget != null) {
                     loadoutTarget.equipWeapon(selection);
+                    if (threatMap != null) {
+                        threatMap.refresh(loadoutTarget);
+                    }
                     assignedLoadouts.add(loadoutTarget.id());
                     contextualMessage = String.format(Locale.ROOT, "Equipped [%s] for %s.", selection.displayName(),
                         loadoutTarget.displayName());
@@ -368,6 +422,7 @@ final class TopDownPlatformerGame {
             seedInput.setLength(0);
         }
         currentSettings = editingSettings;
+        levelFile = null;
         loadNewLevel();
         status = GameStatus.RUNNING;
         regenerateOnReset = false;
@@ -386,13 +441,17 @@ final class TopDownPlatformerGame {
     }
 
     private void openWeaponMenu() {
+        // Equips are not part of the position key, so one made now would go unnoticed by the enemy's pending plan.
+        if (battlePhase == BattlePhase.ENEMY_TURN) {
+            return;
+        }
         if (battlePhase == BattlePhase.PLACEMENT && !partyReviewed) {
             openPartyMenu();
             return;
         }
         loadoutTarget = determineNextLoadoutTarget();
         if (weaponMenu == null || weaponMenu.weapons().isEmpty()) {
-            weaponMenu = new WeaponMenu(WeaponDefinitions.catalog());
+            weaponMenu = new WeaponMenu(weaponRegistry.catalog());
         }
         if (uiMode != UiMode.WEAPON_MENU) {
             uiMode = UiMode.WEAPON_MENU;
@@ -530,20 +589,44 @@ final class TopDownPlatformerGame {
     }
 
     private void loadNewLevel() {
-        LevelGenerator generator = new LevelGenerator(
-            currentSettings.width(),
-            currentSettings.height(),
-            currentSettings.tileSize(),
-            currentSettings.hazardDensity(),
-            currentSettings.seed()
-        );
-        level = generator.generate();
+        Level next = null;
+        String notice = null;
+        if (levelFile != null) {
+            try {
+                next = LevelFile.read(levelFile);
+            } catch (IOException | IllegalArgumentException ex) {
+                notice = "Could not open " + levelFile + " (" + ex.getMessage() + "); generated a level instead.";
+                levelFile = null;
+            }
+        }
+        installLevel(next != null ? next : generateLevel(currentSettings), null, notice);
+    }
+
+    private static Level generateLevel(LevelSettings settings) {
+        return new LevelGenerator(
+            settings.width(),
+            settings.height(),
+            settings.tileSize(),
+            settings.hazardDensity(),
+            settings.seed()
+        ).generate();
+    }
+
+    /**
+     * Makes {@code next} the current level and starts a battle on it, fresh or with {@code restoredUnits}. A
+     * {@code notice} is shown ahead of the battle's opening message.
+     */
+    private void installLevel(Level next, UnitTable restoredUnits, String notice) {
+        level = next;
         if (cursor == null) {
             cursor = new CursorController(level);
         } else {
             cursor.attach(level);
         }
-        initializeBattleState();
+        initializeBattleState(restoredUnits);
+        if (notice != null) {
+            contextualMessage = notice + " " + contextualMessage;
+        }
         if (window != NULL) {
             glfwSetWindowSize(window, level.pixelWidth(), level.pixelHeight());
         }
@@ -732,7 +815,8 @@ final class TopDownPlatformerGame {
         }
         float panelWidth = Math.min(level.pixelWidth() - 120f, 640f);
         float rowHeight = 44f;
-        float panelHeight = 140f + weapons.size() * rowHeight;
+        int visibleRows = Math.min(weapons.size(), WEAPON_MENU_ROWS);
+        float panelHeight = 140f + visibleRows * rowHeight;
         float originX = (level.pixelWidth() - panelWidth) / 2f;
         float originY = Math.max(32f, level.pixelHeight() * 0.18f);
 
@@ -768,9 +852,10 @@ final class TopDownPlatformerGame {
         y += 18f;
 
         int selectedIndex = weaponMenu.selectedIndex();
-        for (int i = 0; i < weapons.size(); i++) {
+        int firstRow = weaponMenu.firstVisible(visibleRows);
+        for (int i = firstRow; i < firstRow + visibleRows; i++) {
             Weapon weapon = weapons.get(i);
-            float rowY = y + i * rowHeight;
+            float rowY = y + (i - firstRow) * rowHeight;
             boolean selected = i == selectedIndex;
             if (selected) {
                 glColor4f(0.2f, 0.55f, 0.9f, 0.25f);
@@ -782,8 +867,9 @@ final class TopDownPlatformerGame {
                 glEnd();
             }
             drawText(textX, rowY, selected ? ">" : " ", 0.9f, 0.9f, 0.9f);
-            String label = String.format(Locale.ROOT, "[%s] - %s   DMG %d / DEF %d",
-                weapon.tag().symbol(), weapon.displayName(), weapon.damage(), weapon.defense());
+            String label = String.format(Locale.ROOT, "[%s] - %s   DMG %d / DEF %d / REACH %d",
+                weapon.tag().symbol(), weapon.displayName(), weapon.damage(), weapon.defense(),
+                weaponRegistry.reach(weapon));
             float labelR = selected ? 0.98f : 0.9f;
             float labelG = selected ? 0.98f : 0.9f;
             float labelB = selected ? 1f : 0.94f;
@@ -855,17 +941,30 @@ final class TopDownPlatformerGame {
         if (syncCursor) {
             cursor.moveTo(unit.position());
         }
-        movementPreview = MovementPreview.calculate(
-            level,
-            unit,
-            playerSquad != null ? playerSquad.units() : List.of(),
-            enemySquad != null ? enemySquad.units() : List.of(),
-            MOVEMENT_RANGE
-        );
+        movementPreview = previewCache.preview(unit, MOVEMENT_RANGE);
         lastSelectedUnit = unit;
         contextualMessage = String.format(Locale.ROOT, "Selected %s - press Q/E to cycle units.", unit.displayName());
     }
 
+    /** Tints tiles enemy skills can reach next turn; the more skills overlap, the stronger the tint. */
+    private void renderThreatOverlay() {
+        if (!threatOverlayVisible || level == null || threatMap == null) {
+            return;
+        }
+        threatMap.sync();
+        for (int row = 0; row < level.rows(); row++) {
+            for (int col = 0; col < level.columns(); col++) {
+                int threat = threatMap.threat(UnitFaction.ENEMY, col, row);
+                if (threat == 0) {
+                    continue;
+                }
+                float intensity = Math.min(1f, threat / 4f);
+                IsoTileHighlightRenderer.draw(level, col, row, 0.95f, 0.25f, 0.2f, 0.08f + 0.22f * intensity,
+                    0.95f, 0.3f, 0.25f, 0.2f + 0.4f * intensity);
+            }
+        }
+    }
+
     private void renderSpawnZones() {
         if (level == null) {
             return;
@@ -952,17 +1051,14 @@ final class TopDownPlatformerGame {
         if (cursor == null || playerSquad == null) {
             return false;
         }
-        GridPosition focus = cursor.gridPosition();
-        List<Unit> units = playerSquad.units();
-        for (int i = 0; i < units.size(); i++) {
-            Unit unit = units.get(i);
-            if (unit.isPlaced() && unit.position().equals(focus)) {
-                selectUnit(i, false);
-                contextualMessage = String.format(Locale.ROOT, "Selected %s - press Q/E to cycle units.", unit.displayName());
-                return true;
-            }
+        Unit unit = boardOccupancy.unitAt(cursor.gridPosition());
+        int index = unit == null ? -1 : playerSquad.indexOf(unit);
+        if (index < 0) {
+            return false;
         }
-        return false;
+        selectUnit(index, false);
+        contextualMessage = String.format(Locale.ROOT, "Selected %s - press Q/E to cycle units.", unit.displayName());
+        return true;
     }
 
     private boolean attemptUnitMove() {
@@ -983,15 +1079,23 @@ final class TopDownPlatformerGame {
             contextualMessage = String.format(Locale.ROOT, "%s already moved this turn.", unit.displayName());
             return true;
         }
+        List<GridPosition> route = level.findPath(unit.position(), target, boardOccupancy.occupiedBits());
+        if (route.isEmpty()) {
+            contextualMessage = "Cannot move there — no open route.";
+            return true;
+        }
         unit.placeAt(target);
-        unit.setMovedThisTurn(true);
-        contextualMessage = String.format(Locale.ROOT, "%s moved to (%d,%d).", unit.displayName(), target.col(), target.row());
+        turnScheduler.acted(unit.index());
+        String moved = String.format(Locale.ROOT, "%s moved %d tiles to (%d,%d).", unit.displayName(),
+            route.size() - 1, target.col(), target.row());
         selectedUnitIndex = -1;
         movementPreview = null;
-        if (allUnitsMoved(playerSquad)) {
-            executeEnemyTurn();
-            resetMovementFlags(playerSquad);
-            contextualMessage = "Enemy units repositioned. Player phase refreshed.";
+        if (turnScheduler.remaining(UnitFaction.PLAYER) == 0) {
+            contextualMessage = moved;
+            beginEnemyTurn();
+        } else {
+            selectNextScheduledUnit();
+            contextualMessage = moved + " " + contextualMessage;
         }
         return true;
     }
@@ -1004,10 +1108,9 @@ final class TopDownPlatformerGame {
         if (selected == null || !selected.isPlaced()) {
             return;
         }
-        List<GridPosition> tiles = movementPreview.reachableTiles();
-        for (GridPosition tile : tiles) {
-            int distance = movementPreview.distanceTo(tile);
-            boolean origin = tile.equals(selected.position());
+        for (int i = 0; i < movementPreview.reachableCount(); i++) {
+            int distance = movementPreview.reachableDistance(i);
+            boolean origin = distance == 0;
             float intensity = origin ? 1f : 1f - (distance / (float) movementPreview.maxDistance());
             float fillR = origin ? 0.6f : 0.25f;
             float fillG = origin ? 0.85f : 0.85f;
@@ -1021,8 +1124,8 @@ final class TopDownPlatformerGame {
 
             IsoTileHighlightRenderer.draw(
                 level,
-                tile.col(),
-                tile.row(),
+                movementPreview.reachableCol(i),
+                movementPreview.reachableRow(i),
                 fillR,
                 fillG,
                 fillB,
@@ -1035,58 +1138,101 @@ final class TopDownPlatformerGame {
         }
     }
 
-    private boolean allUnitsMoved(Squad squad) {
-        if (squad == null) {
-            return false;
+    /** Selects the player unit with the highest initiative still to act. */
+    private void selectNextScheduledUnit() {
+        int next = turnScheduler.next(UnitFaction.PLAYER);
+        selectUnit(next < 0 ? -1 : playerSquad.indexOf(unitTable.unit(next)));
+    }
+
+    /**
+     * Starts the enemy turn. Small squads are planned by {@link TacticalSearch} on the {@link EnemyTurnWorker} while
+     * frames keep rendering, and the plan is applied in {@link #pollEnemyTurn}; large ones use the flow-field planner,
+     * which is cheap enough to run inline.
+     */
+    private void beginEnemyTurn() {
+        if (enemySquad == null || level == null) {
+            finishEnemyTurn();
+            return;
         }
-        for (Unit unit : squad.units()) {
-            if (unit.isPlaced() && !unit.hasMovedThisTurn()) {
-                return false;
+        List<Unit> players = playerSquad != null ? playerSquad.units() : List.of();
+        if (enemySquad.units().size() >= EnemyTurnPlanner.PARALLEL_THRESHOLD) {
+            enemyPlanner.executeParallel(level, boardOccupancy, enemySquad.units(), players, MOVEMENT_RANGE,
+                ForkJoinPool.commonPool());
+            enemyHits.clear();
+            int hits = combatEngine.volley(enemySquad.units(), enemyHits);
+            if (!players.isEmpty() && allDefeated(players)) {
+                status = GameStatus.DEAD;
+                contextualMessage = "Your squad was defeated. Press R to restart.";
+            } else {
+                contextualMessage = String.format(Locale.ROOT, "Enemy units repositioned and landed %d hits.", hits);
             }
+            finishEnemyTurn();
+            return;
         }
-        return true;
+        battlePhase = BattlePhase.ENEMY_TURN;
+        enemyThinkingSeconds = 0f;
+        contextualMessage = "Enemy is thinking...";
+        BattleState snapshot = BattleState.capture(level, players, enemySquad.units(), UnitFaction.ENEMY);
+        enemyTurnWorker.start(tacticalSearch, snapshot, ENEMY_ACTION_BUDGET_NANOS, TacticalSearch.MAX_DEPTH);
     }
 
-    private void resetMovementFlags(Squad squad) {
-        if (squad == null) {
+    /** Applies the enemy plan once the worker has it, all in one frame; until then only updates the HUD. */
+    private void pollEnemyTurn(float deltaSeconds) {
+        TacticalSearch.TurnPlan plan = enemyTurnWorker.poll();
+        if (plan == null) {
+            enemyThinkingSeconds += deltaSeconds;
+            contextualMessage = String.format(Locale.ROOT,
+                "Enemy is thinking... %.1f s (weapons can be changed on your turn)", enemyThinkingSeconds);
             return;
         }
-        for (Unit unit : squad.units()) {
-            unit.setMovedThisTurn(false);
+        if (plan.start().key() != (boardOccupancy.positionKey() ^ Zobrist.sideToMove(UnitFaction.ENEMY))) {
+            // The board changed while the worker was thinking; plan again from where things stand now.
+            beginEnemyTurn();
+            return;
+        }
+        List<Unit> players = playerSquad.units();
+        plan.applyTo(players, enemySquad.units());
+        if (!players.isEmpty() && allDefeated(players)) {
+            status = GameStatus.DEAD;
+            contextualMessage = "Your squad was defeated. Press R to restart.";
+        } else {
+            contextualMessage = String.format(Locale.ROOT, "Enemy units acted (search depth %d, %.0fk nodes/s).",
+                plan.depth(), plan.nodesPerSecond() / 1e3);
         }
+        finishEnemyTurn();
     }
 
-    private void executeEnemyTurn() {
-        if (enemySquad == null || level == null) {
-            return;
+    private void finishEnemyTurn() {
+        if (turnScheduler != null) {
+            turnScheduler.beginRound();
         }
-        for (Unit enemy : enemySquad.units()) {
-            if (enemy == null || !enemy.isPlaced()) {
-                continue;
-            }
-            MovementPreview preview = MovementPreview.calculate(
-                level,
-                enemy,
-                enemySquad.units(),
-                playerSquad != null ? playerSquad.units() : List.of(),
-                MOVEMENT_RANGE
-            );
-            if (preview == null) {
-                continue;
-            }
-            List<GridPosition> tiles = preview.reachableTiles();
-            tiles.removeIf(tile -> tile.equals(enemy.position()));
-            if (tiles.isEmpty()) {
-                continue;
+        if (battleLog != null) {
+            battleLog.endTurn();
+        }
+        // Back to the player before autosaving, or loading the autosave would hand the enemies another turn.
+        battlePhase = BattlePhase.ACTIVE;
+        autosave();
+        if (status == GameStatus.RUNNING) {
+            contextualMessage += " Player phase refreshed.";
+        }
+    }
+
+    private static boolean allDefeated(List<Unit> units) {
+        for (Unit unit : units) {
+            if (!unit.isDefeated()) {
+                return false;
             }
-            GridPosition target = tiles.get(ThreadLocalRandom.current().nextInt(tiles.size()));
-            enemy.placeAt(target);
         }
-        contextualMessage = "Enemy units repositioned.";
-        resetMovementFlags(enemySquad);
+        return true;
     }
 
     private void initializeBattleState() {
+        initializeBattleState(null);
+    }
+
+    /** Starts a fresh battle on the current level, or resumes one with {@code restoredUnits} from a save. */
+    private void initializeBattleState(UnitTable restoredUnits) {
+        enemyTurnWorker.cancel();
         battlePhase = BattlePhase.PLACEMENT;
         selectedUnitIndex = -1;
         movementPreview = null;
@@ -1095,34 +1241,128 @@ final class TopDownPlatformerGame {
         loadoutChosen = false;
         assignedLoadouts.clear();
         lastSelectedUnit = null;
-        playerSquad = Squad.create(UnitFaction.PLAYER, PLAYER_SQUAD_SIZE);
-        enemySquad = Squad.create(UnitFaction.ENEMY, ENEMY_SQUAD_SIZE);
+        if (restoredUnits != null) {
+            unitTable = restoredUnits;
+            playerSquad = Squad.fromTable(unitTable, UnitFaction.PLAYER);
+            enemySquad = Squad.fromTable(unitTable, UnitFaction.ENEMY);
+        } else {
+            unitTable = new UnitTable(PLAYER_SQUAD_SIZE + ENEMY_SQUAD_SIZE);
+            playerSquad = Squad.create(unitTable, UnitFaction.PLAYER, PLAYER_SQUAD_SIZE);
+            enemySquad = Squad.create(unitTable, UnitFaction.ENEMY, ENEMY_SQUAD_SIZE);
+        }
+        battleLog = new BattleLog(level.columns());
+        unitTable.recordTo(battleLog);
+        // A new table: the next autosave must not extend one written for the previous table.
+        autosaveSlot.forgetBase();
+        boardOccupancy = new BoardOccupancy(level.columns(), level.rows());
+        previewCache = new MovementPreviewCache(level, boardOccupancy);
+        tacticalSearch = new TacticalSearch(level, MOVEMENT_RANGE, ForkJoinPool.commonPool());
+        threatMap = new ThreatMap(level, boardOccupancy, weaponRegistry.stencils(), MOVEMENT_RANGE);
+        combatEngine = new CombatEngine(level, boardOccupancy, unitTable, weaponRegistry.stencils());
+        turnScheduler = new TurnScheduler(unitTable);
+        // Table order, so board handles match unit indices and BattleState numbering.
+        for (int i = 0; i < unitTable.size(); i++) {
+            unitTable.unit(i).attachTo(boardOccupancy);
+        }
         placementBannerVisible = true;
-        placementController = new PlacementController(cursor, playerSquad, level.playerSpawnTiles());
-        placeEnemySquad();
+        placementController = new PlacementController(cursor, playerSquad, level.playerSpawnTiles(), boardOccupancy);
+        if (restoredUnits == null) {
+            placeEnemySquad();
+        }
         List<GridPosition> spawnTiles = level.playerSpawnTiles();
         GridPosition focus = spawnTiles.isEmpty() ? level.startPosition() : spawnTiles.get(0);
         cursor.moveTo(focus);
         contextualMessage = "Press Enter to acknowledge the briefing, then deploy your squad.";
     }
 
+    private BattleSave.State saveState() {
+        return new BattleSave.State(currentSettings, levelFile, battlePhase.ordinal());
+    }
+
+    private void saveBattle() {
+        if (unitTable == null) {
+            return;
+        }
+        try {
+            battleSave.saveCopy(saveState(), unitTable);
+            contextualMessage = "Battle saved to " + battleSave.path() + ". Press F9 to load it, F10 for the autosave.";
+        } catch (IOException ex) {
+            contextualMessage = "Could not save the battle: " + ex.getMessage();
+        }
+    }
+
+    /** Writes the units changed this turn to the autosave slot; see {@link BattleSave#autosave}. */
+    private void autosave() {
+        if (unitTable == null || status != GameStatus.RUNNING) {
+            return;
+        }
+        try {
+            autosaveSlot.autosave(saveState(), unitTable);
+        } catch (IOException ex) {
+            contextualMessage = contextualMessage + " Autosave failed: " + ex.getMessage();
+        }
+    }
+
+    private void loadBattle(BattleSave slot) {
+        if (!slot.exists()) {
+            contextualMessage = slot == battleSave
+                ? "No saved battle yet. Press F5 to save one."
+                : "No autosave yet; one is written after every enemy turn.";
+            return;
+        }
+        BattleSave.Loaded loaded;
+        Level savedLevel;
+        try {
+            loaded = slot.load();
+            Path savedLevelFile = loaded.state().levelFile();
+            // The units were saved on exactly this level; never fall back to a generated one.
+            savedLevel = savedLevelFile != null
+                ? LevelFile.read(savedLevelFile)
+                : generateLevel(loaded.state().settings());
+            BattleSave.checkPlacements(loaded.units(), savedLevel);
+        } catch (IOException | IllegalArgumentException ex) {
+            contextualMessage = "Could not load the battle: " + ex.getMessage();
+            return;
+        }
+        status = GameStatus.RUNNING;
+        currentSettings = loaded.state().settings();
+        levelFile = loaded.state().levelFile();
+        installLevel(savedLevel, loaded.units(), null);
+        battlePhase = BattlePhase.fromOrdinal(loaded.state().phase());
+        placementBannerVisible = false;
+        partyReviewed = true;
+        loadoutChosen = true;
+        uiMode = UiMode.PLAYING;
+        contextualMessage = "Battle loaded.";
+        if (battlePhase == BattlePhase.PLACEMENT) {
+            contextualMessage = String.format(Locale.ROOT, "Battle loaded. Place %d units on blue tiles.",
+                placementController.remainingUnits());
+        } else if (battlePhase == BattlePhase.ENEMY_TURN) {
+            beginEnemyTurn();
+        } else {
+            turnScheduler.rebuild();
+            if (turnScheduler.remaining(UnitFaction.PLAYER) == 0) {
+                beginEnemyTurn();
+            } else {
+                selectNextScheduledUnit();
+            }
+        }
+    }
+
     private void placeEnemySquad() {
         List<GridPosition> spawnTiles = level.enemySpawnTiles();
         if (spawnTiles.isEmpty()) {
             spawnTiles = List.of(level.exitPosition());
         }
-        int size = spawnTiles.size();
-        for (int i = 0; i < enemySquad.units().size(); i++) {
-            GridPosition tile = spawnTiles.get(size == 0 ? 0 : i % size);
-            enemySquad.units().get(i).placeAt(tile);
-        }
+        enemySquad.deploy(level, spawnTiles, boardOccupancy);
     }
 
     private void enterActivePhase() {
         battlePhase = BattlePhase.ACTIVE;
         placementBannerVisible = false;
         contextualMessage = "All units deployed! Use Q and E to choose who moves next.";
-        selectUnit(0);
+        turnScheduler.beginRound();
+        selectNextScheduledUnit();
     }
 
     private void drawText(float x, float y, String text, float r, float g, float b) {
@@ -1147,6 +1387,7 @@ final class TopDownPlatformerGame {
     }
 
     private void cleanup() {
+        enemyTurnWorker.shutdown();
         if (window != NULL) {
             glfwDestroyWindow(window);
         }
@@ -1164,8 +1405,18 @@ final class TopDownPlatformerGame {
         WEAPON_MENU
     }
 
-    private enum BattlePhase {
+    /** Stored by ordinal in {@link BattleSave.State#phase()}. */
+    enum BattlePhase {
         PLACEMENT,
-        ACTIVE
+        ACTIVE,
+        /** Enemy plan is being computed in the background; player input other than the cursor is ignored. */
+        ENEMY_TURN;
+
+        private static final BattlePhase[] VALUES = values();
+
+        /** Phase saved as {@code ordinal}; an unknown ordinal resumes on the player's turn. */
+        static BattlePhase fromOrdinal(int ordinal) {
+            return ordinal >= 0 && ordinal < VALUES.length ? VALUES[ordinal] : ACTIVE;
+        }
     }
 }
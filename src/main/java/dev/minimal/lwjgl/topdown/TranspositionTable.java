@@ -0,0 +1,114 @@
+package dev.minimal.lwjgl.topdown;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size table of search results keyed by {@link Zobrist} position keys, shared by every search thread without
+ * locks. Each slot is two longs: the packed entry and the entry XOR-ed with its key. The two are written separately,
+ * so a reader racing a writer can see halves of different entries; such a pair fails the key check and reads as a
+ * miss instead of returning another position's score.
+ *
+ * <p>A slot is replaced when the new result is at least as deep, when it is for the same position, or when the slot
+ * was written by an earlier search ({@link #newSearch()}), so deep results survive shallow traffic within one search
+ * without the table silting up across searches.
+ *
+ * <p>Entry layout, low bits first: score (32, signed), depth (8), bound (2), best move index (8, all ones for none),
+ * search age (8).
+ */
+final class TranspositionTable {
+    static final int BOUND_EXACT = 0;
+    /** Score is a lower bound: the search failed high. */
+    static final int BOUND_LOWER = 1;
+    /** Score is an upper bound: no move reached alpha. */
+    static final int BOUND_UPPER = 2;
+    static final int NO_MOVE = 0xFF;
+    static final long MISS = 0L;
+
+    private static final int DEPTH_SHIFT = 32;
+    private static final int BOUND_SHIFT = 40;
+    private static final int MOVE_SHIFT = 42;
+    private static final int AGE_SHIFT = 50;
+    /** Set in every stored entry so that an empty slot (all zeroes) never decodes as one. */
+    private static final long PRESENT = 1L << 63;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+    private int age;
+
+    /** Creates a table of {@code 2^log2Entries} entries, each taking 16 bytes. */
+    TranspositionTable(int log2Entries) {
+        if (log2Entries < 1 || log2Entries > 28) {
+            throw new IllegalArgumentException("Table size must be between 2^1 and 2^28 entries");
+        }
+        this.slots = new AtomicLongArray(2 << log2Entries);
+        this.mask = (1 << log2Entries) - 1;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    /** Starts a new search; entries from earlier ones become free to overwrite. Not thread-safe against probes. */
+    void newSearch() {
+        age = (age + 1) & 0xFF;
+    }
+
+    /** Forgets every entry. Needed when reusing the table on another level, since keys do not cover the terrain. */
+    void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.setOpaque(i, 0L);
+        }
+    }
+
+    /** Entry stored for {@code key}, or {@link #MISS}. Decode it with the static accessors. */
+    long probe(long key) {
+        int slot = slotOf(key);
+        long entry = slots.getOpaque(slot);
+        long check = slots.getOpaque(slot + 1);
+        return entry != 0 && (entry ^ check) == key ? entry : MISS;
+    }
+
+    void store(long key, int depth, int score, int bound, int moveIndex) {
+        int slot = slotOf(key);
+        long existing = slots.getOpaque(slot);
+        if (existing != 0) {
+            boolean samePosition = (existing ^ slots.getOpaque(slot + 1)) == key;
+            if (!samePosition && ageOf(existing) == age && depthOf(existing) > depth) {
+                return;
+            }
+        }
+        long entry = PRESENT
+            | (score & 0xFFFFFFFFL)
+            | ((long) Math.min(depth, 0xFF) << DEPTH_SHIFT)
+            | ((long) bound << BOUND_SHIFT)
+            | ((long) (moveIndex < 0 || moveIndex >= NO_MOVE ? NO_MOVE : moveIndex) << MOVE_SHIFT)
+            | ((long) age << AGE_SHIFT);
+        slots.setOpaque(slot, entry);
+        slots.setOpaque(slot + 1, entry ^ key);
+    }
+
+    static int scoreOf(long entry) {
+        return (int) entry;
+    }
+
+    static int depthOf(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    static int boundOf(long entry) {
+        return (int) (entry >>> BOUND_SHIFT) & 0x3;
+    }
+
+    /** Index of the best move in the position's generated action list, or {@link #NO_MOVE}. */
+    static int moveOf(long entry) {
+        return (int) (entry >>> MOVE_SHIFT) & 0xFF;
+    }
+
+    private static int ageOf(long entry) {
+        return (int) (entry >>> AGE_SHIFT) & 0xFF;
+    }
+
+    private int slotOf(long key) {
+        return ((int) (key ^ (key >>> 32)) & mask) << 1;
+    }
+}
@@ -0,0 +1,172 @@
+package dev.minimal.lwjgl.topdown;
+
+import java.util.Arrays;
+
+/**
+ * Who still acts this round, ordered by initiative. Every placed, living unit of a {@link UnitTable} that has not
+ * moved sits in one binary max-heap per faction, keyed by its weapon's {@link Weapon#initiative() initiative} with
+ * the lower table index first on ties. Each unit remembers its heap slot, so a unit can act out of order as well as
+ * from the top.
+ *
+ * <p>{@link #remaining} is a counter read, {@link #acted} costs {@code O(log n)} and {@link #beginRound} {@code O(n)}
+ * once per round. {@link #next(UnitFaction)} serves phased turns; {@link #next()} merges the factions' heaps for turns
+ * where players and enemies take turns by initiative. Initiative is read when a unit is queued, so a weapon changed
+ * mid-round takes effect from the next round. Not thread-safe.
+ */
+final class TurnScheduler {
+    private static final UnitFaction[] FACTIONS = UnitFaction.values();
+    private static final int NOT_QUEUED = -1;
+
+    private final UnitTable units;
+    /** Unit indices per faction ordinal, heap-ordered by {@link #before}. */
+    private final int[][] heaps = new int[FACTIONS.length][0];
+    private final int[] sizes = new int[FACTIONS.length];
+    /** Per unit: slot in its faction's heap, or {@link #NOT_QUEUED}. */
+    private int[] slots = new int[0];
+    private int[] initiative = new int[0];
+    private int round;
+
+    TurnScheduler(UnitTable units) {
+        this.units = units;
+    }
+
+    /** Rounds begun so far. */
+    int round() {
+        return round;
+    }
+
+    /** Clears every moved flag and queues every placed, living unit for a new round. */
+    void beginRound() {
+        for (int i = 0; i < units.size(); i++) {
+            if (units.hasMoved(i)) {
+                units.setMoved(i, false);
+            }
+        }
+        round++;
+        rebuild();
+    }
+
+    /** Queues every placed, living unit that has not moved yet, as when resuming a round from a save. */
+    void rebuild() {
+        int count = units.size();
+        if (slots.length < count) {
+            slots = new int[count];
+            initiative = new int[count];
+        }
+        Arrays.fill(slots, NOT_QUEUED);
+        Arrays.fill(sizes, 0);
+        for (int i = 0; i < count; i++) {
+            if (!units.isPlaced(i) || units.hp(i) == 0 || units.hasMoved(i)) {
+                continue;
+            }
+            Weapon weapon = units.weapon(i);
+            initiative[i] = weapon == null ? 0 : weapon.initiative();
+            int faction = units.faction(i).ordinal();
+            if (sizes[faction] == heaps[faction].length) {
+                heaps[faction] = Arrays.copyOf(heaps[faction], Math.max(8, sizes[faction] * 2));
+            }
+            slots[i] = sizes[faction];
+            heaps[faction][sizes[faction]++] = i;
+        }
+        for (int faction = 0; faction < FACTIONS.length; faction++) {
+            for (int slot = sizes[faction] / 2 - 1; slot >= 0; slot--) {
+                siftDown(heaps[faction], sizes[faction], slot);
+            }
+        }
+    }
+
+    /** Units of {@code faction} still to act this round. */
+    int remaining(UnitFaction faction) {
+        return sizes[faction.ordinal()];
+    }
+
+    /** Units of every faction still to act this round. */
+    int remaining() {
+        int total = 0;
+        for (int size : sizes) {
+            total += size;
+        }
+        return total;
+    }
+
+    boolean isQueued(int unit) {
+        return unit < slots.length && slots[unit] != NOT_QUEUED;
+    }
+
+    /** Table index of the unit of {@code faction} with the highest initiative still to act, or {@code -1}. */
+    int next(UnitFaction faction) {
+        int f = faction.ordinal();
+        return sizes[f] == 0 ? -1 : heaps[f][0];
+    }
+
+    /** Like {@link #next(UnitFaction)} over every faction, for rounds in which factions interleave. */
+    int next() {
+        int best = -1;
+        for (int faction = 0; faction < FACTIONS.length; faction++) {
+            if (sizes[faction] > 0 && (best < 0 || before(heaps[faction][0], best))) {
+                best = heaps[faction][0];
+            }
+        }
+        return best;
+    }
+
+    /** Marks {@code unit} as moved and takes it out of the round; it need not be the next in order. */
+    void acted(int unit) {
+        if (!isQueued(unit)) {
+            throw new IllegalStateException("Unit " + units.id(unit) + " is not waiting to act");
+        }
+        int faction = units.faction(unit).ordinal();
+        int[] heap = heaps[faction];
+        int slot = slots[unit];
+        int last = --sizes[faction];
+        slots[unit] = NOT_QUEUED;
+        if (slot != last) {
+            heap[slot] = heap[last];
+            slots[heap[slot]] = slot;
+            siftDown(heap, last, siftUp(heap, slot));
+        }
+        units.setMoved(unit, true);
+    }
+
+    /** Higher initiative first, then the lower table index. */
+    private boolean before(int a, int b) {
+        return initiative[a] != initiative[b] ? initiative[a] > initiative[b] : a < b;
+    }
+
+    private int siftUp(int[] heap, int slot) {
+        int unit = heap[slot];
+        while (slot > 0) {
+            int parent = (slot - 1) / 2;
+            if (!before(unit, heap[parent])) {
+                break;
+            }
+            heap[slot] = heap[parent];
+            slots[heap[slot]] = slot;
+            slot = parent;
+        }
+        heap[slot] = unit;
+        slots[unit] = slot;
+        return slot;
+    }
+
+    private void siftDown(int[] heap, int size, int slot) {
+        int unit = heap[slot];
+        while (true) {
+            int child = 2 * slot + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && before(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!before(heap[child], unit)) {
+                break;
+            }
+            heap[slot] = heap[child];
+            slots[heap[slot]] = slot;
+            slot = child;
+        }
+        heap[slot] = unit;
+        slots[unit] = slot;
+    }
+}
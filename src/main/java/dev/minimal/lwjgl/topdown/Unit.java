@@ -3,90 +3,121 @@ package dev.minimal.lwjgl.topdown;
 import java.util.Locale;
 import java.util.Objects;
 
+/**
+ * View of one row of a {@link UnitTable}; all state lives in the table. Views are created by the table, one per row,
+ * so identity comparisons and identity maps over units keep working.
+ */
 final class Unit {
-    private final String id;
-    private final UnitFaction faction;
-    private GridPosition position;
-    private boolean hasMovedThisTurn;
-    private final int maxHp;
-    private final int maxSp;
-    private int hp;
-    private int sp;
-    private Weapon weapon;
-    private static final int DEFAULT_HP = 30;
-    private static final int DEFAULT_SP = 10;
-
-    Unit(String id, UnitFaction faction) {
-        this(id, faction, DEFAULT_HP, DEFAULT_SP);
-    }
-
-    Unit(String id, UnitFaction faction, int maxHp, int maxSp) {
-        this.id = Objects.requireNonNull(id, "Unit id is required");
-        this.faction = Objects.requireNonNull(faction, "Unit faction is required");
-        this.maxHp = Math.max(1, maxHp);
-        this.maxSp = Math.max(0, maxSp);
-        this.hp = this.maxHp;
-        this.sp = this.maxSp;
-        this.weapon = WeaponDefinitions.forFaction(faction);
+    private final UnitTable table;
+    private final int index;
+
+    Unit(UnitTable table, int index) {
+        this.table = table;
+        this.index = index;
+    }
+
+    UnitTable table() {
+        return table;
+    }
+
+    /** Row of this unit in {@link #table()}. */
+    int index() {
+        return index;
     }
 
     String id() {
-        return id;
+        return table.id(index);
     }
 
     UnitFaction faction() {
-        return faction;
+        return table.faction(index);
     }
 
     boolean isPlaced() {
-        return position != null;
+        return table.isPlaced(index);
     }
 
+    /** Current tile, or {@code null} off the board. Allocates; hot loops should read {@link #col()}/{@link #row()}. */
     GridPosition position() {
-        return position;
+        return table.isPlaced(index) ? new GridPosition(table.col(index), table.row(index)) : null;
+    }
+
+    /** Column of the current tile, or {@link UnitTable#NO_TILE}. */
+    int col() {
+        return table.col(index);
+    }
+
+    /** Row of the current tile, or {@link UnitTable#NO_TILE}. */
+    int row() {
+        return table.row(index);
     }
 
     void placeAt(GridPosition gridPosition) {
-        this.position = Objects.requireNonNull(gridPosition, "gridPosition");
+        Objects.requireNonNull(gridPosition, "gridPosition");
+        table.place(index, gridPosition.col(), gridPosition.row());
+    }
+
+    void placeAt(int col, int row) {
+        table.place(index, col, row);
+    }
+
+    /** Registers the unit with {@code board}, which then tracks every placement, hit point and moved-flag change. */
+    void attachTo(BoardOccupancy board) {
+        table.attach(index, board);
     }
 
     boolean hasMovedThisTurn() {
-        return hasMovedThisTurn;
+        return table.hasMoved(index);
     }
 
     void setMovedThisTurn(boolean moved) {
-        this.hasMovedThisTurn = moved;
+        table.setMoved(index, moved);
     }
 
     void clearPlacement() {
-        this.position = null;
+        table.clearPlacement(index);
     }
 
     Weapon weapon() {
-        return weapon;
+        return table.weapon(index);
     }
 
     void equipWeapon(Weapon weapon) {
-        this.weapon = Objects.requireNonNull(weapon, "weapon");
+        table.equip(index, weapon);
     }
 
     int maxHp() {
-        return maxHp;
+        return table.maxHp(index);
     }
 
     int maxSp() {
-        return maxSp;
+        return table.maxSp(index);
     }
 
     int hp() {
-        return hp;
+        return table.hp(index);
     }
 
     int sp() {
-        return sp;
+        return table.sp(index);
+    }
+
+    /** Lowers hit points, never below zero. */
+    void applyDamage(int amount) {
+        table.applyDamage(index, amount);
+    }
+
+    /** {@link #applyDamage} dealt by {@code attacker}, which the table's {@link BattleLog} records as the source. */
+    void applyHit(Unit attacker, int amount) {
+        table.applyHit(attacker.table == table ? attacker.index : -1, index, amount);
+    }
+
+    boolean isDefeated() {
+        return table.hp(index) == 0;
     }
 
     String displayName() {
+        String id = id();
         if (id == null || id.isBlank()) {
             return "";
         }
@@ -0,0 +1,361 @@
+package dev.minimal.lwjgl.topdown;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Every unit of a battle as parallel primitive arrays: hit and skill points, tile, faction, moved flag and an index
+ * into the table's weapon list. {@link Unit} is a thin view of one row, so loops over thousands of units can read the
+ * columns directly instead of chasing one heap object per unit, and moving a unit writes two ints.
+ *
+ * <p>Rows are never removed; a defeated unit keeps its row with zero hit points. All units of a table share the
+ * {@link BoardOccupancy} they are attached to, and every change is also appended to the table's {@link BattleLog}
+ * once {@link #recordTo recording}. Not thread-safe; a table belongs to one battle.
+ */
+final class UnitTable {
+    static final int NO_TILE = -1;
+    static final int NO_WEAPON = -1;
+    private static final UnitFaction[] FACTIONS = UnitFaction.values();
+
+    private int size;
+    private String[] ids;
+    private byte[] factions;
+    private int[] hp;
+    private int[] sp;
+    private int[] maxHp;
+    private int[] maxSp;
+    /** Column and row per unit, {@link #NO_TILE} in both while off the board. */
+    private int[] cols;
+    private int[] rows;
+    private long[] moved;
+    /** Units changed since the last {@link #clearDirty()}, for delta saves. */
+    private long[] dirty;
+    private int dirtyCount;
+    private int[] weaponIndices;
+    private int[] boardHandles;
+    private Unit[] views;
+    private final List<Weapon> weapons = new ArrayList<>();
+    private final Map<Weapon, Integer> weaponSlots = new IdentityHashMap<>();
+    private BoardOccupancy board;
+    private BattleLog log;
+
+    UnitTable() {
+        this(16);
+    }
+
+    UnitTable(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        ids = new String[capacity];
+        factions = new byte[capacity];
+        hp = new int[capacity];
+        sp = new int[capacity];
+        maxHp = new int[capacity];
+        maxSp = new int[capacity];
+        cols = new int[capacity];
+        rows = new int[capacity];
+        moved = new long[Level.wordsFor(capacity)];
+        dirty = new long[Level.wordsFor(capacity)];
+        weaponIndices = new int[capacity];
+        boardHandles = new int[capacity];
+        views = new Unit[capacity];
+    }
+
+    /** Adds an unplaced unit at full health carrying its faction's default weapon and returns its view. */
+    Unit add(String id, UnitFaction faction, int maxHp, int maxSp) {
+        Objects.requireNonNull(id, "Unit id is required");
+        Objects.requireNonNull(faction, "Unit faction is required");
+        if (size == ids.length) {
+            grow(size * 2);
+        }
+        int index = size++;
+        ids[index] = id;
+        factions[index] = (byte) faction.ordinal();
+        this.maxHp[index] = Math.max(1, maxHp);
+        this.maxSp[index] = Math.max(0, maxSp);
+        hp[index] = this.maxHp[index];
+        sp[index] = this.maxSp[index];
+        cols[index] = NO_TILE;
+        rows[index] = NO_TILE;
+        weaponIndices[index] = weaponSlot(WeaponRegistry.standard().forFaction(faction));
+        boardHandles[index] = -1;
+        views[index] = new Unit(this, index);
+        markDirty(index);
+        if (log != null) {
+            log.unitAdded(id, faction, this.maxHp[index], this.maxSp[index]);
+            log.equipped(index, weapon(index));
+        }
+        return views[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    Unit unit(int index) {
+        return views[checked(index)];
+    }
+
+    String id(int index) {
+        return ids[index];
+    }
+
+    UnitFaction faction(int index) {
+        return FACTIONS[factions[index]];
+    }
+
+    int hp(int index) {
+        return hp[index];
+    }
+
+    int sp(int index) {
+        return sp[index];
+    }
+
+    int maxHp(int index) {
+        return maxHp[index];
+    }
+
+    int maxSp(int index) {
+        return maxSp[index];
+    }
+
+    int col(int index) {
+        return cols[index];
+    }
+
+    int row(int index) {
+        return rows[index];
+    }
+
+    boolean isPlaced(int index) {
+        return cols[index] != NO_TILE;
+    }
+
+    boolean hasMoved(int index) {
+        return (moved[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /** Index of the unit's weapon in {@link #weapons()}, or {@link #NO_WEAPON}. */
+    int weaponIndex(int index) {
+        return weaponIndices[index];
+    }
+
+    Weapon weapon(int index) {
+        int slot = weaponIndices[index];
+        return slot == NO_WEAPON ? null : weapons.get(slot);
+    }
+
+    /** Distinct weapons carried by any unit so far, in first-seen order. */
+    List<Weapon> weapons() {
+        return weapons;
+    }
+
+    void place(int index, int col, int row) {
+        if (col < 0 || row < 0) {
+            throw new IllegalArgumentException("Tile must not be negative");
+        }
+        moveTo(index, col, row);
+    }
+
+    void clearPlacement(int index) {
+        moveTo(index, NO_TILE, NO_TILE);
+    }
+
+    void setMoved(int index, boolean value) {
+        if (value == hasMoved(index)) {
+            return;
+        }
+        moved[index >>> 6] ^= 1L << index;
+        markDirty(index);
+        if (board != null && boardHandles[index] >= 0) {
+            board.movedFlagChanged(boardHandles[index]);
+        }
+        if (log != null) {
+            log.movedFlag(index, value);
+        }
+    }
+
+    /** Lowers hit points, never below zero. */
+    void applyDamage(int index, int amount) {
+        applyHit(-1, index, amount);
+    }
+
+    /** {@link #applyDamage} dealt by unit {@code attacker}, or by no unit when it is {@code -1}. */
+    void applyHit(int attacker, int index, int amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Damage must not be negative");
+        }
+        int previous = hp[index];
+        hp[index] = Math.max(0, previous - amount);
+        markDirty(index);
+        if (board != null && boardHandles[index] >= 0) {
+            board.hpChanged(boardHandles[index], previous, hp[index]);
+        }
+        if (log != null) {
+            log.hit(attacker, index, amount);
+        }
+    }
+
+    void equip(int index, Weapon weapon) {
+        weaponIndices[index] = weaponSlot(Objects.requireNonNull(weapon, "weapon"));
+        markDirty(index);
+        if (log != null) {
+            log.equipped(index, weapon);
+        }
+    }
+
+    /**
+     * Sets unit {@code index}'s tile, hit and skill points and moved flag outright, as when restoring a snapshot. The
+     * board is kept in step but the change is not logged.
+     */
+    void restore(int index, int col, int row, int hitPoints, int skillPoints, boolean movedFlag) {
+        BattleLog recording = log;
+        log = null;
+        moveTo(index, col, row);
+        int previous = hp[index];
+        hp[index] = Math.max(0, Math.min(maxHp[index], hitPoints));
+        sp[index] = Math.max(0, Math.min(maxSp[index], skillPoints));
+        markDirty(index);
+        if (board != null && boardHandles[index] >= 0) {
+            board.hpChanged(boardHandles[index], previous, hp[index]);
+        }
+        setMoved(index, movedFlag);
+        log = recording;
+    }
+
+    /**
+     * Starts appending every change to {@code log}, beginning with the units already in the table, their weapons,
+     * placements, damage taken and moved flags.
+     */
+    void recordTo(BattleLog log) {
+        Objects.requireNonNull(log, "log");
+        if (this.log != null) {
+            throw new IllegalStateException("Unit table is already recording");
+        }
+        log.attach(this);
+        for (int i = 0; i < size; i++) {
+            log.unitAdded(ids[i], faction(i), maxHp[i], maxSp[i]);
+            log.equipped(i, weapon(i));
+            if (isPlaced(i)) {
+                log.placed(i, cols[i], rows[i]);
+            }
+            if (hp[i] != maxHp[i]) {
+                log.hit(-1, i, maxHp[i] - hp[i]);
+            }
+            if (hasMoved(i)) {
+                log.movedFlag(i, true);
+            }
+        }
+        this.log = log;
+    }
+
+    /** Whether unit {@code index} was added or changed since the last {@link #clearDirty()}. */
+    boolean isDirty(int index) {
+        return (dirty[index >>> 6] & (1L << index)) != 0;
+    }
+
+    int dirtyCount() {
+        return dirtyCount;
+    }
+
+    /** Forgets which units changed, typically right after a full save. */
+    void clearDirty() {
+        Arrays.fill(dirty, 0L);
+        dirtyCount = 0;
+    }
+
+    /**
+     * {@link Zobrist} key over every unit's tile on a board {@code columns} wide, hit points and moved flag, numbering
+     * units by row. Equal to the board's {@link BoardOccupancy#positionKey()} when the board holds exactly this
+     * table's units, attached in row order.
+     */
+    long stateKey(int columns) {
+        long key = 0L;
+        for (int i = 0; i < size; i++) {
+            key ^= Zobrist.unitTile(i, isPlaced(i) ? rows[i] * columns + cols[i] : NO_TILE) ^ Zobrist.unitHp(i, hp[i]);
+            if (hasMoved(i)) {
+                key ^= Zobrist.unitMoved(i);
+            }
+        }
+        return key;
+    }
+
+    /** Registers unit {@code index} with {@code board}, which every unit of this table must share. */
+    void attach(int index, BoardOccupancy board) {
+        Objects.requireNonNull(board, "board");
+        if (this.board != null && this.board != board) {
+            throw new IllegalStateException("Units of one table must share a board");
+        }
+        if (boardHandles[index] >= 0) {
+            throw new IllegalStateException("Unit " + ids[index] + " is already on a board");
+        }
+        this.board = board;
+        boardHandles[index] = board.register(views[index]);
+    }
+
+    private void markDirty(int index) {
+        long bit = 1L << index;
+        if ((dirty[index >>> 6] & bit) == 0) {
+            dirty[index >>> 6] |= bit;
+            dirtyCount++;
+        }
+    }
+
+    private void moveTo(int index, int col, int row) {
+        int fromCol = cols[index];
+        int fromRow = rows[index];
+        if (fromCol == col && fromRow == row) {
+            return;
+        }
+        if (board != null && boardHandles[index] >= 0) {
+            // First, so that a rejected move leaves the table unchanged.
+            board.unitMoved(boardHandles[index], fromCol, fromRow, col, row);
+        }
+        cols[index] = col;
+        rows[index] = row;
+        markDirty(index);
+        if (log != null) {
+            log.placed(index, col, row);
+        }
+    }
+
+    private int weaponSlot(Weapon weapon) {
+        if (weapon == null) {
+            return NO_WEAPON;
+        }
+        Integer slot = weaponSlots.get(weapon);
+        if (slot == null) {
+            slot = weapons.size();
+            weapons.add(weapon);
+            weaponSlots.put(weapon, slot);
+        }
+        return slot;
+    }
+
+    private int checked(int index) {
+        if (index < 0 || index >= size) {
+            throw new IllegalArgumentException("Unknown unit index " + index);
+        }
+        return index;
+    }
+
+    private void grow(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        factions = Arrays.copyOf(factions, capacity);
+        hp = Arrays.copyOf(hp, capacity);
+        sp = Arrays.copyOf(sp, capacity);
+        maxHp = Arrays.copyOf(maxHp, capacity);
+        maxSp = Arrays.copyOf(maxSp, capacity);
+        cols = Arrays.copyOf(cols, capacity);
+        rows = Arrays.copyOf(rows, capacity);
+        moved = Arrays.copyOf(moved, Level.wordsFor(capacity));
+        dirty = Arrays.copyOf(dirty, Level.wordsFor(capacity));
+        weaponIndices = Arrays.copyOf(weaponIndices, capacity);
+        boardHandles = Arrays.copyOf(boardHandles, capacity);
+        views = Arrays.copyOf(views, capacity);
+    }
+}
@@ -2,12 +2,18 @@ package dev.minimal.lwjgl.topdown;
 
 import java.util.List;
 
+/**
+ * {@code index} is the weapon's dense id in the {@link WeaponRegistry} that loaded it. Units with a higher
+ * {@code initiative} act earlier in a round; see {@link TurnScheduler}.
+ */
 record Weapon(
+    int index,
     String id,
     String displayName,
     WeaponTag tag,
     int damage,
     int defense,
+    int initiative,
     String description,
     List<WeaponSkill> skills
 ) {
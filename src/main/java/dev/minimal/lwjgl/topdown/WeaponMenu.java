@@ -1,9 +1,11 @@
 package dev.minimal.lwjgl.topdown;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
+/**
+ * Cursor over a weapon list. An immutable list such as {@link WeaponRegistry#catalog()} is used as it is, so a menu
+ * over a catalog of any size copies nothing.
+ */
 final class WeaponMenu {
     private final List<Weapon> weapons;
     private int selectedIndex;
@@ -12,20 +14,18 @@ final class WeaponMenu {
         if (weapons == null || weapons.isEmpty()) {
             throw new IllegalArgumentException("Weapon menu requires at least one weapon");
         }
-        this.weapons = new ArrayList<>();
-        for (Weapon weapon : weapons) {
-            if (weapon != null) {
-                this.weapons.add(weapon);
-            }
-        }
-        if (this.weapons.isEmpty()) {
-            throw new IllegalArgumentException("Weapon menu requires at least one valid weapon");
-        }
+        this.weapons = List.copyOf(weapons);
         this.selectedIndex = 0;
     }
 
     List<Weapon> weapons() {
-        return Collections.unmodifiableList(weapons);
+        return weapons;
+    }
+
+    /** First of {@code visibleRows} consecutive entries that keep the selection roughly centred. */
+    int firstVisible(int visibleRows) {
+        int first = selectedIndex - visibleRows / 2;
+        return Math.max(0, Math.min(first, weapons.size() - visibleRows));
     }
 
     Weapon selected() {
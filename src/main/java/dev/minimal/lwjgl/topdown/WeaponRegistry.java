@@ -0,0 +1,323 @@
+package dev.minimal.lwjgl.topdown;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Every weapon and skill the game knows, read once from a data file (see the bundled {@value #RESOURCE} for the
+ * format). Loading interns weapons and skills under dense indices, so a skill shared by several weapons is one
+ * instance, and lookups by index, tag or faction are array reads. Per skill it precomputes the
+ * {@link SkillStencils stencils} for every facing, how far they reach and how many tiles they cover; per weapon the
+ * furthest reach of any of its skills and the union of their stencils.
+ *
+ * <p>The lists handed out are immutable and shared, so menus and catalogs never copy them. Instances are immutable
+ * and safe to share between threads.
+ */
+final class WeaponRegistry {
+    static final String RESOURCE = "weapons.txt";
+    private static final String SEPARATOR = "\\|";
+    private static final WeaponTag[] TAGS = WeaponTag.values();
+    private static final UnitFaction[] FACTIONS = UnitFaction.values();
+
+    private final List<Weapon> weapons;
+    private final List<WeaponSkill> skills;
+    private final Map<String, Weapon> weaponsById;
+    private final Map<String, WeaponSkill> skillsById;
+    /** Weapons per {@link WeaponTag} ordinal, in registry order. */
+    private final List<List<Weapon>> weaponsByTag;
+    /** Default weapon per {@link UnitFaction} ordinal. */
+    private final Weapon[] defaults;
+    private final SkillStencils stencils;
+    /** Per skill: largest Manhattan distance of any stencil tile over all facings. */
+    private final int[] skillReach;
+    /** Per skill: tiles in its largest stencil over all facings. */
+    private final int[] skillTiles;
+    private final int[] weaponReach;
+    /** Per weapon: every offset any of its skills covers in any facing. */
+    private final SkillStencils.Stencil[] weaponCoverage;
+
+    private WeaponRegistry(List<Weapon> weapons, List<WeaponSkill> skills, Weapon[] defaults) {
+        this.weapons = List.copyOf(weapons);
+        this.skills = List.copyOf(skills);
+        this.defaults = defaults;
+        this.weaponsById = new HashMap<>(weapons.size() * 2);
+        for (Weapon weapon : weapons) {
+            weaponsById.put(weapon.id(), weapon);
+        }
+        this.skillsById = new HashMap<>(skills.size() * 2);
+        for (WeaponSkill skill : skills) {
+            skillsById.put(skill.id(), skill);
+        }
+        List<List<Weapon>> byTag = new ArrayList<>(TAGS.length);
+        for (WeaponTag tag : TAGS) {
+            List<Weapon> tagged = new ArrayList<>();
+            for (Weapon weapon : weapons) {
+                if (weapon.tag() == tag) {
+                    tagged.add(weapon);
+                }
+            }
+            byTag.add(List.copyOf(tagged));
+        }
+        this.weaponsByTag = List.copyOf(byTag);
+
+        this.stencils = new SkillStencils(this.skills);
+        this.skillReach = new int[skills.size()];
+        this.skillTiles = new int[skills.size()];
+        for (WeaponSkill skill : skills) {
+            for (Direction facing : Direction.DIRECTIONS) {
+                SkillStencils.Stencil stencil = stencils.stencil(skill, facing);
+                skillTiles[skill.index()] = Math.max(skillTiles[skill.index()], stencil.size());
+                for (int i = 0; i < stencil.size(); i++) {
+                    int distance = Math.abs(stencil.dx(i)) + Math.abs(stencil.dy(i));
+                    skillReach[skill.index()] = Math.max(skillReach[skill.index()], distance);
+                }
+            }
+        }
+        this.weaponReach = new int[weapons.size()];
+        this.weaponCoverage = new SkillStencils.Stencil[weapons.size()];
+        for (Weapon weapon : weapons) {
+            weaponCoverage[weapon.index()] = stencils.coverage(weapon.skills());
+            for (WeaponSkill skill : weapon.skills()) {
+                weaponReach[weapon.index()] = Math.max(weaponReach[weapon.index()], skillReach[skill.index()]);
+            }
+        }
+    }
+
+    /** The catalog bundled with the game, loaded on first use. */
+    static WeaponRegistry standard() {
+        return Standard.INSTANCE;
+    }
+
+    /** Reads a catalog in the {@value #RESOURCE} format; {@code source} names it in error messages. */
+    static WeaponRegistry parse(BufferedReader reader, String source) throws IOException {
+        List<Weapon> weapons = new ArrayList<>();
+        List<WeaponSkill> skills = new ArrayList<>();
+        Map<String, WeaponSkill> skillsById = new HashMap<>();
+        Map<String, Integer> weaponIndices = new HashMap<>();
+        int[] defaultIndices = new int[FACTIONS.length];
+        List<WeaponSkill> pendingSkills = null;
+        String[] pendingWeapon = null;
+        int pendingLine = 0;
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            String trimmed = line.strip();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            String[] fields = trimmed.split(SEPARATOR, -1);
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = fields[i].strip();
+            }
+            String where = source + ":" + lineNumber;
+            switch (fields[0]) {
+                case "weapon" -> {
+                    expectFields(fields, 8, where);
+                    if (pendingWeapon != null) {
+                        weapons.add(weapon(weapons.size(), pendingWeapon, pendingSkills, source + ":" + pendingLine));
+                    }
+                    if (weaponIndices.putIfAbsent(fields[1], weapons.size()) != null) {
+                        throw new IllegalArgumentException(where + ": duplicate weapon " + fields[1]);
+                    }
+                    pendingWeapon = fields;
+                    pendingSkills = new ArrayList<>();
+                    pendingLine = lineNumber;
+                }
+                case "skill" -> {
+                    if (pendingWeapon == null) {
+                        throw new IllegalArgumentException(where + ": skill before any weapon");
+                    }
+                    pendingSkills.add(skill(fields, skills, skillsById, where));
+                }
+                case "default" -> {
+                    expectFields(fields, 3, where);
+                    Integer weapon = weaponIndices.get(fields[2]);
+                    if (weapon == null) {
+                        throw new IllegalArgumentException(where + ": unknown weapon " + fields[2]);
+                    }
+                    defaultIndices[constant(UnitFaction.class, fields[1], where).ordinal()] = weapon;
+                }
+                default -> throw new IllegalArgumentException(where + ": unknown entry " + fields[0]);
+            }
+        }
+        if (pendingWeapon != null) {
+            weapons.add(weapon(weapons.size(), pendingWeapon, pendingSkills, source + ":" + pendingLine));
+        }
+        if (weapons.isEmpty()) {
+            throw new IllegalArgumentException(source + ": no weapons defined");
+        }
+        Weapon[] defaults = new Weapon[FACTIONS.length];
+        for (int i = 0; i < defaults.length; i++) {
+            defaults[i] = weapons.get(defaultIndices[i]);
+        }
+        return new WeaponRegistry(weapons, skills, defaults);
+    }
+
+    int size() {
+        return weapons.size();
+    }
+
+    /** Every weapon in index order. */
+    List<Weapon> catalog() {
+        return weapons;
+    }
+
+    Weapon weapon(int index) {
+        return weapons.get(index);
+    }
+
+    /** Weapon with {@code id}, or {@code null}. */
+    Weapon byId(String id) {
+        return weaponsById.get(id);
+    }
+
+    /** Weapons carrying {@code tag}, in index order. */
+    List<Weapon> withTag(WeaponTag tag) {
+        return weaponsByTag.get(tag.ordinal());
+    }
+
+    Weapon forFaction(UnitFaction faction) {
+        return defaults[faction.ordinal()];
+    }
+
+    /** Every interned skill in index order. */
+    List<WeaponSkill> skills() {
+        return skills;
+    }
+
+    WeaponSkill skill(int index) {
+        return skills.get(index);
+    }
+
+    /** Skill with {@code id}, or {@code null}. */
+    WeaponSkill skillById(String id) {
+        return skillsById.get(id);
+    }
+
+    /** Area stencils of every skill, looked up by skill index. */
+    SkillStencils stencils() {
+        return stencils;
+    }
+
+    /** Largest Manhattan distance from the caster of any tile {@code skill} can hit, in any facing. */
+    int reach(WeaponSkill skill) {
+        return skillReach[registered(skill).index()];
+    }
+
+    /** Tiles covered by {@code skill}'s largest stencil, before walls and line of sight. */
+    int tiles(WeaponSkill skill) {
+        return skillTiles[registered(skill).index()];
+    }
+
+    /** Largest {@link #reach(WeaponSkill)} over the skills of {@code weapon}, {@code 0} without skills. */
+    int reach(Weapon weapon) {
+        return weaponReach[registered(weapon).index()];
+    }
+
+    /** Offsets {@code weapon} can hit with some skill in some facing, before walls and line of sight. */
+    SkillStencils.Stencil coverage(Weapon weapon) {
+        return weaponCoverage[registered(weapon).index()];
+    }
+
+    private Weapon registered(Weapon weapon) {
+        int index = weapon.index();
+        if (index < 0 || index >= weapons.size() || weapons.get(index) != weapon) {
+            throw new IllegalArgumentException("Weapon " + weapon.id() + " is not from this registry");
+        }
+        return weapon;
+    }
+
+    private WeaponSkill registered(WeaponSkill skill) {
+        int index = skill.index();
+        if (index < 0 || index >= skills.size() || skills.get(index) != skill) {
+            throw new IllegalArgumentException("Skill " + skill.id() + " is not from this registry");
+        }
+        return skill;
+    }
+
+    private static Weapon weapon(int index, String[] fields, List<WeaponSkill> skills, String where) {
+        return new Weapon(index, fields[1], fields[2], constant(WeaponTag.class, fields[3], where),
+            number(fields[4], 0, where), number(fields[5], 0, where), number(fields[6], 0, where), fields[7],
+            List.copyOf(skills));
+    }
+
+    /** A skill line: a full definition, interned under the next index, or a bare id reusing an earlier one. */
+    private static WeaponSkill skill(String[] fields, List<WeaponSkill> skills, Map<String, WeaponSkill> byId,
+                                     String where) {
+        WeaponSkill existing = fields.length > 1 ? byId.get(fields[1]) : null;
+        if (fields.length == 2) {
+            if (existing == null) {
+                throw new IllegalArgumentException(where + ": unknown skill " + fields[1]);
+            }
+            return existing;
+        }
+        expectFields(fields, 7, where);
+        if (existing != null) {
+            throw new IllegalArgumentException(where + ": skill " + fields[1] + " is already defined");
+        }
+        WeaponSkill skill = new WeaponSkill(skills.size(), fields[1], fields[2],
+            constant(SkillPattern.class, fields[3], where), number(fields[4], 1, where), number(fields[5], 1, where),
+            fields[6]);
+        skills.add(skill);
+        byId.put(skill.id(), skill);
+        return skill;
+    }
+
+    private static void expectFields(String[] fields, int count, String where) {
+        if (fields.length != count) {
+            throw new IllegalArgumentException(where + ": " + fields[0] + " needs " + count + " fields, found "
+                + fields.length);
+        }
+        for (String field : fields) {
+            if (field.isEmpty()) {
+                throw new IllegalArgumentException(where + ": empty field");
+            }
+        }
+    }
+
+    private static int number(String field, int min, String where) {
+        try {
+            int value = Integer.parseInt(field);
+            if (value < min) {
+                throw new IllegalArgumentException(where + ": " + field + " is below " + min);
+            }
+            return value;
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException(where + ": not a number: " + field, ex);
+        }
+    }
+
+    private static <E extends Enum<E>> E constant(Class<E> type, String field, String where) {
+        try {
+            return Enum.valueOf(type, field.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException(where + ": unknown " + type.getSimpleName() + " " + field, ex);
+        }
+    }
+
+    private static final class Standard {
+        static final WeaponRegistry INSTANCE = load();
+
+        private static WeaponRegistry load() {
+            InputStream in = WeaponRegistry.class.getResourceAsStream(RESOURCE);
+            if (in == null) {
+                throw new IllegalStateException("Weapon catalog resource " + RESOURCE + " is missing");
+            }
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                return parse(reader, RESOURCE);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package dev.minimal.lwjgl.topdown;
 
+/**
+ * {@code index} is the skill's dense id in the {@link WeaponRegistry} that loaded it; weapons sharing a skill share
+ * the instance.
+ */
 record WeaponSkill(
+    int index,
     String id,
     String displayName,
     SkillPattern pattern,
@@ -14,4 +14,13 @@ enum WeaponTag {
     char symbol() {
         return symbol;
     }
+
+    /** Rock beats scissors, scissors beat paper, paper beats rock. */
+    boolean beats(WeaponTag other) {
+        return other == switch (this) {
+            case ROCK -> SCISSORS;
+            case PAPER -> ROCK;
+            case SCISSORS -> PAPER;
+        };
+    }
 }
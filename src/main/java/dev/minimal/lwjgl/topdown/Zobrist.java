@@ -0,0 +1,47 @@
+package dev.minimal.lwjgl.topdown;
+
+/**
+ * Zobrist keys for battle positions. A position's key is the XOR of one key per fact: each unit's tile, each unit's
+ * hit points, each unit that has already moved this turn, and the side to move when it is the enemy's. Changing one
+ * fact is two XORs, so keys are maintained incrementally by {@link BattleState} and {@link BoardOccupancy} rather
+ * than recomputed.
+ *
+ * <p>Keys are derived by hashing the fact instead of drawn from stored random tables, so they are the same in every
+ * process and need no size limit on boards or squads. Units are identified by their index, which for a game's
+ * {@link BoardOccupancy} handles and a {@link BattleState} captured from the same squads is the same number, so the
+ * two keys agree and either can be compared against a recorded one to detect a desync.
+ */
+final class Zobrist {
+    private static final long TILE_SALT = 0x9E3779B97F4A7C15L;
+    private static final long HP_SALT = 0xC2B2AE3D27D4EB4FL;
+    private static final long MOVED_SALT = 0x165667B19E3779F9L;
+    static final long ENEMY_TO_MOVE = mix(0xD6E8FEB86659FD93L);
+
+    private Zobrist() {
+    }
+
+    /** Key for {@code unit} standing on {@code tile} ({@code row * columns + col}); off-board units contribute nothing. */
+    static long unitTile(int unit, int tile) {
+        return tile < 0 ? 0L : mix(TILE_SALT ^ ((long) unit << 32) ^ (tile & 0xFFFFFFFFL));
+    }
+
+    static long unitHp(int unit, int hp) {
+        return mix(HP_SALT ^ ((long) unit << 32) ^ (hp & 0xFFFFFFFFL));
+    }
+
+    static long unitMoved(int unit) {
+        return mix(MOVED_SALT ^ unit);
+    }
+
+    static long sideToMove(UnitFaction side) {
+        return side == UnitFaction.ENEMY ? ENEMY_TO_MOVE : 0L;
+    }
+
+    /** SplitMix64 finaliser; the salts keep the three kinds of fact apart. */
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
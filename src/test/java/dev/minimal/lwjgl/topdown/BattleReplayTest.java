@@ -0,0 +1,181 @@
+package dev.minimal.lwjgl.topdown;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BattleReplayTest {
+    private static final int COLUMNS = 23;
+    private static final int ROWS = 17;
+    private static final int UNITS = 12;
+    private static final int KEYFRAME_INTERVAL = 4;
+    private static final int TURNS = 19;
+
+    /** Seeking restores a keyframe and replays on from it; the result must match replaying the log cut at that turn. */
+    @Test
+    void seekMatchesAFullReplayOfTheLogCutAtThatTurn() {
+        Recording recording = record(41L);
+        BattleReplay replay = new BattleReplay(recording.bytes);
+        assertEquals(TURNS, replay.turns());
+        assertEquals(-1, replay.verify());
+
+        for (int turn = 0; turn <= TURNS; turn++) {
+            UnitTable sought = replay.seek(turn);
+            UnitTable cut = new BattleReplay(Arrays.copyOf(recording.bytes, recording.turnEnds[turn])).replayAll();
+            assertSameUnits(cut, sought, "turn " + turn);
+            if (turn > 0) {
+                assertEquals(recording.stateKeys[turn], sought.stateKey(COLUMNS), "turn " + turn);
+            }
+        }
+        assertSameUnits(recording.table, replay.replayAll(), "whole log");
+        assertThrows(IllegalArgumentException.class, () -> replay.seek(TURNS + 1));
+        assertThrows(IllegalArgumentException.class, () -> replay.seek(-1));
+    }
+
+    @Test
+    void logsCutInsideAnEventAreRejected() {
+        Recording recording = record(42L);
+        byte[] bytes = recording.bytes;
+        int header = recording.turnEnds[0];
+        for (int length = 0; length < header; length++) {
+            byte[] cut = Arrays.copyOf(bytes, length);
+            assertThrows(IllegalArgumentException.class, () -> new BattleReplay(cut), "length " + length);
+        }
+        assertEquals(0, new BattleReplay(Arrays.copyOf(bytes, header)).replayAll().size());
+
+        int rejected = 0;
+        for (int length = recording.setupEnd; length < bytes.length; length++) {
+            byte[] cut = Arrays.copyOf(bytes, length);
+            if (Arrays.binarySearch(recording.eventStarts, 0, recording.eventCount, length) >= 0) {
+                new BattleReplay(cut).replayAll();
+            } else {
+                assertThrows(IllegalArgumentException.class, () -> new BattleReplay(cut).replayAll(),
+                    "length " + length);
+                rejected++;
+            }
+        }
+        assertTrue(rejected > bytes.length / 2);
+    }
+
+    @Test
+    void corruptLogsAreRejected() {
+        Recording recording = record(43L);
+        byte[] bytes = recording.bytes;
+
+        byte[] foreign = bytes.clone();
+        foreign[0] ^= 0x40;
+        assertThrows(IllegalArgumentException.class, () -> new BattleReplay(foreign));
+
+        byte[] unknownOpcode = Arrays.copyOf(bytes, bytes.length + 1);
+        unknownOpcode[bytes.length] = 0x7F;
+        assertThrows(IllegalArgumentException.class, () -> new BattleReplay(unknownOpcode));
+
+        // A turn marker that skips ahead of the turn count.
+        byte[] skippedTurn = Arrays.copyOf(bytes, bytes.length + 3);
+        skippedTurn[bytes.length] = BattleLog.TURN;
+        skippedTurn[bytes.length + 1] = (byte) (TURNS + 3);
+        assertThrows(IllegalArgumentException.class, () -> new BattleReplay(skippedTurn));
+
+        // Flipping a bit of a keyframe's state key leaves a readable log that verify reports as drifted.
+        int keyframeTurn = 2 * KEYFRAME_INTERVAL;
+        byte[] wrongKey = bytes.clone();
+        wrongKey[recording.turnStarts[keyframeTurn] + 3] ^= 0x01;
+        assertEquals(keyframeTurn, new BattleReplay(wrongKey).verify());
+    }
+
+    /**
+     * Random moves, hits, equips and moved flags over {@link #TURNS} turns. Keeps where every turn marker starts and
+     * ends, the table's state key at the end of every turn, and where every event after the setup starts. The setup
+     * defines every weapon, so from then on each table call writes exactly one event.
+     */
+    private static Recording record(long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Weapon> catalog = WeaponRegistry.standard().catalog();
+        BattleLog log = new BattleLog(COLUMNS, KEYFRAME_INTERVAL);
+        UnitTable table = new UnitTable();
+        Recording recording = new Recording(table);
+        recording.turnEnds[0] = log.size();
+        table.recordTo(log);
+        for (int i = 0; i < UNITS; i++) {
+            table.add("unit-" + i, i % 2 == 0 ? UnitFaction.PLAYER : UnitFaction.ENEMY, 40, 10);
+            table.place(i, i, i % ROWS);
+        }
+        for (Weapon weapon : catalog) {
+            table.equip(0, weapon);
+        }
+        recording.setupEnd = log.size();
+        recording.mark(log);
+        for (int turn = 1; turn <= TURNS; turn++) {
+            for (int event = 0; event < 12; event++) {
+                int unit = random.nextInt(UNITS);
+                switch (random.nextInt(4)) {
+                    case 0 -> table.place(unit, random.nextInt(COLUMNS), random.nextInt(ROWS));
+                    case 1 -> {
+                        table.applyHit(random.nextInt(-1, UNITS), unit, random.nextInt(1, 9));
+                        if (table.hp(unit) == 0) {
+                            recording.mark(log);
+                            table.clearPlacement(unit);
+                        }
+                    }
+                    case 2 -> table.equip(unit, catalog.get(random.nextInt(catalog.size())));
+                    default -> table.setMoved(unit, !table.hasMoved(unit));
+                }
+                recording.mark(log);
+            }
+            recording.turnStarts[turn] = log.size();
+            log.endTurn();
+            recording.mark(log);
+            recording.turnEnds[turn] = log.size();
+            recording.stateKeys[turn] = table.stateKey(COLUMNS);
+        }
+        recording.bytes = log.toByteArray();
+        return recording;
+    }
+
+    private static void assertSameUnits(UnitTable expected, UnitTable actual, String where) {
+        assertEquals(expected.size(), actual.size(), where);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.id(i), actual.id(i), where);
+            assertArrayEquals(
+                new int[] {expected.hp(i), expected.maxHp(i), expected.col(i), expected.row(i)},
+                new int[] {actual.hp(i), actual.maxHp(i), actual.col(i), actual.row(i)},
+                where + " unit " + expected.id(i));
+            assertEquals(expected.hasMoved(i), actual.hasMoved(i), where);
+            assertSame(expected.weapon(i), actual.weapon(i), where);
+        }
+    }
+
+    private static final class Recording {
+        final UnitTable table;
+        final int[] turnStarts = new int[TURNS + 1];
+        final int[] turnEnds = new int[TURNS + 1];
+        final long[] stateKeys = new long[TURNS + 1];
+        int setupEnd;
+        int[] eventStarts = new int[64];
+        int eventCount;
+        byte[] bytes;
+
+        Recording(UnitTable table) {
+            this.table = table;
+        }
+
+        /** Notes where the next event starts; a call that wrote nothing leaves a repeat, which is dropped. */
+        void mark(BattleLog log) {
+            if (eventCount > 0 && eventStarts[eventCount - 1] == log.size()) {
+                return;
+            }
+            if (eventCount == eventStarts.length) {
+                eventStarts = Arrays.copyOf(eventStarts, eventCount * 2);
+            }
+            eventStarts[eventCount++] = log.size();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package dev.minimal.lwjgl.topdown;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BattleSaveTest {
+    private static final LevelSettings SETTINGS = new LevelSettings(41, 31, 48, 0.1f, 7L, true);
+    private static final BattleSave.State STATE = new BattleSave.State(SETTINGS, null, 1);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void fullSaveThenDeltaLoadsTheLatestUnits() throws IOException {
+        UnitTable units = squads(12);
+        BattleSave save = new BattleSave(dir.resolve("battle.sav"));
+        save.saveFull(STATE, units);
+
+        List<Weapon> catalog = WeaponRegistry.standard().catalog();
+        units.place(2, 20, 3);
+        units.applyDamage(5, 4);
+        units.setMoved(7, true);
+        units.equip(9, catalog.get(catalog.size() - 1));
+        save.autosave(new BattleSave.State(SETTINGS, null, 2), units);
+        assertTrue(Files.isRegularFile(dir.resolve("battle.sav.delta")));
+
+        BattleSave.Loaded loaded = new BattleSave(save.path()).load();
+        assertEquals(SETTINGS, loaded.state().settings());
+        assertNull(loaded.state().levelFile());
+        assertEquals(2, loaded.state().phase());
+        assertSameUnits(units, loaded.units());
+        // Units the delta restored stay dirty, so the next delta remains cumulative.
+        assertEquals(units.dirtyCount(), loaded.units().dirtyCount());
+    }
+
+    @Test
+    void deltaWrittenAgainstAnOlderFullSaveIsIgnored() throws IOException {
+        UnitTable units = squads(6);
+        BattleSave save = new BattleSave(dir.resolve("battle.sav"));
+        save.saveFull(STATE, units);
+        int col = units.col(3);
+        int row = units.row(3);
+        units.place(3, 20, 3);
+        save.autosave(STATE, units);
+        Path delta = dir.resolve("battle.sav.delta");
+        byte[] staleDelta = Files.readAllBytes(delta);
+
+        units.place(3, col, row);
+        units.applyDamage(0, 7);
+        save.saveFull(STATE, units);
+        Files.write(delta, staleDelta);
+
+        assertSameUnits(units, new BattleSave(save.path()).load().units());
+    }
+
+    @Test
+    void autosaveAfterAnEnemyTurnResumesOnThePlayerPhase() throws IOException {
+        UnitTable units = squads(8);
+        TurnScheduler scheduler = new TurnScheduler(units);
+        scheduler.beginRound();
+        while (scheduler.remaining() > 0) {
+            scheduler.acted(scheduler.next());
+        }
+        // As the game finishes an enemy turn: new round, player phase, then the autosave.
+        scheduler.beginRound();
+        int players = scheduler.remaining(UnitFaction.PLAYER);
+        BattleSave save = new BattleSave(dir.resolve("autosave.sav"));
+        save.autosave(new BattleSave.State(SETTINGS, null, TopDownPlatformerGame.BattlePhase.ACTIVE.ordinal()), units);
+
+        BattleSave.Loaded loaded = new BattleSave(save.path()).load();
+        assertEquals(TopDownPlatformerGame.BattlePhase.ACTIVE,
+            TopDownPlatformerGame.BattlePhase.fromOrdinal(loaded.state().phase()));
+        TurnScheduler resumed = new TurnScheduler(loaded.units());
+        resumed.rebuild();
+        assertEquals(players, resumed.remaining(UnitFaction.PLAYER));
+        assertSameUnits(units, loaded.units());
+    }
+
+    @Test
+    void truncatedOrForeignFilesAreRejected() throws IOException {
+        UnitTable units = squads(6);
+        BattleSave save = new BattleSave(dir.resolve("battle.sav"));
+        save.saveFull(STATE, units);
+        byte[] full = Files.readAllBytes(save.path());
+
+        for (int length : new int[] {0, 4, 9, full.length / 2, full.length - 1}) {
+            Files.write(save.path(), Arrays.copyOf(full, length));
+            assertThrows(IOException.class, () -> new BattleSave(save.path()).load(), "length " + length);
+        }
+        byte[] foreign = full.clone();
+        foreign[0] ^= 0x20;
+        Files.write(save.path(), foreign);
+        assertThrows(IOException.class, () -> new BattleSave(save.path()).load());
+    }
+
+    @Test
+    void placementsOffTheLevelOrOnWallsOrSharedAreRejected() throws IOException {
+        Level level = new LevelGenerator(SETTINGS.width(), SETTINGS.height(), SETTINGS.tileSize(),
+            SETTINGS.hazardDensity(), SETTINGS.seed()).generate();
+        BattleSave save = new BattleSave(dir.resolve("battle.sav"));
+
+        UnitTable units = squads(6);
+        save.saveFull(STATE, units);
+        BattleSave.checkPlacements(new BattleSave(save.path()).load().units(), level);
+
+        units.place(4, level.columns() + 3, 2);
+        save.saveFull(STATE, units);
+        UnitTable offBoard = new BattleSave(save.path()).load().units();
+        assertThrows(IOException.class, () -> BattleSave.checkPlacements(offBoard, level));
+
+        int[] wall = firstTile(level, false);
+        units.place(4, wall[0], wall[1]);
+        save.saveFull(STATE, units);
+        UnitTable onWall = new BattleSave(save.path()).load().units();
+        assertThrows(IOException.class, () -> BattleSave.checkPlacements(onWall, level));
+
+        units.place(4, units.col(1), units.row(1));
+        save.saveFull(STATE, units);
+        UnitTable shared = new BattleSave(save.path()).load().units();
+        assertThrows(IOException.class, () -> BattleSave.checkPlacements(shared, level));
+    }
+
+    /** Alternating players and enemies on distinct walkable tiles of the {@link #SETTINGS} level, last one unplaced. */
+    private static UnitTable squads(int count) {
+        Level level = new LevelGenerator(SETTINGS.width(), SETTINGS.height(), SETTINGS.tileSize(),
+            SETTINGS.hazardDensity(), SETTINGS.seed()).generate();
+        UnitTable units = new UnitTable();
+        int placed = 0;
+        for (int row = 0; row < level.rows() && placed < count - 1; row++) {
+            for (int col = 0; col < level.columns() && placed < count - 1; col++) {
+                if (level.isWalkable(col, row)) {
+                    addUnit(units, placed);
+                    units.place(placed++, col, row);
+                }
+            }
+        }
+        addUnit(units, placed);
+        return units;
+    }
+
+    private static void addUnit(UnitTable units, int index) {
+        UnitFaction faction = index % 2 == 0 ? UnitFaction.PLAYER : UnitFaction.ENEMY;
+        units.add(faction.name().toLowerCase(Locale.ROOT) + "-" + index, faction, 30, 10);
+    }
+
+    private static int[] firstTile(Level level, boolean walkable) {
+        for (int row = 0; row < level.rows(); row++) {
+            for (int col = 0; col < level.columns(); col++) {
+                if (level.isWalkable(col, row) == walkable) {
+                    return new int[] {col, row};
+                }
+            }
+        }
+        throw new IllegalStateException("No such tile");
+    }
+
+    private static void assertSameUnits(UnitTable expected, UnitTable actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.id(i), actual.id(i));
+            assertEquals(expected.faction(i), actual.faction(i));
+            assertArrayEquals(
+                new int[] {expected.hp(i), expected.sp(i), expected.maxHp(i), expected.maxSp(i), expected.col(i),
+                    expected.row(i)},
+                new int[] {actual.hp(i), actual.sp(i), actual.maxHp(i), actual.maxSp(i), actual.col(i), actual.row(i)},
+                "unit " + expected.id(i));
+            assertEquals(expected.hasMoved(i), actual.hasMoved(i));
+            assertSame(expected.weapon(i), actual.weapon(i));
+        }
+    }
+}
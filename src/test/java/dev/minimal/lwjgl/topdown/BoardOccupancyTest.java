@@ -0,0 +1,122 @@
+package dev.minimal.lwjgl.topdown;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BoardOccupancyTest {
+    private static final int SQUAD_SIZE = 10;
+
+    /** The incremental key must equal one computed from scratch after any mix of placements, hits and defeats. */
+    @Test
+    void positionKeyMatchesAKeyComputedFromScratch() {
+        Level level = new LevelGenerator(41, 31, 32, 0.1f, 9L).generate();
+        UnitTable table = new UnitTable();
+        List<Unit> players = Squad.create(table, UnitFaction.PLAYER, SQUAD_SIZE).units();
+        List<Unit> enemies = Squad.create(table, UnitFaction.ENEMY, SQUAD_SIZE).units();
+        List<Unit> units = new ArrayList<>(players);
+        units.addAll(enemies);
+        BoardOccupancy board = new BoardOccupancy(level.columns(), level.rows());
+        for (Unit unit : units) {
+            unit.attachTo(board);
+        }
+        assertEquals(scratchKey(level, units), board.positionKey());
+
+        SplittableRandom random = new SplittableRandom(21);
+        for (Unit unit : units) {
+            placeOnFreeTile(level, board, unit, random);
+        }
+        assertEquals(scratchKey(level, units), board.positionKey(), "after placing");
+
+        for (int step = 0; step < 2000; step++) {
+            Unit unit = units.get(random.nextInt(units.size()));
+            String what;
+            switch (random.nextInt(4)) {
+                case 0 -> {
+                    what = "move";
+                    if (!unit.isDefeated()) {
+                        placeOnFreeTile(level, board, unit, random);
+                    }
+                }
+                case 1 -> {
+                    what = "hit";
+                    unit.applyDamage(random.nextInt(1, 12));
+                    if (unit.isDefeated()) {
+                        what = "defeat";
+                        int col = unit.col();
+                        int row = unit.row();
+                        unit.clearPlacement();
+                        assertNull(board.unitAt(col, row));
+                    }
+                }
+                case 2 -> {
+                    what = "moved flag";
+                    unit.setMovedThisTurn(!unit.hasMovedThisTurn());
+                }
+                default -> {
+                    what = "revive";
+                    if (unit.isDefeated()) {
+                        table.restore(unit.index(), UnitTable.NO_TILE, UnitTable.NO_TILE, unit.maxHp(), unit.sp(),
+                            false);
+                        placeOnFreeTile(level, board, unit, random);
+                    }
+                }
+            }
+            String where = "step " + step + " " + what + " " + unit.id();
+            assertEquals(scratchKey(level, units), board.positionKey(), where);
+            assertEquals(BattleState.capture(level, players, enemies, UnitFaction.PLAYER).key(), board.positionKey(),
+                where);
+        }
+    }
+
+    @Test
+    void aTileHoldsOneUnit() {
+        UnitTable table = new UnitTable();
+        Unit first = table.add("first", UnitFaction.PLAYER, 10, 5);
+        Unit second = table.add("second", UnitFaction.ENEMY, 10, 5);
+        BoardOccupancy board = new BoardOccupancy(5, 5);
+        first.attachTo(board);
+        second.attachTo(board);
+        first.placeAt(2, 3);
+        long key = board.positionKey();
+        long version = board.version();
+
+        assertThrows(IllegalStateException.class, () -> second.placeAt(2, 3));
+        assertEquals(key, board.positionKey());
+        assertEquals(version, board.version());
+        assertSame(first, board.unitAt(2, 3));
+    }
+
+    /** The definition from {@link Zobrist}: one term per unit tile, hit points and moved flag, handle order. */
+    private static long scratchKey(Level level, List<Unit> units) {
+        long key = 0L;
+        for (int handle = 0; handle < units.size(); handle++) {
+            Unit unit = units.get(handle);
+            if (unit.isPlaced()) {
+                key ^= Zobrist.unitTile(handle, unit.row() * level.columns() + unit.col());
+            }
+            key ^= Zobrist.unitHp(handle, unit.hp());
+            if (unit.hasMovedThisTurn()) {
+                key ^= Zobrist.unitMoved(handle);
+            }
+        }
+        return key;
+    }
+
+    private static void placeOnFreeTile(Level level, BoardOccupancy board, Unit unit, SplittableRandom random) {
+        int col;
+        int row;
+        do {
+            col = random.nextInt(level.columns());
+            row = random.nextInt(level.rows());
+        } while (!level.isWalkable(col, row) || board.isOccupied(col, row));
+        unit.placeAt(col, row);
+    }
+}
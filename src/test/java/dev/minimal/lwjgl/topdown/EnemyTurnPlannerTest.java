@@ -0,0 +1,109 @@
+package dev.minimal.lwjgl.topdown;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EnemyTurnPlannerTest {
+    private static final int PLAYERS = 24;
+    private static final int ENEMIES = 2 * EnemyTurnPlanner.PARALLEL_THRESHOLD;
+    private static final int MOVEMENT_RANGE = 4;
+    private static final int TURNS = 6;
+
+    /** The reservations only settle conflicts, so a parallel turn makes exactly the sequential moves. */
+    @Test
+    void parallelTurnsMatchSequentialTurns() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (long seed = 1; seed <= 8; seed++) {
+                Battle sequential = new Battle(seed);
+                Battle parallel = new Battle(seed);
+                EnemyTurnPlanner sequentialPlanner = new EnemyTurnPlanner();
+                EnemyTurnPlanner parallelPlanner = new EnemyTurnPlanner();
+                for (int turn = 0; turn < TURNS; turn++) {
+                    int moved = sequentialPlanner.execute(sequential.level, sequential.board, sequential.enemies,
+                        sequential.players, MOVEMENT_RANGE);
+                    assertEquals(moved, parallelPlanner.executeParallel(parallel.level, parallel.board,
+                        parallel.enemies, parallel.players, MOVEMENT_RANGE, pool), "seed " + seed + " turn " + turn);
+                    assertArrayEquals(sequential.tiles(), parallel.tiles(), "seed " + seed + " turn " + turn);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void noTwoUnitsEndATurnOnOneTile() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (long seed = 1; seed <= 8; seed++) {
+                Battle battle = new Battle(seed);
+                EnemyTurnPlanner planner = new EnemyTurnPlanner();
+                for (int turn = 0; turn < TURNS; turn++) {
+                    planner.executeParallel(battle.level, battle.board, battle.enemies, battle.players,
+                        MOVEMENT_RANGE, pool);
+                    long[] taken = new long[Level.wordsFor(battle.level.columns() * battle.level.rows())];
+                    for (Unit unit : battle.units) {
+                        String where = "seed " + seed + " turn " + turn + " " + unit.id();
+                        assertTrue(battle.level.isWalkable(unit.col(), unit.row()), where);
+                        int tile = unit.row() * battle.level.columns() + unit.col();
+                        assertEquals(0L, taken[tile >>> 6] & (1L << tile), where);
+                        taken[tile >>> 6] |= 1L << tile;
+                        assertEquals(unit, battle.board.unitAt(unit.col(), unit.row()), where);
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Both squads scattered over distinct walkable tiles of a generated level, a third of the enemies wounded. */
+    private static final class Battle {
+        final Level level;
+        final BoardOccupancy board;
+        final List<Unit> players;
+        final List<Unit> enemies;
+        final List<Unit> units = new ArrayList<>();
+
+        Battle(long seed) {
+            level = new LevelGenerator(61, 45, 32, 0.1f, seed).generate();
+            UnitTable table = new UnitTable(PLAYERS + ENEMIES);
+            players = Squad.create(table, UnitFaction.PLAYER, PLAYERS).units();
+            enemies = Squad.create(table, UnitFaction.ENEMY, ENEMIES).units();
+            units.addAll(players);
+            units.addAll(enemies);
+            board = new BoardOccupancy(level.columns(), level.rows());
+            SplittableRandom random = new SplittableRandom(seed);
+            for (Unit unit : units) {
+                unit.attachTo(board);
+                int col;
+                int row;
+                do {
+                    col = random.nextInt(level.columns());
+                    row = random.nextInt(level.rows());
+                } while (!level.isWalkable(col, row) || board.isOccupied(col, row));
+                unit.placeAt(col, row);
+            }
+            for (int i = 0; i < enemies.size(); i += 3) {
+                enemies.get(i).applyDamage(enemies.get(i).maxHp() * 2 / 3);
+            }
+        }
+
+        int[] tiles() {
+            int[] tiles = new int[units.size()];
+            for (int i = 0; i < tiles.length; i++) {
+                tiles[i] = units.get(i).row() * level.columns() + units.get(i).col();
+            }
+            return tiles;
+        }
+    }
+}
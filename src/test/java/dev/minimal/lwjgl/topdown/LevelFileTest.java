@@ -0,0 +1,94 @@
+package dev.minimal.lwjgl.topdown;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LevelFileTest {
+    /** Byte offsets of header fields; the first spawn pair follows the 11 fixed ints. */
+    private static final int TILE_SIZE_AT = 16;
+    private static final int START_AT = 20;
+    private static final int FIRST_SPAWN_AT = 44;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void packedAndChunkedLevelsReadBackTileForTile() throws IOException {
+        Path file = dir.resolve("level.lvl");
+        Level packed = new LevelGenerator(41, 31, 48, 0.1f, 7L).generate();
+        LevelFile.write(packed, file);
+        assertSameLevel(packed, LevelFile.read(file));
+
+        Level chunked = new LevelGenerator(97, 65, 32, 0.1f, 9L).generateChunked(16, 4);
+        LevelFile.write(chunked, file);
+        assertSameLevel(chunked, LevelFile.read(file));
+    }
+
+    @Test
+    void damagedFilesAreRejected() throws IOException {
+        Level level = new LevelGenerator(41, 31, 48, 0.1f, 7L).generate();
+        Path file = dir.resolve("level.lvl");
+        LevelFile.write(level, file);
+        byte[] good = Files.readAllBytes(file);
+        int cells = (level.columns() + 2) * (level.rows() + 2);
+        int tilesAt = good.length - cells;
+        int walkableAt = tilesAt - Level.wordsFor(cells) * Long.BYTES;
+
+        assertRejected(file, Arrays.copyOf(good, 40), "shorter than the header");
+        assertRejected(file, Arrays.copyOf(good, good.length - 1), "truncated plane");
+        assertRejected(file, withInt(good, TILE_SIZE_AT, 0), "zero tile size");
+        assertRejected(file, withInt(good, START_AT, level.columns()), "start off the board");
+        assertRejected(file, withInt(withInt(good, START_AT, 0), START_AT + 4, 0), "start on a wall");
+        assertRejected(file, withInt(good, FIRST_SPAWN_AT, -1), "spawn off the board");
+
+        byte[] openBorder = good.clone();
+        openBorder[tilesAt + 3] = (byte) TileType.FLOOR.ordinal();
+        assertRejected(file, openBorder, "open border");
+
+        int cell = level.cellIndex(5, 5);
+        byte[] flippedBit = good.clone();
+        flippedBit[walkableAt + (cell >>> 3)] ^= (byte) (1 << (cell & 7));
+        assertRejected(file, flippedBit, "walkability bit");
+
+        byte[] unknownTile = good.clone();
+        unknownTile[tilesAt + cell] = 99;
+        assertRejected(file, unknownTile, "unknown tile");
+    }
+
+    private static byte[] withInt(byte[] bytes, int offset, int value) {
+        byte[] copy = bytes.clone();
+        ByteBuffer.wrap(copy).order(ByteOrder.LITTLE_ENDIAN).putInt(offset, value);
+        return copy;
+    }
+
+    private static void assertRejected(Path file, byte[] bytes, String what) throws IOException {
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> LevelFile.read(file), what);
+    }
+
+    private static void assertSameLevel(Level expected, Level actual) {
+        assertEquals(expected.columns(), actual.columns());
+        assertEquals(expected.rows(), actual.rows());
+        assertEquals(expected.tileSize(), actual.tileSize());
+        assertEquals(expected.startPosition(), actual.startPosition());
+        assertEquals(expected.exitPosition(), actual.exitPosition());
+        assertEquals(expected.playerSpawnTiles(), actual.playerSpawnTiles());
+        assertEquals(expected.enemySpawnTiles(), actual.enemySpawnTiles());
+        for (int row = -1; row <= expected.rows(); row++) {
+            for (int col = -1; col <= expected.columns(); col++) {
+                assertEquals(expected.tileAt(col, row), actual.tileAt(col, row), "tile " + col + "," + row);
+                assertEquals(expected.isWalkable(col, row), actual.isWalkable(col, row), "tile " + col + "," + row);
+            }
+        }
+    }
+}
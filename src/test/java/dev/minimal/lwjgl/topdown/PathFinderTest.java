@@ -0,0 +1,72 @@
+package dev.minimal.lwjgl.topdown;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PathFinderTest {
+    private static final int LEVELS = 40;
+    private static final int QUERIES_PER_LEVEL = 300;
+
+    /** Jump point search must find routes exactly as short as the A* reference, around walls and occupied tiles. */
+    @Test
+    void jumpPointSearchMatchesAStar() {
+        SplittableRandom random = new SplittableRandom(7);
+        for (int levelIndex = 0; levelIndex < LEVELS; levelIndex++) {
+            int columns = 21 + 2 * random.nextInt(40);
+            int rows = 15 + 2 * random.nextInt(30);
+            Level level = new LevelGenerator(columns, rows, 32, 0.02f + random.nextInt(20) / 100f, random.nextLong())
+                .generate();
+            PathFinder finder = new PathFinder(level);
+            List<GridPosition> open = new ArrayList<>();
+            for (int row = 0; row < rows; row++) {
+                for (int col = 0; col < columns; col++) {
+                    if (level.isWalkable(col, row)) {
+                        open.add(new GridPosition(col, row));
+                    }
+                }
+            }
+            for (int query = 0; query < QUERIES_PER_LEVEL; query++) {
+                long[] occupied = random.nextBoolean() ? occupy(open, columns, rows, random) : null;
+                GridPosition from = open.get(random.nextInt(open.size()));
+                GridPosition to = open.get(random.nextInt(open.size()));
+                List<GridPosition> jump = finder.find(from, to, occupied);
+                List<GridPosition> reference = finder.findAStar(from, to, occupied);
+                String where = "level " + levelIndex + " query " + query + " from " + from + " to " + to;
+                assertEquals(reference.size(), jump.size(), where);
+                assertValidPath(level, occupied, jump, where);
+            }
+        }
+    }
+
+    private static long[] occupy(List<GridPosition> open, int columns, int rows, SplittableRandom random) {
+        long[] occupied = new long[Level.wordsFor(columns * rows)];
+        int count = random.nextInt(60);
+        for (int i = 0; i < count; i++) {
+            GridPosition tile = open.get(random.nextInt(open.size()));
+            int index = tile.row() * columns + tile.col();
+            occupied[index >>> 6] |= 1L << index;
+        }
+        return occupied;
+    }
+
+    /** Unit steps over walkable tiles, never entering an occupied one. */
+    private static void assertValidPath(Level level, long[] occupied, List<GridPosition> path, String where) {
+        for (int i = 0; i < path.size(); i++) {
+            GridPosition tile = path.get(i);
+            assertTrue(level.isWalkable(tile.col(), tile.row()), where);
+            if (i == 0) {
+                continue;
+            }
+            GridPosition previous = path.get(i - 1);
+            assertEquals(1, Math.abs(previous.col() - tile.col()) + Math.abs(previous.row() - tile.row()), where);
+            int index = tile.row() * level.columns() + tile.col();
+            assertTrue(occupied == null || (occupied[index >>> 6] & (1L << index)) == 0, where);
+        }
+    }
+}
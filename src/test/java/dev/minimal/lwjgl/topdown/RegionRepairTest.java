@@ -0,0 +1,132 @@
+package dev.minimal.lwjgl.topdown;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RegionRepairTest {
+    /**
+     * The exit, an enemy spawn and a player spawn sit in pockets walled off from the start; the hazard pocket holds
+     * nothing required and no corridor crosses it, so it is filled.
+     */
+    private static final String[] POCKETS = {
+        "S..P#...#.G",
+        "....#.E.#..",
+        "#########..",
+        ".X.#.......",
+        "...#.P.####",
+        "...#...#...",
+    };
+
+    @Test
+    void disconnectedPocketsEndUpInTheStartRegion() {
+        LevelBuilder grid = LevelBuilder.parse(POCKETS);
+        int walkableBefore = countWalkable(grid);
+        RegionRepair.Result result = RegionRepair.connect(grid);
+
+        assertTrue(result.carvedTiles() > 0);
+        assertTrue(result.filledTiles() > 0);
+        assertEquals(walkableBefore + result.carvedTiles() - result.filledTiles(), countWalkable(grid));
+        assertSingleRegion(grid.build(32));
+    }
+
+    @Test
+    void connectedLevelsAreLeftAlone() {
+        LevelBuilder grid = LevelBuilder.parse(new String[] {
+            "S...#....",
+            ".P.....E.",
+            "....#...G",
+        });
+        assertEquals(new RegionRepair.Result(0, 0), RegionRepair.connect(grid));
+        assertSingleRegion(grid.build(32));
+    }
+
+    @Test
+    void randomWallNoiseIsRepairedIntoOneRegion() {
+        SplittableRandom random = new SplittableRandom(3);
+        for (int board = 0; board < 60; board++) {
+            int columns = 5 + random.nextInt(60);
+            int rows = 5 + random.nextInt(40);
+            LevelBuilder grid = new LevelBuilder(columns, rows);
+            double wallChance = 0.3 + random.nextInt(40) / 100.0;
+            for (int row = 0; row < rows; row++) {
+                for (int col = 0; col < columns; col++) {
+                    if (random.nextDouble() < wallChance) {
+                        grid.set(col, row, TileType.WALL);
+                    }
+                }
+            }
+            TileType[] markers = {TileType.START, TileType.EXIT, TileType.PLAYER_SPAWN, TileType.PLAYER_SPAWN,
+                TileType.ENEMY_SPAWN, TileType.ENEMY_SPAWN};
+            for (TileType marker : markers) {
+                int col;
+                int row;
+                do {
+                    col = random.nextInt(columns);
+                    row = random.nextInt(rows);
+                } while (grid.tileAt(col, row) != TileType.FLOOR && grid.tileAt(col, row) != TileType.WALL);
+                grid.set(col, row, marker);
+            }
+            int walkableBefore = countWalkable(grid);
+
+            RegionRepair.Result result = RegionRepair.connect(grid);
+            assertEquals(walkableBefore + result.carvedTiles() - result.filledTiles(), countWalkable(grid),
+                "board " + board);
+            assertSingleRegion(grid.build(32));
+        }
+    }
+
+    private static int countWalkable(LevelBuilder grid) {
+        int count = 0;
+        for (int row = 0; row < grid.rows(); row++) {
+            for (int col = 0; col < grid.columns(); col++) {
+                if (!grid.tileAt(col, row).blocksMovement) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /** Start, exit and spawns are walkable, and a flood from the start reaches every walkable tile. */
+    private static void assertSingleRegion(Level level) {
+        List<GridPosition> required = new ArrayList<>();
+        required.add(level.startPosition());
+        required.add(level.exitPosition());
+        required.addAll(level.playerSpawnTiles());
+        required.addAll(level.enemySpawnTiles());
+        for (GridPosition tile : required) {
+            assertTrue(level.isWalkable(tile.col(), tile.row()), "not walkable: " + tile);
+        }
+
+        int columns = level.columns();
+        boolean[] reached = new boolean[columns * level.rows()];
+        int[] queue = new int[reached.length];
+        int tail = 0;
+        GridPosition start = level.startPosition();
+        reached[start.row() * columns + start.col()] = true;
+        queue[tail++] = start.row() * columns + start.col();
+        for (int head = 0; head < tail; head++) {
+            int col = queue[head] % columns;
+            int row = queue[head] / columns;
+            for (Direction direction : Direction.DIRECTIONS) {
+                int nextCol = col + direction.dx;
+                int nextRow = row + direction.dy;
+                if (level.isWalkable(nextCol, nextRow) && !reached[nextRow * columns + nextCol]) {
+                    reached[nextRow * columns + nextCol] = true;
+                    queue[tail++] = nextRow * columns + nextCol;
+                }
+            }
+        }
+        for (int row = 0; row < level.rows(); row++) {
+            for (int col = 0; col < columns; col++) {
+                assertEquals(level.isWalkable(col, row), reached[row * columns + col], "tile " + col + "," + row);
+            }
+        }
+    }
+}
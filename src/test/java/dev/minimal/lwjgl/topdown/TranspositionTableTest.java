@@ -0,0 +1,67 @@
+package dev.minimal.lwjgl.topdown;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TranspositionTableTest {
+    @Test
+    void storedEntriesProbeBackUnchanged() {
+        TranspositionTable table = new TranspositionTable(12);
+        SplittableRandom random = new SplittableRandom(5);
+        for (int i = 0; i < 2000; i++) {
+            long key = random.nextLong();
+            int depth = random.nextInt(256);
+            int score = random.nextInt();
+            int bound = random.nextInt(3);
+            int move = random.nextInt(TranspositionTable.NO_MOVE);
+            table.clear();
+            table.store(key, depth, score, bound, move);
+
+            long entry = table.probe(key);
+            assertEquals(score, TranspositionTable.scoreOf(entry), "score");
+            assertEquals(depth, TranspositionTable.depthOf(entry), "depth");
+            assertEquals(bound, TranspositionTable.boundOf(entry), "bound");
+            assertEquals(move, TranspositionTable.moveOf(entry), "move");
+        }
+        table.store(7L, 3, -1, TranspositionTable.BOUND_UPPER, -1);
+        assertEquals(TranspositionTable.NO_MOVE, TranspositionTable.moveOf(table.probe(7L)));
+        assertEquals(-1, TranspositionTable.scoreOf(table.probe(7L)));
+    }
+
+    /** A key sharing the slot of a stored one fails the XOR check and reads as a miss, never as the other's entry. */
+    @Test
+    void probeOfAnotherKeyInTheSameSlotMisses() {
+        TranspositionTable table = new TranspositionTable(8);
+        long key = 0x1234_5678_9ABC_DEF0L;
+        // Flipping bit 0 of both halves leaves the folded slot index unchanged.
+        long collider = key ^ (1L << 32) ^ 1L;
+        table.store(key, 4, 120, TranspositionTable.BOUND_EXACT, 3);
+
+        assertEquals(TranspositionTable.MISS, table.probe(collider));
+        assertEquals(120, TranspositionTable.scoreOf(table.probe(key)));
+        assertEquals(TranspositionTable.MISS, new TranspositionTable(8).probe(key));
+    }
+
+    @Test
+    void deeperEntriesSurviveShallowerOnesUntilTheNextSearch() {
+        TranspositionTable table = new TranspositionTable(8);
+        long key = 0x0F0F_0000_0000_1111L;
+        long collider = key ^ (1L << 32) ^ 1L;
+        table.store(key, 6, 50, TranspositionTable.BOUND_EXACT, 1);
+
+        table.store(collider, 2, 10, TranspositionTable.BOUND_LOWER, 2);
+        assertEquals(50, TranspositionTable.scoreOf(table.probe(key)));
+        assertEquals(TranspositionTable.MISS, table.probe(collider));
+
+        table.store(key, 1, 60, TranspositionTable.BOUND_EXACT, 1);
+        assertEquals(60, TranspositionTable.scoreOf(table.probe(key)), "same position always replaces");
+
+        table.newSearch();
+        table.store(collider, 0, 10, TranspositionTable.BOUND_LOWER, 2);
+        assertEquals(10, TranspositionTable.scoreOf(table.probe(collider)));
+        assertEquals(TranspositionTable.MISS, table.probe(key));
+    }
+}